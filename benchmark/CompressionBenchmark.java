@@ -0,0 +1,106 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Random;
+
+import model.Task;
+import model.exporter.CompressionCodec;
+import model.exporter.TaskCodecs;
+
+/**
+ * Compara la velocidad y el ratio de cada {@link CompressionCodec} con datos de tareas
+ * parecidos a los reales, en CSV y en JSON.
+ * <p>
+ * No necesita dependencias aparte de las del proyecto:
+ * </p>
+ * <pre>
+ * javac -encoding UTF-8 -cp "lib/*" -sourcepath src -d out benchmark/CompressionBenchmark.java
+ * java -cp "out:lib/*" CompressionBenchmark [tareas]
+ * </pre>
+ */
+public class CompressionBenchmark {
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int MEASURED_ROUNDS = 5;
+
+	private static final String[] WORDS = {
+		"revisar", "informe", "reunion", "cliente", "enviar", "factura", "preparar", "presentacion",
+		"llamar", "proveedor", "actualizar", "documentacion", "corregir", "error", "despliegue", "pruebas"
+	};
+
+	public static void main(String[] args) throws IOException {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		Random random = new Random(42);
+
+		StringBuilder csv = new StringBuilder();
+		StringBuilder json = new StringBuilder();
+		LocalDate start = LocalDate.of(2024, 1, 1);
+		for (int i = 0; i < count; i++) {
+			Task task = new Task(i, sentence(random, 3), start.plusDays(random.nextInt(730)), sentence(random, 12),
+					1 + random.nextInt(5), 15 * (1 + random.nextInt(16)), random.nextInt(4) == 0);
+			csv.append(task.toDelimitedString(";")).append('\n');
+			json.append(TaskCodecs.TASK_ADAPTER.toJson(task)).append('\n');
+		}
+
+		System.out.printf("%d tareas%n", count);
+		run("CSV", csv.toString().getBytes(StandardCharsets.UTF_8));
+		run("JSON", json.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void run(String name, byte[] data) throws IOException {
+		System.out.printf("%n%s: %.1f MB%n", name, data.length / 1e6);
+		System.out.printf("%-8s %10s %12s %12s%n", "codec", "ratio", "comp MB/s", "descomp MB/s");
+		for (CompressionCodec codec : CompressionCodec.values()) {
+			byte[] compressed = compress(codec, data);
+			long compressNanos = Long.MAX_VALUE;
+			long decompressNanos = Long.MAX_VALUE;
+			for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+				long t0 = System.nanoTime();
+				compressed = compress(codec, data);
+				long t1 = System.nanoTime();
+				int length = decompress(codec, compressed);
+				long t2 = System.nanoTime();
+				if (length != data.length) {
+					throw new IllegalStateException(codec + " no recupera los datos originales");
+				}
+				if (round >= WARMUP_ROUNDS) {
+					// El mejor tiempo es el menos afectado por el GC y otros procesos
+					compressNanos = Math.min(compressNanos, t1 - t0);
+					decompressNanos = Math.min(decompressNanos, t2 - t1);
+				}
+			}
+			System.out.printf("%-8s %10.2f %12.0f %12.0f%n", codec, (double) data.length / compressed.length,
+					data.length / 1e6 / (compressNanos / 1e9), data.length / 1e6 / (decompressNanos / 1e9));
+		}
+	}
+
+	private static byte[] compress(CompressionCodec codec, byte[] data) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 2);
+		try (OutputStream out = codec.compress(buffer)) {
+			out.write(data);
+		}
+		return buffer.toByteArray();
+	}
+
+	private static int decompress(CompressionCodec codec, byte[] data) throws IOException {
+		byte[] chunk = new byte[64 * 1024];
+		int total = 0;
+		try (InputStream in = codec.decompress(new ByteArrayInputStream(data))) {
+			for (int read = in.read(chunk); read >= 0; read = in.read(chunk)) {
+				total += read;
+			}
+		}
+		return total;
+	}
+
+	private static String sentence(Random random, int maxWords) {
+		StringBuilder text = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+		for (int i = 1 + random.nextInt(maxWords); i > 1; i--) {
+			text.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,123 @@
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import benchmark.TaskGenerator;
+import model.Model;
+import model.Task;
+import model.TaskEvent;
+import model.TaskEventDispatcher;
+import model.TaskObserver;
+import model.repository.BinaryRepository;
+
+/**
+ * Mide cuanto tardan las escrituras del {@link Model} con un observador lento, que
+ * tarda un milisegundo en procesar cada lote, y comprueba que tras
+ * {@link Model#flushEvents()} el observador conoce exactamente los identificadores del
+ * repositorio.
+ * <p>
+ * Se repite con varias ventanas de agrupacion para ver cuantos lotes y eventos llegan
+ * al observador y con que retraso.
+ * </p>
+ * <pre>
+ * javac -encoding UTF-8 -cp "lib/*" -sourcepath src:jmh/src/main/java -d out benchmark/EventDispatchBenchmark.java
+ * java -cp "out:lib/*" EventDispatchBenchmark [operaciones]
+ * </pre>
+ */
+public class EventDispatchBenchmark {
+	private static final long[] WINDOWS_MILLIS = { 0, 5, 50 };
+
+	public static void main(String[] args) throws Exception {
+		int operations = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		System.setProperty("user.home", Files.createTempDirectory("taskevents").toString());
+
+		boolean failed = false;
+		System.out.printf("%-10s %12s %12s %10s %12s %14s%n", "ventana", "us/escritura", "flush ms", "lotes", "entregados", "retraso max ms");
+		for (long window : WINDOWS_MILLIS) {
+			Model model = new Model(new BinaryRepository());
+			model.getEventDispatcher().setWindow(Duration.ofMillis(window));
+			IdObserver observer = new IdObserver();
+			model.addObserver(observer);
+
+			Random random = new Random(window);
+			List<Task> initial = TaskGenerator.generate(1_000, 1);
+			for (Task task : initial) {
+				model.addTask(task);
+			}
+
+			long start = System.nanoTime();
+			int nextID = initial.size() + 1;
+			for (int i = 0; i < operations; i++) {
+				int identifier = 1 + random.nextInt(nextID - 1);
+				switch (random.nextInt(3)) {
+					case 0:
+						model.addTask(TaskGenerator.generate(nextID++, random));
+						break;
+					case 1:
+						if (model.getUsedIDs().contains(identifier)) {
+							model.modifyTask(TaskGenerator.generate(identifier, random));
+						}
+						break;
+					default:
+						if (model.getUsedIDs().contains(identifier)) {
+							model.removeTask(new Task(identifier));
+						}
+						break;
+				}
+			}
+			long writes = System.nanoTime() - start;
+			model.flushEvents();
+			long flush = System.nanoTime() - start - writes;
+
+			TaskEventDispatcher.Metrics metrics = model.getEventDispatcher().getMetrics();
+			System.out.printf("%-10s %12.2f %12.1f %10d %12d %14.1f%n", window + " ms", writes / 1e3 / operations, flush / 1e6,
+					metrics.getBatches(), metrics.getDeliveredEvents(), metrics.getMaxLag().toNanos() / 1e6);
+
+			if (!observer.ids.equals(model.getUsedIDs())) {
+				System.out.println("Error: el observador no coincide con el repositorio tras flushEvents");
+				failed = true;
+			}
+			if (metrics.getObserverFailures() > 0) {
+				System.out.println("Error: el observador fallo al recibir cambios: " + model.takeObserverFailure());
+				failed = true;
+			}
+		}
+		System.out.println(failed ? "FALLO" : "OK");
+		if (failed) {
+			System.exit(1);
+		}
+	}
+
+	// Mantiene los identificadores a partir de los eventos y tarda en cada lote
+	private static final class IdObserver implements TaskObserver {
+		final Set<Integer> ids = new HashSet<>();
+
+		@Override
+		public void update(Set<Integer> taskIDs) {
+			ids.clear();
+			ids.addAll(taskIDs);
+		}
+
+		@Override
+		public void taskChanged(TaskEvent event) {
+			if (event.getType() == TaskEvent.Type.CREATED) {
+				ids.add(event.getIdentifier());
+			} else if (event.getType() == TaskEvent.Type.REMOVED) {
+				ids.remove(event.getIdentifier());
+			}
+		}
+
+		@Override
+		public void tasksChanged(List<TaskEvent> events) {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			TaskObserver.super.tasksChanged(events);
+		}
+	}
+}
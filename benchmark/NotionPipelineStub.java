@@ -0,0 +1,371 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import model.Task;
+import model.repository.NotionRepository;
+import model.repository.RepositoryException;
+import model.repository.WriteResult;
+
+/**
+ * Prueba de las escrituras de {@link NotionRepository} contra un servidor local que
+ * simula la API de Notion y falla a proposito.
+ * <p>
+ * El servidor guarda las paginas en memoria y responde a las escrituras de forma
+ * determinista: una de cada {@value #THROTTLE_EVERY} peticiones con 429 y
+ * {@code Retry-After}, una de cada {@value #UNAVAILABLE_EVERY} con 503, y siempre con
+ * 400 las tareas cuyo titulo es {@value #REJECTED}. Los 503 de las altas llegan
+ * despues de crear la pagina, como si se perdiera la respuesta. Comprueba que:
+ * </p>
+ * <ul>
+ *   <li>Los 429 y 503 se reintentan y acaban guardandose; el 400 no se reintenta y solo
+ *       falla su tarea, con su resultado propio en {@code getLastSaveResults()}.</li>
+ *   <li>Reintentar un alta cuya respuesta se perdio no duplica la pagina.</li>
+ *   <li>Ninguna ventana de un segundo supera el limite de peticiones mas la rafaga. Cada
+ *       repositorio tiene su propio limitador, asi que se mide cada prueba por separado.</li>
+ *   <li>Con la escritura inmediata, un fallo no modifica la copia local.</li>
+ *   <li>Interrumpir un guardado largo lo termina enseguida y deja los cambios pendientes.</li>
+ * </ul>
+ * <p>
+ * {@code gradle check} la ejecuta con la tarea {@code notionPipelineStub}. A mano:
+ * </p>
+ * <pre>
+ * javac -encoding UTF-8 -cp "lib/*" -sourcepath src -d out benchmark/NotionPipelineStub.java
+ * java -cp "out:lib/*" NotionPipelineStub [tareas]
+ * </pre>
+ */
+public class NotionPipelineStub {
+	private static final String DATABASE = "stub-database";
+	private static final String REJECTED = "rechazada";
+	private static final int THROTTLE_EVERY = 5;
+	private static final int UNAVAILABLE_EVERY = 7;
+	// Limite de la API (3) mas la rafaga del RateLimiter (3), y una de margen porque el
+	// servidor anota la llegada y no la salida de cada peticion
+	private static final int MAX_PER_SECOND = 7;
+
+	private static final Map<String, JsonObject> pages = new ConcurrentHashMap<>();
+	private static final List<Long> writeTimes = new ArrayList<>();
+	private static final AtomicInteger writes = new AtomicInteger();
+	private static final AtomicInteger throttled = new AtomicInteger();
+	private static final AtomicInteger unavailable = new AtomicInteger();
+	private static final AtomicBoolean failed = new AtomicBoolean();
+
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/v1/", NotionPipelineStub::handle);
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.start();
+		String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+
+		try {
+			deferredSave(baseUrl, count);
+			checkRate();
+			immediateWrites(baseUrl);
+			checkRate();
+			interruptedSave(baseUrl, count);
+			checkRate();
+		} finally {
+			server.stop(0);
+		}
+
+		System.out.printf("%d escrituras, %d respuestas 429, %d respuestas 503%n", writes.get(), throttled.get(), unavailable.get());
+		if (failed.get()) {
+			System.out.println("FALLOS");
+			System.exit(1);
+		}
+		System.out.println("OK");
+	}
+
+	// Guardado diferido: todas las tareas salen juntas en saveTasks y solo falla la rechazada
+	private static void deferredSave(String baseUrl, int count) throws RepositoryException {
+		NotionRepository repository = new NotionRepository("stub", DATABASE, baseUrl);
+		repository.loadTasks();
+		repository.setWriteBehind(true);
+		for (int i = 1; i <= count; i++) {
+			repository.addTask(task(i, i == count / 2 ? REJECTED : "Tarea " + i));
+		}
+
+		long start = System.nanoTime();
+		try {
+			repository.saveTasks();
+			check(false, "el guardado con una tarea rechazada no deberia terminar bien");
+		} catch (RepositoryException e) {
+			System.out.println("Guardado con errores: " + e.getMessage());
+		}
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		List<WriteResult> results = repository.getLastSaveResults();
+		int succeeded = 0;
+		int retried = 0;
+		for (WriteResult result : results) {
+			succeeded += result.isSuccess() ? 1 : 0;
+			retried += result.getAttempts() > 1 ? 1 : 0;
+			if (!result.isSuccess()) {
+				check(result.getIdentifier() == count / 2, "ha fallado una tarea que no estaba rechazada: " + result);
+				check(result.getAttempts() == 1, "un 400 no deberia reintentarse: " + result);
+			}
+		}
+		System.out.printf("Guardado diferido: %d de %d tareas en %d ms, %d con reintentos%n", succeeded, results.size(), millis, retried);
+		check(results.size() == count, "falta el resultado de alguna tarea");
+		check(succeeded == count - 1, "no se han guardado todas las tareas validas");
+		check(retried > 0, "ninguna escritura se ha reintentado");
+		check(duplicatePages() == 0, "el servidor tiene " + duplicatePages() + " paginas duplicadas");
+		check(livePages() == count - 1, "el servidor tiene " + livePages() + " paginas");
+		check(repository.getChangeTracker().getPendingChanges() == 1, "la tarea rechazada deberia seguir pendiente");
+	}
+
+	// Escritura inmediata: cada cambio llega a Notion al hacerlo y un rechazo no toca la copia local
+	private static void immediateWrites(String baseUrl) throws RepositoryException {
+		NotionRepository repository = new NotionRepository("stub", DATABASE, baseUrl);
+		repository.loadTasks();
+		int loaded = repository.getAllTasks().size();
+		check(loaded == livePages(), "se han cargado " + loaded + " tareas de " + livePages());
+
+		Task first = repository.getAllTasks().get(0);
+		Task modified = task(first.getIdentifier(), "Modificada");
+		repository.modifyTask(modified);
+		check(hasTitle(first.getIdentifier(), "Modificada"), "la modificacion no ha llegado al servidor");
+
+		try {
+			repository.addTask(task(1_000, REJECTED));
+			check(false, "el alta rechazada por Notion no deberia terminar bien");
+		} catch (RepositoryException e) {
+			check(!repository.getUsedIDs().contains(1_000), "la tarea rechazada se ha añadido a la copia local");
+		}
+
+		repository.removeTask(modified);
+		check(livePages() == loaded - 1, "la pagina eliminada no se ha archivado");
+		check(!repository.getChangeTracker().isDirty(), "la escritura inmediata no deberia dejar cambios pendientes");
+		System.out.println("Escritura inmediata: modificar, rechazar y eliminar OK");
+	}
+
+	// Un guardado interrumpido debe terminar sin esperar a las escrituras que quedan en cola
+	private static void interruptedSave(String baseUrl, int count) throws Exception {
+		NotionRepository repository = new NotionRepository("stub", DATABASE, baseUrl);
+		repository.loadTasks();
+		repository.setWriteBehind(true);
+		for (int i = 1; i <= count; i++) {
+			repository.addTask(task(10_000 + i, "Interrumpida " + i));
+		}
+
+		long[] elapsed = new long[1];
+		Thread saver = new Thread(() -> {
+			long start = System.nanoTime();
+			try {
+				repository.saveTasks();
+				check(false, "el guardado interrumpido no deberia terminar bien");
+			} catch (RepositoryException e) {
+				check(Thread.currentThread().isInterrupted(), "se ha perdido la marca de interrupcion");
+			}
+			elapsed[0] = System.nanoTime() - start;
+		});
+		saver.start();
+		Thread.sleep(1_000);
+		long interruptedAt = System.nanoTime();
+		saver.interrupt();
+		saver.join();
+
+		long afterInterrupt = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - interruptedAt);
+		System.out.printf("Guardado interrumpido: termina %d ms despues de la interrupcion (%d ms en total)%n",
+				afterInterrupt, TimeUnit.NANOSECONDS.toMillis(elapsed[0]));
+		check(afterInterrupt < 1_000, "el guardado ha seguido escribiendo tras la interrupcion");
+		check(repository.getChangeTracker().getPendingChanges() == count, "los cambios no guardados se han perdido");
+	}
+
+	// Mide las escrituras desde la comprobacion anterior
+	private static void checkRate() {
+		List<Long> times;
+		synchronized (writeTimes) {
+			times = new ArrayList<>(writeTimes);
+			writeTimes.clear();
+		}
+		times.sort(null);
+		int max = 0;
+		int from = 0;
+		for (int to = 0; to < times.size(); to++) {
+			while (times.get(to) - times.get(from) >= TimeUnit.SECONDS.toNanos(1)) {
+				from++;
+			}
+			max = Math.max(max, to - from + 1);
+		}
+		System.out.printf("Maximo de escrituras en un segundo: %d (limite %d)%n", max, MAX_PER_SECOND);
+		check(max <= MAX_PER_SECOND, "se ha superado el limite de peticiones");
+	}
+
+	private static void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			String path = exchange.getRequestURI().getPath();
+			String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+			if (path.endsWith("/query")) {
+				respond(exchange, 200, queryResults(body.isEmpty() ? new JsonObject() : JsonParser.parseString(body).getAsJsonObject()));
+				return;
+			}
+
+			synchronized (writeTimes) {
+				writeTimes.add(System.nanoTime());
+			}
+			int request = writes.incrementAndGet();
+			JsonObject json = JsonParser.parseString(body).getAsJsonObject();
+			if (isRejected(json)) {
+				respond(exchange, 400, error(400, "validation_error", "Titulo no valido"));
+			} else if (request % THROTTLE_EVERY == 0) {
+				throttled.incrementAndGet();
+				exchange.getResponseHeaders().add("Retry-After", "0.5");
+				respond(exchange, 429, error(429, "rate_limited", "Demasiadas peticiones"));
+			} else if (request % UNAVAILABLE_EVERY == 0) {
+				unavailable.incrementAndGet();
+				if ("POST".equals(exchange.getRequestMethod()) && path.equals("/v1/pages")) {
+					// El alta se aplica pero la respuesta no llega al cliente
+					createPage(json);
+				}
+				respond(exchange, 503, error(503, "service_unavailable", "No disponible"));
+			} else if ("POST".equals(exchange.getRequestMethod()) && path.equals("/v1/pages")) {
+				respond(exchange, 200, createPage(json));
+			} else if ("PATCH".equals(exchange.getRequestMethod()) && path.startsWith("/v1/pages/")) {
+				JsonObject page = pages.get(path.substring("/v1/pages/".length()));
+				if (page == null) {
+					respond(exchange, 404, error(404, "object_not_found", "No existe la pagina"));
+				} else {
+					respond(exchange, 200, updatePage(page, json));
+				}
+			} else {
+				respond(exchange, 404, error(404, "invalid_request_url", "Ruta desconocida"));
+			}
+		}
+	}
+
+	private static JsonObject createPage(JsonObject request) {
+		JsonObject page = new JsonObject();
+		String id = UUID.randomUUID().toString();
+		page.addProperty("object", "page");
+		page.addProperty("id", id);
+		page.addProperty("created_time", "2024-01-01T00:00:00.000Z");
+		page.addProperty("last_edited_time", "2024-01-01T00:00:00.000Z");
+		page.addProperty("archived", false);
+		page.add("parent", request.get("parent"));
+		page.add("properties", request.get("properties"));
+		pages.put(id, page);
+		return page;
+	}
+
+	private static synchronized JsonObject updatePage(JsonObject page, JsonObject request) {
+		JsonObject properties = page.getAsJsonObject("properties");
+		if (request.has("properties")) {
+			for (Map.Entry<String, JsonElement> property : request.getAsJsonObject("properties").entrySet()) {
+				properties.add(property.getKey(), property.getValue());
+			}
+		}
+		if (request.has("archived") && request.get("archived").getAsBoolean()) {
+			page.addProperty("archived", true);
+		}
+		return page;
+	}
+
+	// Solo se entiende el filtro por identificador; cualquier otra consulta devuelve todas las paginas
+	private static JsonObject queryResults(JsonObject request) {
+		String identifier = null;
+		JsonObject filter = request.getAsJsonObject("filter");
+		if (filter != null && filter.has("title")) {
+			identifier = filter.getAsJsonObject("title").get("equals").getAsString();
+		}
+		JsonArray results = new JsonArray();
+		for (JsonObject page : pages.values()) {
+			if (!page.get("archived").getAsBoolean() && (identifier == null || identifier.equals(identifierOf(page)))) {
+				results.add(page);
+			}
+		}
+		JsonObject list = new JsonObject();
+		list.addProperty("object", "list");
+		list.add("results", results);
+		list.addProperty("has_more", false);
+		return list;
+	}
+
+	private static JsonObject error(int status, String code, String message) {
+		JsonObject error = new JsonObject();
+		error.addProperty("object", "error");
+		error.addProperty("status", status);
+		error.addProperty("code", code);
+		error.addProperty("message", message);
+		return error;
+	}
+
+	private static void respond(HttpExchange exchange, int status, JsonObject body) throws IOException {
+		byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static boolean isRejected(JsonObject request) {
+		return titleOf(request.getAsJsonObject("properties")).equals(REJECTED);
+	}
+
+	private static String titleOf(JsonObject properties) {
+		if (properties == null || !properties.has("Title")) {
+			return "";
+		}
+		JsonArray text = properties.getAsJsonObject("Title").getAsJsonArray("rich_text");
+		return text.isEmpty() ? "" : text.get(0).getAsJsonObject().getAsJsonObject("text").get("content").getAsString();
+	}
+
+	private static String identifierOf(JsonObject page) {
+		return page.getAsJsonObject("properties").getAsJsonObject("Identifier").getAsJsonArray("title").get(0)
+				.getAsJsonObject().getAsJsonObject("text").get("content").getAsString();
+	}
+
+	private static boolean hasTitle(int identifier, String title) {
+		for (JsonObject page : pages.values()) {
+			if (identifierOf(page).equals(String.valueOf(identifier))) {
+				return titleOf(page.getAsJsonObject("properties")).equals(title);
+			}
+		}
+		return false;
+	}
+
+	private static long livePages() {
+		return pages.values().stream().filter(page -> !page.get("archived").getAsBoolean()).count();
+	}
+
+	// Paginas activas que repiten el identificador de otra
+	private static long duplicatePages() {
+		return livePages() - pages.values().stream()
+				.filter(page -> !page.get("archived").getAsBoolean())
+				.map(NotionPipelineStub::identifierOf)
+				.distinct()
+				.count();
+	}
+
+	private static Task task(int identifier, String title) {
+		return new Task(identifier, title, LocalDate.of(2024, 1, 1).plusDays(identifier % 365), "Contenido " + identifier, identifier % 5, 30, false);
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			failed.set(true);
+			System.out.println("FALLO: " + message);
+		}
+	}
+}
@@ -0,0 +1,260 @@
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import benchmark.TaskGenerator;
+import model.Task;
+import model.repository.BinaryRepository;
+import model.repository.RepositoryException;
+import model.repository.TaskQuery;
+
+/**
+ * Prueba de carga concurrente de {@link BinaryRepository}.
+ * <p>
+ * Comprueba con 64 hilos que las operaciones se comportan como si se ejecutaran una
+ * detras de otra en algun orden compatible con el tiempo real:
+ * </p>
+ * <ul>
+ *   <li>Cada hilo crea, modifica y elimina sus propias tareas y, tras cada escritura, lee
+ *       el repositorio y debe ver su efecto.</li>
+ *   <li>Todos los hilos añaden y eliminan las mismas pocas tareas: por cada una, las
+ *       altas y bajas con exito deben alternarse, y el estado final debe cuadrar con la
+ *       cuenta.</li>
+ *   <li>Los lectores nunca ven una instantanea incoherente (identificadores repetidos o
+ *       tamaños distintos entre la lista y sus vistas) ni una version anterior a otra ya vista.</li>
+ *   <li>{@code createTask} desde todos los hilos a la vez no repite identificadores.</li>
+ * </ul>
+ * <p>
+ * Despues mide el rendimiento de las lecturas con 1, 2, 4... hilos hasta el numero de
+ * procesadores, sin escrituras, para ver como escala.
+ * </p>
+ * <p>
+ * {@code gradle check} la ejecuta con la tarea {@code repositoryStress}, con menos
+ * operaciones por hilo. A mano:
+ * </p>
+ * <pre>
+ * javac -encoding UTF-8 -cp "lib/*" -sourcepath src:jmh/src/main/java -d out benchmark/RepositoryStress.java
+ * java -cp "out:lib/*" RepositoryStress [hilos] [operaciones por hilo]
+ * </pre>
+ */
+public class RepositoryStress {
+	private static final int SHARED_KEYS = 16;
+	// Las claves compartidas quedan fuera de los identificadores de las tareas iniciales y de cada hilo
+	private static final int SHARED_BASE = Integer.MAX_VALUE - SHARED_KEYS;
+	// Los identificadores de cada hilo empiezan en (hilo + 1) * ID_STRIDE
+	private static final int ID_STRIDE = 1_000_000;
+	private static final int READ_SECONDS = 2;
+
+	private static final AtomicBoolean failed = new AtomicBoolean();
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+		int operations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+		System.setProperty("user.home", Files.createTempDirectory("taskstress").toString());
+
+		BinaryRepository repository = new BinaryRepository();
+		for (Task task : TaskGenerator.generate(10_000, 1)) {
+			repository.addTask(task);
+		}
+
+		long start = System.nanoTime();
+		runCrud(repository, threads, operations);
+		runCreate(repository, threads, operations / 10);
+		System.out.printf("CRUD con %d hilos: %.1f s%n", threads, (System.nanoTime() - start) / 1e9);
+
+		runReads(repository);
+
+		if (failed.get()) {
+			System.out.println("FALLO");
+			System.exit(1);
+		}
+		System.out.println("OK");
+	}
+
+	private static void runCrud(BinaryRepository repository, int threads, int operations) throws Exception {
+		// Altas y bajas con exito de cada clave compartida, y su ultimo estado conocido
+		AtomicLongArray sharedAdds = new AtomicLongArray(SHARED_KEYS);
+		AtomicLongArray sharedRemoves = new AtomicLongArray(SHARED_KEYS);
+		List<Set<Integer>> owned = new ArrayList<>();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		CountDownLatch ready = new CountDownLatch(threads);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			Set<Integer> mine = new HashSet<>();
+			owned.add(mine);
+			futures.add(pool.submit(() -> {
+				Random random = new Random(thread);
+				ready.countDown();
+				ready.await();
+				long lastVersion = 0;
+				int nextID = (thread + 1) * ID_STRIDE;
+				for (int i = 0; i < operations; i++) {
+					int choice = random.nextInt(10);
+					if (choice < 3) {
+						// Tarea propia nueva: despues de añadirla debe verse
+						Task task = TaskGenerator.generate(nextID++, random);
+						repository.addTask(task);
+						mine.add(task.getIdentifier());
+						check(repository.getUsedIDs().contains(task.getIdentifier()), "no se ve una tarea recien añadida");
+					} else if (choice < 5 && !mine.isEmpty()) {
+						// Tarea propia modificada: debe leerse la nueva version
+						int identifier = mine.iterator().next();
+						Task task = TaskGenerator.generate(identifier, random);
+						repository.modifyTask(task);
+						check(repository.queryTasks(new TaskQuery().containing(task.getContent()).limit(Integer.MAX_VALUE))
+								.stream().anyMatch(found -> found == task), "no se ve una tarea recien modificada");
+					} else if (choice < 6 && !mine.isEmpty()) {
+						int identifier = mine.iterator().next();
+						mine.remove(identifier);
+						repository.removeTask(new Task(identifier));
+						check(!repository.getUsedIDs().contains(identifier), "se ve una tarea recien eliminada");
+					} else if (choice < 8) {
+						// Clave compartida: añadir solo puede tener exito si no estaba
+						int key = random.nextInt(SHARED_KEYS);
+						if (random.nextBoolean()) {
+							if (succeeds(() -> repository.addTask(TaskGenerator.generate(SHARED_BASE + key, random)))) {
+								sharedAdds.incrementAndGet(key);
+							}
+						} else if (succeeds(() -> repository.removeTask(new Task(SHARED_BASE + key)))) {
+							sharedRemoves.incrementAndGet(key);
+						}
+					} else {
+						// Lectura: instantanea coherente y version que no retrocede
+						long version = repository.getVersion();
+						check(version >= lastVersion, "la version retrocede");
+						lastVersion = version;
+						List<Task> all = repository.getAllTasks();
+						Set<Integer> ids = new HashSet<>();
+						for (Task task : all) {
+							check(ids.add(task.getIdentifier()), "identificador repetido en una instantanea");
+						}
+					}
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		pool.shutdown();
+
+		// Cada clave compartida: las altas y bajas con exito alternan empezando por un alta
+		Set<Integer> present = repository.getUsedIDs();
+		for (int key = 0; key < SHARED_KEYS; key++) {
+			long balance = sharedAdds.get(key) - sharedRemoves.get(key);
+			check(balance == (present.contains(SHARED_BASE + key) ? 1 : 0), "altas y bajas de la clave " + (SHARED_BASE + key) + " no cuadran: " + balance);
+		}
+		// Tareas propias: estan exactamente las que cada hilo no elimino
+		for (int t = 0; t < threads; t++) {
+			for (int identifier : owned.get(t)) {
+				check(present.contains(identifier), "falta la tarea " + identifier);
+			}
+		}
+		long expected = 10_000 + owned.stream().mapToLong(Set::size).sum();
+		long actual = present.stream().filter(id -> id < SHARED_BASE).count();
+		check(expected == actual, "se esperaban " + expected + " tareas y hay " + actual);
+		check(repository.getAllTasks().size() == present.size()
+				&& repository.getTasksSortedByDate().size() == present.size(), "la lista y sus vistas no coinciden");
+	}
+
+	private static void runCreate(BinaryRepository repository, int threads, int perThread) throws Exception {
+		int before = repository.getAllTasks().size();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<List<Integer>>> futures = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			futures.add(pool.submit(() -> {
+				Random random = new Random(-thread);
+				List<Integer> created = new ArrayList<>();
+				for (int i = 0; i < perThread; i++) {
+					Task task = TaskGenerator.generate(0, random);
+					repository.createTask(task);
+					created.add(task.getIdentifier());
+				}
+				return created;
+			}));
+		}
+		Set<Integer> ids = new HashSet<>();
+		for (Future<List<Integer>> future : futures) {
+			for (int identifier : future.get()) {
+				check(ids.add(identifier), "createTask repite el identificador " + identifier);
+			}
+		}
+		pool.shutdown();
+		check(repository.getAllTasks().size() == before + threads * perThread, "createTask pierde tareas");
+	}
+
+	private static void runReads(BinaryRepository repository) throws Exception {
+		TaskQuery page = new TaskQuery().priorityBetween(4, 5).sortBy(TaskQuery.SortKey.DATE).limit(50);
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.printf("%nLecturas sin escrituras (%d procesadores)%n", cores);
+		System.out.printf("%-6s %16s %16s%n", "hilos", "getAllTasks/s", "queryTasks/s");
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			double all = readThroughput(threads, () -> repository.getAllTasks().size());
+			double query = readThroughput(threads, () -> repository.queryTasks(page).size());
+			System.out.printf("%-6d %16.0f %16.0f%n", threads, all, query);
+		}
+	}
+
+	@FunctionalInterface
+	private interface Read {
+		int run() throws RepositoryException;
+	}
+
+	private static double readThroughput(int threads, Read read) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		AtomicBoolean stop = new AtomicBoolean();
+		List<Future<Long>> futures = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			futures.add(pool.submit(() -> {
+				long count = 0;
+				long sink = 0;
+				while (!stop.get()) {
+					sink += read.run();
+					count++;
+				}
+				return sink == -1 ? 0 : count;
+			}));
+		}
+		TimeUnit.SECONDS.sleep(READ_SECONDS);
+		stop.set(true);
+		long total = 0;
+		for (Future<Long> future : futures) {
+			total += future.get();
+		}
+		pool.shutdown();
+		return total / (double) READ_SECONDS;
+	}
+
+	@FunctionalInterface
+	private interface Write {
+		void run() throws RepositoryException;
+	}
+
+	private static boolean succeeds(Write write) {
+		try {
+			write.run();
+			return true;
+		} catch (RepositoryException e) {
+			return false;
+		}
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition && failed.compareAndSet(false, true)) {
+			System.out.println("Error: " + message);
+		}
+	}
+}
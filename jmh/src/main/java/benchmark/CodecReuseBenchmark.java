@@ -0,0 +1,89 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import model.Task;
+import model.exporter.TaskCodecs;
+import model.exporter.TaskTypeAdapter;
+
+/**
+ * Mide el coste por tarea de crear los formateadores y serializadores en cada uso frente
+ * a reutilizar los de {@link TaskCodecs}, exportando el mismo lote de tareas.
+ * <p>
+ * Los resultados son por tarea; con {@code -prof gc} se ve tambien la memoria que
+ * reserva cada formateador o {@link Gson} creado de nuevo.
+ * </p>
+ * <pre>
+ * gradle :jmh:jmh -Pjmh="CodecReuseBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecReuseBenchmark {
+	private static final int TASKS = 1_000;
+
+	/**
+	 * Si se reutilizan los formateadores y el {@link Gson} de {@link TaskCodecs} o se
+	 * crean para cada tarea.
+	 */
+	@Param({ "false", "true" })
+	public boolean shared;
+
+	private List<Task> tasks;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		tasks = TaskGenerator.generate(TASKS, 42);
+	}
+
+	// Con shared=false, como Task.toDelimitedString antes de compartir el formateador
+	@Benchmark
+	@OperationsPerInvocation(TASKS)
+	public int csv() {
+		StringBuilder out = new StringBuilder();
+		for (Task task : tasks) {
+			DateTimeFormatter dateFormat = shared ? TaskCodecs.DATE_FORMATTER : DateTimeFormatter.ofPattern("yyyy-MM-dd");
+			out.append(task.getIdentifier()).append(';').append(task.getTitle()).append(';')
+				.append(dateFormat.format(task.getDate())).append(';').append(task.getContent()).append('\n');
+		}
+		return out.length();
+	}
+
+	// Con shared=false, un Gson nuevo por cada tarea, como al serializar tareas sueltas
+	@Benchmark
+	@OperationsPerInvocation(TASKS)
+	public int json() throws IOException {
+		StringWriter out = new StringWriter();
+		for (Task task : tasks) {
+			Gson gson = shared ? TaskCodecs.GSON : new GsonBuilder().registerTypeAdapter(Task.class, new TaskTypeAdapter()).create();
+			gson.toJson(task, Task.class, out);
+			out.write('\n');
+		}
+		return out.getBuffer().length();
+	}
+}
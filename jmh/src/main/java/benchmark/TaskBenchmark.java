@@ -0,0 +1,308 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Task;
+import model.TaskEvent;
+import model.TaskObserver;
+import model.exporter.ExporterFactory;
+import model.exporter.IExporter;
+import model.exporter.TaskCodecs;
+import model.repository.BinaryRepository;
+import model.repository.IdAllocator;
+import model.repository.SequentialIdAllocator;
+import model.repository.TaskQuery;
+import model.repository.TimeOrderedIdAllocator;
+import view.ViewUtils;
+
+/**
+ * Pruebas de rendimiento del repositorio binario, los exportadores, las consultas
+ * ordenadas, la notificacion a los observadores y el pintado de filas de la vista, para
+ * distintos tamaños de lista.
+ * <p>
+ * Cada prueba se mide en rendimiento (operaciones por milisegundo) y por muestreo, que
+ * da los percentiles de latencia. Con {@code -prof gc}, que {@code gradle :jmh:jmh}
+ * activa siempre, JMH añade la memoria reservada por operacion y las recolecciones.
+ * Los ficheros se escriben en un directorio temporal que hace de {@code user.home}, asi
+ * que no se tocan las tareas del usuario.
+ * </p>
+ * <pre>
+ * gradle :jmh:jmh -Pjmh="TaskBenchmark"
+ * gradle :jmh:jmh -Pjmh="TaskBenchmark.csv -p size=10000000 -jvmArgs -Xmx8g"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskBenchmark {
+	// Filas que se pintan en cada invocacion de la vista
+	private static final int VIEW_ROWS = 1_000;
+	private static final int MAX_CONTENT_WIDTH = 40;
+
+	/**
+	 * Numero de tareas; admite hasta 10000000 con memoria suficiente.
+	 */
+	@Param({ "1000", "10000", "100000" })
+	public int size;
+
+	private Path home;
+	private List<Task> tasks;
+	private BinaryRepository repository;
+	private final Random random = new Random(7);
+	private IdAllocator sequential;
+	private IdAllocator timeOrdered;
+	private final TaskQuery page = new TaskQuery().priorityBetween(4, 5).completed(false).sortBy(TaskQuery.SortKey.DATE).limit(50);
+	private IExporter csv;
+	private IExporter json;
+	private TaskObserver observer;
+	private Set<Integer> ids;
+	private List<String[]> rows;
+	private int[] columnWidths;
+	private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		// Los repositorios y exportadores leen la ruta del usuario al crearse
+		home = Files.createTempDirectory("taskbench");
+		System.setProperty("user.home", home.toString());
+
+		tasks = TaskGenerator.generate(size, 42);
+		repository = new BinaryRepository();
+		for (Task task : tasks) {
+			repository.addTask(task);
+		}
+		repository.saveTasks();
+
+		sequential = new SequentialIdAllocator(home.resolve("bench.ids"));
+		timeOrdered = new TimeOrderedIdAllocator();
+
+		// Cada exportador tiene ya su fichero para las pruebas de importacion
+		csv = ExporterFactory.getExporter("csv");
+		csv.exportTasks(tasks);
+		json = ExporterFactory.getExporter("json");
+		json.exportTasks(tasks);
+
+		observer = (TaskObserver) ExporterFactory.getExporter("csv");
+		ids = repository.getUsedIDs();
+
+		rows = new ArrayList<>(VIEW_ROWS);
+		for (int i = 0; i < VIEW_ROWS; i++) {
+			Task task = tasks.get(i % size);
+			rows.add(new String[] {
+				String.valueOf(task.getIdentifier()), task.getTitle(), task.getDate().format(TaskCodecs.DATE_FORMATTER),
+				task.getContent(), String.valueOf(task.getPriority()), String.valueOf(task.getEstimatedDuration()),
+				task.isCompleted() ? "Si" : "No"
+			});
+		}
+		columnWidths = ViewUtils.calculateColumnWidths(ViewUtils.BASE_TERMINAL_WIDTH * 2, MAX_CONTENT_WIDTH);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		deleteRecursively(home);
+	}
+
+	/**
+	 * Repositorio vacio para cada invocacion de las pruebas de fusion.
+	 */
+	@State(Scope.Thread)
+	public static class EmptyRepository {
+		BinaryRepository repository;
+
+		@Setup(Level.Invocation)
+		public void setUp() {
+			repository = new BinaryRepository();
+		}
+	}
+
+	/**
+	 * Directorio de exportacion vacio para cada invocacion de las pruebas de exportacion.
+	 */
+	@State(Scope.Thread)
+	public static class EmptyExportDirectory {
+		@Setup(Level.Invocation)
+		public void setUp(TaskBenchmark benchmark) throws IOException {
+			deleteRecursively(benchmark.home.resolve("Tasks"));
+		}
+	}
+
+	/**
+	 * Vacia la cache de identificadores de los exportadores, para que cada importacion
+	 * devuelva todas las tareas del fichero.
+	 */
+	@State(Scope.Thread)
+	public static class EmptyImportCache {
+		@Setup(Level.Invocation)
+		public void setUp(TaskBenchmark benchmark) {
+			((TaskObserver) benchmark.csv).update(Set.of());
+			((TaskObserver) benchmark.json).update(Set.of());
+		}
+	}
+
+	// Repositorio binario
+
+	@Benchmark
+	public int binaryLoad() throws Exception {
+		BinaryRepository loaded = new BinaryRepository();
+		loaded.loadTasks();
+		return loaded.getUsedIDs().size();
+	}
+
+	// Un cambio antes de cada guardado para que se escriba la instantanea
+	@Benchmark
+	public void binarySave() throws Exception {
+		repository.modifyTask(tasks.get(random.nextInt(size)));
+		repository.saveTasks();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(3)
+	public void binaryCrud() throws Exception {
+		Task task = TaskGenerator.generate(0, random);
+		repository.createTask(task);
+		task.setCompleted(true);
+		repository.modifyTask(task);
+		repository.removeTask(task);
+	}
+
+	// Fusion de todas las tareas en un repositorio vacio: una a una frente a un lote
+
+	@Benchmark
+	public void mergeSingle(EmptyRepository target) throws Exception {
+		for (Task task : tasks) {
+			target.repository.addTask(task);
+		}
+	}
+
+	@Benchmark
+	public int mergeBulk(EmptyRepository target) throws Exception {
+		return target.repository.addAll(tasks).getSucceeded();
+	}
+
+	// Generadores de identificadores, con la marca de agua en disco en el secuencial
+
+	@Benchmark
+	public int idsSequential() throws Exception {
+		return sequential.next();
+	}
+
+	@Benchmark
+	public int idsTimeOrdered() throws Exception {
+		return timeOrdered.next();
+	}
+
+	// Consultas ordenadas
+
+	@Benchmark
+	public Task queryPriority() throws Exception {
+		return repository.getTasksSortedByPriority().get(size / 2);
+	}
+
+	@Benchmark
+	public Task queryDate() throws Exception {
+		return repository.getTasksSortedByDate().get(size / 2);
+	}
+
+	@Benchmark
+	public int queryCompletion() throws Exception {
+		return repository.getTasksSortedByCompletion().size();
+	}
+
+	@Benchmark
+	public List<Task> queryPage() throws Exception {
+		return repository.queryTasks(page);
+	}
+
+	// Exportadores: exportar sobre un directorio vacio e importar el fichero entero
+
+	@Benchmark
+	public void csvExport(EmptyExportDirectory directory) throws Exception {
+		csv.exportTasks(tasks);
+	}
+
+	@Benchmark
+	public List<Task> csvImport(EmptyImportCache cache) throws Exception {
+		return csv.importTasks();
+	}
+
+	@Benchmark
+	public void jsonExport(EmptyExportDirectory directory) throws Exception {
+		json.exportTasks(tasks);
+	}
+
+	@Benchmark
+	public List<Task> jsonImport(EmptyImportCache cache) throws Exception {
+		return json.importTasks();
+	}
+
+	// Observadores: sincronizacion completa frente a un evento por cambio
+
+	@Benchmark
+	public void observerUpdate() {
+		observer.update(ids);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public void observerEvent() {
+		Task task = tasks.get(random.nextInt(size));
+		observer.taskChanged(TaskEvent.removed(task));
+		observer.taskChanged(TaskEvent.created(task));
+	}
+
+	// Vista: la salida se descarta para medir solo el formateo
+
+	@Benchmark
+	@OperationsPerInvocation(VIEW_ROWS)
+	public void viewPrintWrappedRow() {
+		PrintStream out = System.out;
+		System.setOut(discard);
+		try {
+			for (String[] row : rows) {
+				ViewUtils.printWrappedRow(row, columnWidths, MAX_CONTENT_WIDTH);
+			}
+		} finally {
+			System.setOut(out);
+		}
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		if (!Files.exists(path)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(path)) {
+			for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(p);
+			}
+		}
+	}
+}
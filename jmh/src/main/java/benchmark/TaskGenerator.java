@@ -0,0 +1,53 @@
+package benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import model.Task;
+
+/**
+ * Genera tareas sinteticas reproducibles para las pruebas de rendimiento.
+ * <p>
+ * Los valores siguen una distribucion parecida a la de uso real: titulos cortos,
+ * contenidos de longitud variable (algunos lo bastante largos para partirse en varias
+ * lineas en la vista), fechas repartidas en dos años y una de cada cuatro completada.
+ * </p>
+ */
+public final class TaskGenerator {
+	private static final String[] WORDS = {
+		"revisar", "informe", "reunion", "cliente", "enviar", "factura", "preparar", "presentacion",
+		"llamar", "proveedor", "actualizar", "documentacion", "corregir", "error", "despliegue", "pruebas"
+	};
+	private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+	private TaskGenerator() {
+	}
+
+	/**
+	 * @return {@code count} tareas con identificadores de 1 a {@code count}, siempre las
+	 *         mismas para la misma semilla.
+	 */
+	public static List<Task> generate(int count, long seed) {
+		Random random = new Random(seed);
+		List<Task> tasks = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			tasks.add(generate(i, random));
+		}
+		return tasks;
+	}
+
+	public static Task generate(int identifier, Random random) {
+		return new Task(identifier, sentence(random, 4), START.plusDays(random.nextInt(730)), sentence(random, random.nextInt(8) == 0 ? 40 : 12),
+				1 + random.nextInt(5), 15 * (1 + random.nextInt(16)), random.nextInt(4) == 0);
+	}
+
+	private static String sentence(Random random, int maxWords) {
+		StringBuilder text = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+		for (int i = 1 + random.nextInt(maxWords); i > 1; i--) {
+			text.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return text.toString();
+	}
+}
@@ -2,6 +2,7 @@ import controller.Controller;
 import model.Model;
 import model.repository.BinaryRepository;
 import model.repository.IRepository;
+import model.repository.MappedRepository;
 import model.repository.NotionRepository;
 import view.InteractiveView;
 
@@ -15,6 +16,14 @@ public class TaskManager {
 					case "bin":
 						repository = new BinaryRepository();
 						break;
+					case "journal":
+						// Binario con diario: cada cambio se persiste al momento
+						repository = new BinaryRepository(true);
+						break;
+					case "mmap":
+						// Fichero proyectado en memoria con actualizaciones en su sitio
+						repository = new MappedRepository();
+						break;
 					case "notion":
 						if (args.length == 4) {
 							String apiToken = args[2];
@@ -18,6 +18,9 @@ import view.InteractiveView;
 public class Controller {
 
 	/* Atributos */
+	// Identificadores omitidos que se muestran como maximo en el aviso de importacion
+	private static final int MAX_SKIPPED_IDS_SHOWN = 10;
+
 	private Model model;
 	private InteractiveView view;
 
@@ -48,7 +51,7 @@ public class Controller {
 	}
 
 	/**
-	 * Finaliza la app guardando los datos del modelo.
+	 * Finaliza la app guardando los datos del modelo y liberando el repositorio.
 	 */
 	public void end() {
 		try {
@@ -57,6 +60,11 @@ public class Controller {
 			view.showErrorMessage(e.getMessage());
 			view.end();
 		}
+		try {
+			model.close();
+		} catch (RepositoryException e) {
+			view.showErrorMessage(e.getMessage());
+		}
 	}
 
 	/*--------------------------------------------------------------------------------------------------------------------*/
@@ -74,6 +82,7 @@ public class Controller {
 		} catch (RepositoryException e) {
 			view.showErrorMessage(e.getMessage());
 		}
+		reportObserverFailure();
 	}
 
 	/**
@@ -87,6 +96,7 @@ public class Controller {
 		} catch (RepositoryException e) {
 			view.showErrorMessage(e.getMessage());
 		}
+		reportObserverFailure();
 	}
 
 	/**
@@ -100,6 +110,7 @@ public class Controller {
 		} catch (RepositoryException e) {
 			view.showErrorMessage(e.getMessage());
 		}
+		reportObserverFailure();
 	}
 
 	/**
@@ -113,6 +124,7 @@ public class Controller {
 		} catch (RepositoryException e) {
 			view.showErrorMessage(e.getMessage());
 		}
+		reportObserverFailure();
 	}
 
 	/**
@@ -157,6 +169,17 @@ public class Controller {
 		}
 	}
 
+	/**
+	 * Muestra el error de un observador en la entrega de cambios anteriores, si lo hay.
+	 * Los cambios se entregan en segundo plano, asi que el error puede ser de una operacion previa.
+	 */
+	private void reportObserverFailure() {
+		RuntimeException failure = model.takeObserverFailure();
+		if (failure != null) {
+			view.showErrorMessage("Error al notificar cambios de tareas: " + failure.getMessage());
+		}
+	}
+
 	/*--------------------------------------------------------------------------------------------------------------------*/
 	/* Exportacion e Importacion de Tareas */
 	/*--------------------------------------------------------------------------------------------------------------------*/
@@ -193,6 +216,25 @@ public class Controller {
 		}
 	}
 
+	/**
+	 * Aviso con las tareas que la ultima importacion omitio porque ya existian: el
+	 * numero total y solo los primeros identificadores, para no llenar la pantalla.
+	 *
+	 * @return el aviso, o {@code null} si no se omitio ninguna.
+	 */
+	public String getSkippedImportMessage() {
+		List<Integer> skippedIDs = model.getSkippedImportIDs();
+		if (skippedIDs.isEmpty()) {
+			return null;
+		}
+		String message = "Se omitieron " + skippedIDs.size() + " tareas que ya existen: "
+				+ skippedIDs.subList(0, Math.min(skippedIDs.size(), MAX_SKIPPED_IDS_SHOWN));
+		if (skippedIDs.size() > MAX_SKIPPED_IDS_SHOWN) {
+			message += " y " + (skippedIDs.size() - MAX_SKIPPED_IDS_SHOWN) + " mas";
+		}
+		return message;
+	}
+
 	/**
 	 * Fusiona las tareas importadas con las tareas existentes en el modelo.
 	 * Si se indica que se debe aplicar la fusion, las tareas serán combinadas, de
@@ -224,6 +266,10 @@ public class Controller {
 	public void mergeImportedTasks(boolean applyMerge) {
 		try {
 			model.mergeTasks(applyMerge);
+			String skipped = getSkippedImportMessage();
+			if (skipped != null) {
+				view.showMessage(skipped);
+			}
 			if (applyMerge) {
 				view.showMessage("Tareas fusionadas con exito.");
 			} else {
@@ -3,17 +3,22 @@ package model;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import model.exporter.ExporterException;
 import model.exporter.ExporterFactory;
 import model.exporter.IExporter;
+import model.repository.BulkResult;
 import model.repository.IRepository;
 import model.repository.RepositoryException;
 
 public class Model {
 	private IRepository repository;
 	private IExporter exporter;
-	private List<TaskObserver> observers = new ArrayList<>();
+	// El hilo de entrega de eventos la recorre mientras se registran observadores
+	private List<TaskObserver> observers = new CopyOnWriteArrayList<>();
+	// Entrega los cambios en segundo plano, agrupando las rafagas
+	private final TaskEventDispatcher dispatcher = new TaskEventDispatcher(observers);
 
 	public Model(IRepository repository) {
 		this.repository = repository;
@@ -29,13 +34,57 @@ public class Model {
 		observers.remove(observer);
 	}
 	
+	/**
+	 * Sincronizacion completa: envia a todos los observadores el conjunto de
+	 * identificadores del repositorio. Los cambios individuales se notifican como
+	 * {@link TaskEvent}, sin copiar el conjunto.
+	 * <p>
+	 * Antes se entregan los eventos pendientes, para que ninguno llegue despues y se
+	 * aplique sobre el conjunto nuevo.
+	 * </p>
+	 */
 	public void notifyObservers() throws RepositoryException {
+		dispatcher.flush();
 		Set<Integer> taskIDs = repository.getUsedIDs();
 		for (TaskObserver observer : observers) {
 			observer.update(taskIDs);
 		}
 	}
 
+	// Los eventos se entregan en el hilo del distribuidor, sin esperar a los observadores
+
+	private void notifyObservers(TaskEvent event) {
+		dispatcher.publish(event);
+	}
+
+	private void notifyObservers(List<TaskEvent> events) {
+		dispatcher.publishAll(events);
+	}
+
+	/**
+	 * Espera a que todos los observadores hayan recibido los cambios hechos hasta ahora.
+	 */
+	public void flushEvents() {
+		dispatcher.flush();
+	}
+
+	/**
+	 * Devuelve el ultimo error de un observador al recibir cambios, que se entregan en
+	 * segundo plano, y lo da por comunicado.
+	 *
+	 * @return el error, o {@code null} si ningun observador ha fallado desde la ultima llamada.
+	 */
+	public RuntimeException takeObserverFailure() {
+		return dispatcher.takeFailure();
+	}
+
+	/**
+	 * @return el distribuidor de eventos, para ajustar su ventana o consultar sus metricas.
+	 */
+	public TaskEventDispatcher getEventDispatcher() {
+		return dispatcher;
+	}
+
 	public void loadData() throws RepositoryException{
 		repository.loadTasks();
 	}
@@ -44,23 +93,30 @@ public class Model {
 		repository.saveTasks();
 	}
 
+	/**
+	 * Libera los recursos del repositorio al terminar, despues de guardar los datos.
+	 */
+	public void close() throws RepositoryException {
+		repository.close();
+	}
+
 	public void createTask(Task t) throws RepositoryException {
 		repository.createTask(t);
-		notifyObservers();
+		notifyObservers(TaskEvent.created(t));
 	}
 	public void addTask(Task t) throws RepositoryException {
 		repository.addTask(t);
-		notifyObservers();
+		notifyObservers(TaskEvent.created(t));
 	}
 	
 	public void removeTask(Task t) throws RepositoryException {
 		repository.removeTask(t);
-		notifyObservers();
+		notifyObservers(TaskEvent.removed(t));
 	}
 	
 	public void modifyTask(Task t) throws RepositoryException {
 		repository.modifyTask(t);
-		notifyObservers();
+		notifyObservers(TaskEvent.modified(t));
 	}
 
 	public Set<Integer> getUsedIDs() throws RepositoryException {
@@ -80,40 +136,74 @@ public class Model {
 	}
 
 	public void setExporter(String format) throws ExporterException {
-		this.exporter = ExporterFactory.getExporter(format);
+		useExporter(ExporterFactory.getExporter(format));
 	}
 
 	public void setImporter(String format) throws ExporterException {
-		this.exporter = ExporterFactory.getExporter(format);
+		useExporter(ExporterFactory.getExporter(format));
 	}
 
+	// El exportador observa el repositorio: se sincroniza una vez al elegirlo y despues
+	// recibe solo los cambios
+	private void useExporter(IExporter newExporter) throws ExporterException {
+		if (exporter instanceof TaskObserver) {
+			removeObserver((TaskObserver) exporter);
+		}
+		exporter = newExporter;
+		if (newExporter instanceof TaskObserver) {
+			TaskObserver observer = (TaskObserver) newExporter;
+			// Los eventos pendientes ya estan incluidos en el conjunto inicial
+			dispatcher.flush();
+			try {
+				observer.update(repository.getUsedIDs());
+			} catch (RepositoryException e) {
+				throw new ExporterException("Error: No se pudieron obtener los identificadores de las tareas", e);
+			}
+			addObserver(observer);
+		}
+	}
+
+	// El exportador usa su cache de identificadores: debe tener todos los cambios entregados
+
 	public void exportTasks() throws ExporterException, RepositoryException {
+		dispatcher.flush();
 		this.exporter.exportTasks(repository.getTasksSortedByDate());
 	}
 
 	public List<Task> getImportedTasks() throws ExporterException {
+		dispatcher.flush();
 		return exporter.importTasks();
 	}
 
+	// Tareas del fichero que la ultima importacion no devolvio porque ya existian
+	public List<Integer> getSkippedImportIDs() {
+		return exporter == null ? List.of() : exporter.getSkippedIDs();
+	}
+
 	public void mergeTasks(List<Task> importedTasks, boolean applyMerge) throws RepositoryException {
 		if (applyMerge) {
-			// Lista para almacenar errores durante la fusion
-			List<RepositoryException> errors = new ArrayList<>();
-			
-			for (Task importedTask : importedTasks) {
-				try {
-					repository.addTask(importedTask);
-				} catch (RepositoryException e) {
-					// Registrar el error y continuar con las demas tareas
-					errors.add(new RepositoryException("Error al agregar la tarea con ID " + importedTask.getIdentifier() + ": " + e.getMessage(), e));
+			// Todas las tareas se añaden en un unico lote; las que fallan no impiden el resto
+			BulkResult result = repository.addAll(importedTasks);
+
+			// Las tareas añadidas se notifican juntas
+			List<TaskEvent> events = new ArrayList<>(result.getSucceeded());
+			for (int row = 0; row < result.getTotal(); row++) {
+				if (result.getOutcome(row) == BulkResult.Outcome.ADDED) {
+					events.add(TaskEvent.created(importedTasks.get(row)));
 				}
 			}
+			notifyObservers(events);
 
 			// Si hubo errores, lanzar una excepcion que los contenga todos
-			if (!errors.isEmpty()) {
+			if (!result.isSuccess()) {
 				StringBuilder errorMessage = new StringBuilder("Se encontraron errores durante la fusion de tareas:\n");
-				for (RepositoryException error : errors) {
-					errorMessage.append("- ").append(error.getMessage()).append("\n");
+				for (int row : result.getFailedRows()) {
+					Task importedTask = importedTasks.get(row);
+					errorMessage.append("- Error al agregar la tarea");
+					if (importedTask != null) {
+						errorMessage.append(" con ID ").append(importedTask.getIdentifier());
+					}
+					errorMessage.append(": ").append(result.getError(row)).append("\n");
 				}
 				throw new RepositoryException(errorMessage.toString());
 			}
@@ -121,29 +211,8 @@ public class Model {
 	}
 
 	public void mergeTasks(boolean applyMerge) throws ExporterException, RepositoryException {
-		List<Task> importedTasks = exporter.importTasks();
-		if (applyMerge) {
-			// Lista para almacenar errores durante la fusion
-			List<RepositoryException> errors = new ArrayList<>();
-			
-			for (Task importedTask : importedTasks) {
-				try {
-					repository.addTask(importedTask);
-				} catch (RepositoryException e) {
-					// Registrar el error y continuar con las demas tareas
-					errors.add(new RepositoryException("Error al agregar la tarea con ID " + importedTask.getIdentifier() + ": " + e.getMessage(), e));
-				}
-			}
-
-			// Si hubo errores, lanzar una excepcion que los contenga todos
-			if (!errors.isEmpty()) {
-				StringBuilder errorMessage = new StringBuilder("Se encontraron errores durante la fusion de tareas:\n");
-				for (RepositoryException error : errors) {
-					errorMessage.append("- ").append(error.getMessage()).append("\n");
-				}
-				throw new RepositoryException(errorMessage.toString());
-			}
-		}
+		dispatcher.flush();
+		mergeTasks(exporter.importTasks(), applyMerge);
 	}
 
 	public IRepository getRepository() {
@@ -2,7 +2,8 @@ package model;
 
 import java.io.Serializable;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+
+import model.exporter.TaskCodecs;
 
 public class Task implements Serializable {
 	public static final long serialVerisionUID = 1L;
@@ -43,10 +44,9 @@ public class Task implements Serializable {
 
 	/* Metodos */
 	public String toDelimitedStringOLD(String delimiter) {
-		DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 		return escapeField(String.valueOf(identifier)) + delimiter
 			+ escapeField(title) + delimiter
-			+ escapeField(date.format(dateFormatter)) + delimiter
+			+ escapeField(date.format(TaskCodecs.DATE_FORMATTER)) + delimiter
 			+ escapeField(content) + delimiter
 			+ escapeField(String.valueOf(priority)) + delimiter
 			+ escapeField(String.valueOf(estimatedDuration)) + delimiter
@@ -54,8 +54,7 @@ public class Task implements Serializable {
 	}
 
 	public String toDelimitedString(String delimiter) {
-		DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-		return identifier + delimiter + title + delimiter + dateFormat.format(date) + delimiter + content + delimiter + priority + delimiter + estimatedDuration + delimiter + completed;
+		return identifier + delimiter + title + delimiter + TaskCodecs.DATE_FORMATTER.format(date) + delimiter + content + delimiter + priority + delimiter + estimatedDuration + delimiter + completed;
 	}
 
 	private String escapeField(String field) {
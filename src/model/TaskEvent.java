@@ -0,0 +1,68 @@
+package model;
+
+/**
+ * Cambio de una unica tarea del repositorio, notificado a los {@link TaskObserver}.
+ * <p>
+ * Cada evento lleva el tipo de cambio, el identificador afectado y la tarea tal y como
+ * se paso al repositorio, de modo que los observadores pueden mantener sus caches sin
+ * volver a pedir el conjunto completo de identificadores.
+ * </p>
+ */
+public final class TaskEvent {
+	/**
+	 * Tipo de cambio de la tarea.
+	 */
+	public enum Type {
+		/** La tarea se ha creado o añadido. */
+		CREATED,
+		/** La tarea ya existia y se han cambiado sus datos. */
+		MODIFIED,
+		/** La tarea se ha eliminado. */
+		REMOVED
+	}
+
+	private final Type type;
+	private final int identifier;
+	private final Task task;
+
+	private TaskEvent(Type type, Task task) {
+		this.type = type;
+		this.identifier = task.getIdentifier();
+		this.task = task;
+	}
+
+	public static TaskEvent created(Task task) {
+		return new TaskEvent(Type.CREATED, task);
+	}
+
+	public static TaskEvent modified(Task task) {
+		return new TaskEvent(Type.MODIFIED, task);
+	}
+
+	/**
+	 * @param task la tarea eliminada; puede contener solo el identificador.
+	 */
+	public static TaskEvent removed(Task task) {
+		return new TaskEvent(Type.REMOVED, task);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return el identificador de la tarea en el momento del cambio.
+	 */
+	public int getIdentifier() {
+		return identifier;
+	}
+
+	public Task getTask() {
+		return task;
+	}
+
+	@Override
+	public String toString() {
+		return type + " " + identifier;
+	}
+}
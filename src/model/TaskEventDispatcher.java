@@ -0,0 +1,411 @@
+package model;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Entrega los {@link TaskEvent} a los observadores en un hilo propio, para que un
+ * observador lento no retrase a quien modifica las tareas.
+ * <p>
+ * Los eventos se encolan y el hilo de entrega espera una ventana de tiempo desde el mas
+ * antiguo antes de enviarlos, de modo que una rafaga de cambios llega como un unico
+ * lote. Dentro de la cola, los eventos de una misma tarea se combinan en uno solo: una
+ * tarea creada y modificada llega como creada con sus ultimos datos, y una tarea creada
+ * y eliminada antes de la entrega no llega.
+ * </p>
+ * <p>
+ * Quien necesite que los observadores esten al dia (por ejemplo, antes de exportar)
+ * puede llamar a {@link #flush()}, que entrega lo pendiente sin esperar a la ventana.
+ * </p>
+ */
+public final class TaskEventDispatcher {
+	public static final Duration DEFAULT_WINDOW = Duration.ofMillis(5);
+
+	private final List<TaskObserver> observers;
+	private final ReentrantLock lock = new ReentrantLock();
+	// Hay eventos nuevos o alguien espera la entrega
+	private final Condition available = lock.newCondition();
+	// Se ha entregado un lote
+	private final Condition delivered = lock.newCondition();
+	private volatile long windowNanos = DEFAULT_WINDOW.toNanos();
+
+	// Todo lo siguiente se protege con 'lock'
+	// Eventos pendientes ya combinados, por identificador y en orden de llegada
+	private Map<Integer, TaskEvent> pending = new LinkedHashMap<>();
+	// Instante (System.nanoTime) en que llego el evento pendiente mas antiguo
+	private long pendingSince;
+	// Numero de eventos publicados y de los que ya han pasado por una entrega
+	private long published;
+	private long completed;
+	private int flushRequests;
+	private Thread worker;
+
+	// Metricas
+	private int maxQueueDepth;
+	private long deliveredEvents;
+	private long batches;
+	private long lastLagNanos;
+	private long maxLagNanos;
+	private long observerFailures;
+	// Ultimo error de un observador aun no recogido con takeFailure
+	private RuntimeException unreportedFailure;
+
+	/**
+	 * @param observers la lista de observadores a notificar; debe poder recorrerse
+	 *                  mientras otro hilo la modifica.
+	 */
+	TaskEventDispatcher(List<TaskObserver> observers) {
+		this.observers = observers;
+	}
+
+	/**
+	 * Cambia la ventana de agrupacion. Con {@link Duration#ZERO} cada evento se entrega
+	 * en cuanto el hilo de entrega queda libre.
+	 *
+	 * @throws IllegalArgumentException si la ventana es negativa.
+	 */
+	public void setWindow(Duration window) {
+		if (window.isNegative()) {
+			throw new IllegalArgumentException("Error: La ventana de agrupacion no puede ser negativa");
+		}
+		windowNanos = window.toNanos();
+	}
+
+	public Duration getWindow() {
+		return Duration.ofNanos(windowNanos);
+	}
+
+	/**
+	 * Encola un evento para su entrega.
+	 */
+	void publish(TaskEvent event) {
+		lock.lock();
+		try {
+			enqueue(event);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Encola varios eventos, en orden, para entregarlos en el mismo lote.
+	 */
+	void publishAll(List<TaskEvent> events) {
+		if (events.isEmpty()) {
+			return;
+		}
+		lock.lock();
+		try {
+			for (TaskEvent event : events) {
+				enqueue(event);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Espera a que se entreguen todos los eventos publicados antes de la llamada. Si el
+	 * hilo se interrumpe, vuelve enseguida conservando la interrupcion.
+	 *
+	 * @throws IllegalStateException si el hilo de entrega termino con un lote a medio entregar.
+	 */
+	public void flush() {
+		try {
+			awaitDelivery(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Como {@link #flush()}, pero con un tiempo maximo de espera.
+	 *
+	 * @return {@code false} si se agoto el tiempo con eventos aun sin entregar.
+	 * @throws IllegalStateException si el hilo de entrega termino con un lote a medio
+	 *                               entregar; el siguiente evento publicado lo vuelve a arrancar.
+	 */
+	public boolean awaitDelivery(long timeout, TimeUnit unit) throws InterruptedException {
+		lock.lock();
+		try {
+			// Un observador que espera a su propia entrega se bloquearia para siempre
+			if (Thread.currentThread() == worker) {
+				return completed >= published;
+			}
+			long target = published;
+			long remaining = unit.toNanos(timeout);
+			flushRequests++;
+			try {
+				available.signal();
+				while (completed < target) {
+					if (worker == null) {
+						// Si quedan eventos en cola basta con otro hilo; si no, se perdio el lote en curso
+						if (pending.isEmpty()) {
+							throw new IllegalStateException("Error: El hilo de entrega de eventos termino sin entregar "
+									+ (target - completed) + " eventos");
+						}
+						startWorker();
+					}
+					if (remaining <= 0) {
+						return false;
+					}
+					remaining = delivered.awaitNanos(remaining);
+				}
+				return true;
+			} finally {
+				flushRequests--;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return el estado actual de la cola y de las entregas.
+	 */
+	public Metrics getMetrics() {
+		lock.lock();
+		try {
+			return new Metrics(pending.size(), maxQueueDepth, published, deliveredEvents, batches, lastLagNanos, maxLagNanos,
+					observerFailures);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Devuelve el ultimo error lanzado por un observador desde la llamada anterior y lo
+	 * da por comunicado. Los errores anteriores sin recoger solo quedan en las metricas.
+	 *
+	 * @return el error, o {@code null} si ningun observador ha fallado.
+	 */
+	RuntimeException takeFailure() {
+		lock.lock();
+		try {
+			RuntimeException failure = unreportedFailure;
+			unreportedFailure = null;
+			return failure;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Combina el evento con el pendiente de la misma tarea, si lo hay. Requiere 'lock'
+	private void enqueue(TaskEvent event) {
+		if (pending.isEmpty()) {
+			pendingSince = System.nanoTime();
+		}
+		published++;
+		TaskEvent combined = combine(pending.get(event.getIdentifier()), event);
+		if (combined == null) {
+			pending.remove(event.getIdentifier());
+		} else {
+			pending.put(event.getIdentifier(), combined);
+		}
+		maxQueueDepth = Math.max(maxQueueDepth, pending.size());
+		if (worker == null) {
+			startWorker();
+		}
+		available.signal();
+	}
+
+	// Requiere 'lock'
+	private void startWorker() {
+		worker = Thread.ofVirtual().name("task-events").start(this::run);
+	}
+
+	/**
+	 * @return el efecto conjunto de {@code previous} seguido de {@code next}, o
+	 *         {@code null} si se anulan.
+	 */
+	private static TaskEvent combine(TaskEvent previous, TaskEvent next) {
+		if (previous == null) {
+			return next;
+		}
+		switch (previous.getType()) {
+			case CREATED:
+				// Los observadores nunca llegaron a ver la tarea
+				if (next.getType() == TaskEvent.Type.REMOVED) {
+					return null;
+				}
+				return TaskEvent.created(next.getTask());
+			case REMOVED:
+				// La tarea existia antes y existe despues, con otros datos
+				if (next.getType() == TaskEvent.Type.CREATED) {
+					return TaskEvent.modified(next.getTask());
+				}
+				return next;
+			default:
+				return next;
+		}
+	}
+
+	// Si el hilo termina (interrupcion o un Error de un observador), deja 'worker' a null
+	// para que el siguiente evento arranque otro y despierta a quien espera la entrega
+	private void run() {
+		try {
+			deliverLoop();
+		} finally {
+			lock.lock();
+			try {
+				if (worker == Thread.currentThread()) {
+					worker = null;
+				}
+				delivered.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private void deliverLoop() {
+		while (true) {
+			List<TaskEvent> batch;
+			long target;
+			long since;
+			lock.lock();
+			try {
+				while (pending.isEmpty() && completed == published) {
+					available.await();
+				}
+				// Esperar a que se cumpla la ventana, salvo que alguien pida la entrega
+				long deadline = pendingSince + windowNanos;
+				long remaining;
+				while (!pending.isEmpty() && flushRequests == 0 && (remaining = deadline - System.nanoTime()) > 0) {
+					available.awaitNanos(remaining);
+				}
+				batch = new ArrayList<>(pending.values());
+				pending = new LinkedHashMap<>();
+				target = published;
+				since = pendingSince;
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				lock.unlock();
+			}
+
+			if (!batch.isEmpty()) {
+				deliver(batch);
+			}
+
+			lock.lock();
+			try {
+				completed = target;
+				if (!batch.isEmpty()) {
+					deliveredEvents += batch.size();
+					batches++;
+					lastLagNanos = System.nanoTime() - since;
+					maxLagNanos = Math.max(maxLagNanos, lastLagNanos);
+				}
+				delivered.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private void deliver(List<TaskEvent> batch) {
+		List<TaskEvent> events = List.copyOf(batch);
+		for (TaskObserver observer : observers) {
+			try {
+				observer.tasksChanged(events);
+			} catch (RuntimeException e) {
+				// Un observador con errores no debe impedir la entrega a los demas; el error
+				// queda para que el modelo lo comunique
+				lock.lock();
+				try {
+					observerFailures++;
+					unreportedFailure = e;
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Estado de la cola y de las entregas en un instante.
+	 */
+	public static final class Metrics {
+		private final int queueDepth;
+		private final int maxQueueDepth;
+		private final long publishedEvents;
+		private final long deliveredEvents;
+		private final long batches;
+		private final long lastLagNanos;
+		private final long maxLagNanos;
+		private final long observerFailures;
+
+		private Metrics(int queueDepth, int maxQueueDepth, long publishedEvents, long deliveredEvents, long batches,
+				long lastLagNanos, long maxLagNanos, long observerFailures) {
+			this.queueDepth = queueDepth;
+			this.maxQueueDepth = maxQueueDepth;
+			this.publishedEvents = publishedEvents;
+			this.deliveredEvents = deliveredEvents;
+			this.batches = batches;
+			this.lastLagNanos = lastLagNanos;
+			this.maxLagNanos = maxLagNanos;
+			this.observerFailures = observerFailures;
+		}
+
+		/**
+		 * @return los eventos pendientes de entrega, ya combinados.
+		 */
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+
+		public int getMaxQueueDepth() {
+			return maxQueueDepth;
+		}
+
+		public long getPublishedEvents() {
+			return publishedEvents;
+		}
+
+		/**
+		 * @return los eventos entregados; la diferencia con los publicados, descontando
+		 *         los pendientes, es lo que se ha ahorrado al combinarlos.
+		 */
+		public long getDeliveredEvents() {
+			return deliveredEvents;
+		}
+
+		public long getBatches() {
+			return batches;
+		}
+
+		/**
+		 * @return el tiempo entre la llegada del evento mas antiguo del ultimo lote y el
+		 *         final de su entrega.
+		 */
+		public Duration getLastLag() {
+			return Duration.ofNanos(lastLagNanos);
+		}
+
+		public Duration getMaxLag() {
+			return Duration.ofNanos(maxLagNanos);
+		}
+
+		/**
+		 * @return las veces que un observador ha lanzado una excepcion al recibir un lote.
+		 */
+		public long getObserverFailures() {
+			return observerFailures;
+		}
+
+		@Override
+		public String toString() {
+			return "Cola: " + queueDepth + " (max " + maxQueueDepth + "), publicados: " + publishedEvents
+					+ ", entregados: " + deliveredEvents + " en " + batches + " lotes, retraso: "
+					+ lastLagNanos / 1_000 + " us (max " + maxLagNanos / 1_000 + " us), fallos de observadores: "
+					+ observerFailures;
+		}
+	}
+}
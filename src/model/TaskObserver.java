@@ -1,16 +1,40 @@
 package model;
 
+import java.util.List;
 import java.util.Set;
 
 /**
- * Esta interfaz define un observador que es notificado de cambios en los identificadores de tareas.
- * El observador debe implementar el metodo {@code update} para recibir las actualizaciones.
+ * Esta interfaz define un observador que es notificado de cambios en las tareas.
+ * <p>
+ * El observador recibe una vez el conjunto completo de identificadores con
+ * {@code update} al registrarse y despues solo los cambios, como {@link TaskEvent}
+ * individuales o en lotes, para mantener sus datos de forma incremental.
+ * </p>
  */
 public interface TaskObserver {
 	/**
-	 * Este metodo es llamado para notificar al observador cuando hay cambios en los identificadores de tareas.
-	 * 
-	 * @param taskIDs el set de identificadores de tareas que han sido modificadas.
+	 * Sincronizacion completa: sustituye lo que sepa el observador por este conjunto.
+	 *
+	 * @param taskIDs el set de identificadores de todas las tareas del repositorio.
 	 */
 	void update(Set<Integer> taskIDs);
-}
\ No newline at end of file
+
+	/**
+	 * Notifica el cambio de una tarea.
+	 *
+	 * @param event el cambio aplicado en el repositorio.
+	 */
+	void taskChanged(TaskEvent event);
+
+	/**
+	 * Notifica un lote de cambios, en el orden en que se aplicaron. Por defecto los
+	 * entrega uno a uno; los observadores pueden sobrescribirlo para procesarlos juntos.
+	 *
+	 * @param events los cambios aplicados en el repositorio.
+	 */
+	default void tasksChanged(List<TaskEvent> events) {
+		for (TaskEvent event : events) {
+			taskChanged(event);
+		}
+	}
+}
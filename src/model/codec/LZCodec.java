@@ -0,0 +1,326 @@
+package model.codec;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Compresor LZ77 sencillo y rapido, en la linea de LZ4, sin dependencias.
+ * <p>
+ * Los datos se comprimen en bloques independientes de hasta {@value #BLOCK_SIZE} bytes.
+ * Cada bloque se escribe con una cabecera de dos enteros: su tamaño original y el
+ * tamaño guardado. Si comprimir no reduce el bloque se guarda sin comprimir, y entonces
+ * ambos tamaños coinciden. Como cada bloque es independiente, dos flujos comprimidos
+ * concatenados forman un flujo valido, lo que permite añadir datos al final de un fichero.
+ * </p>
+ * <p>
+ * Lo usan tanto las exportaciones comprimidas como el fichero {@code task.bin}, por eso
+ * esta fuera de ambos paquetes: el formato de los bloques no debe cambiar, o dejarian
+ * de leerse los ficheros ya guardados.
+ * </p>
+ * <p>
+ * Dentro de un bloque, cada secuencia es un byte de control (longitud de literales en los
+ * 4 bits altos y longitud de la coincidencia menos {@value #MIN_MATCH} en los bajos, con
+ * bytes de extension si llegan a 15), los literales y la distancia de la coincidencia en
+ * dos bytes. La ultima secuencia solo tiene literales.
+ * </p>
+ */
+public final class LZCodec {
+	public static final int BLOCK_SIZE = 64 * 1024;
+
+	private static final int MIN_MATCH = 4;
+	private static final int MAX_OFFSET = 65_535;
+	private static final int HASH_LOG = 14;
+	// Los ultimos bytes del bloque siempre van como literales
+	private static final int LAST_LITERALS = 5;
+
+	private LZCodec() {
+	}
+
+	/**
+	 * @return el tamaño maximo que puede ocupar un bloque de {@code length} bytes comprimido.
+	 */
+	public static int maxCompressedLength(int length) {
+		return length + length / 255 + 16;
+	}
+
+	/**
+	 * Comprime un bloque.
+	 *
+	 * @param table tabla de trabajo de {@code 1 << 14} posiciones, que se reutiliza entre bloques.
+	 * @return el numero de bytes escritos en {@code dst}.
+	 */
+	public static int compress(byte[] src, int length, byte[] dst, int[] table) {
+		Arrays.fill(table, -1);
+		int anchor = 0;
+		int out = 0;
+		int limit = length - LAST_LITERALS - MIN_MATCH;
+
+		int i = 0;
+		while (i <= limit) {
+			int sequence = readInt(src, i);
+			int hash = (sequence * -1640531535) >>> (32 - HASH_LOG);
+			int ref = table[hash];
+			table[hash] = i;
+
+			if (ref < 0 || i - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+				i++;
+				continue;
+			}
+
+			int matchLength = MIN_MATCH;
+			int maxMatch = length - LAST_LITERALS - i;
+			while (matchLength < maxMatch && src[ref + matchLength] == src[i + matchLength]) {
+				matchLength++;
+			}
+
+			out = writeSequence(src, anchor, i - anchor, dst, out, i - ref, matchLength);
+			i += matchLength;
+			anchor = i;
+		}
+
+		// Literales finales, sin coincidencia
+		int literals = length - anchor;
+		int token = out++;
+		dst[token] = (byte) (Math.min(literals, 15) << 4);
+		out = writeLength(dst, out, literals);
+		System.arraycopy(src, anchor, dst, out, literals);
+		return out + literals;
+	}
+
+	/**
+	 * Descomprime un bloque.
+	 *
+	 * @return el numero de bytes escritos en {@code dst}.
+	 * @throws IOException si los datos no son un bloque valido.
+	 */
+	public static int decompress(byte[] src, int length, byte[] dst) throws IOException {
+		try {
+			int in = 0;
+			int out = 0;
+			while (in < length) {
+				int token = src[in++] & 0xFF;
+
+				int literals = token >>> 4;
+				if (literals == 15) {
+					int extra;
+					do {
+						extra = src[in++] & 0xFF;
+						literals += extra;
+					} while (extra == 255);
+				}
+				System.arraycopy(src, in, dst, out, literals);
+				in += literals;
+				out += literals;
+				if (in == length) {
+					break;
+				}
+
+				int offset = (src[in++] & 0xFF) | (src[in++] & 0xFF) << 8;
+				int matchLength = token & 0x0F;
+				if (matchLength == 15) {
+					int extra;
+					do {
+						extra = src[in++] & 0xFF;
+						matchLength += extra;
+					} while (extra == 255);
+				}
+				matchLength += MIN_MATCH;
+				if (offset == 0 || offset > out) {
+					throw new IOException("Datos LZ corruptos: distancia invalida");
+				}
+				int from = out - offset;
+				if (offset >= matchLength) {
+					System.arraycopy(dst, from, dst, out, matchLength);
+					out += matchLength;
+				} else {
+					// Copia byte a byte: la coincidencia se solapa con lo que se esta escribiendo
+					for (int end = out + matchLength; out < end; ) {
+						dst[out++] = dst[from++];
+					}
+				}
+			}
+			return out;
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Datos LZ corruptos", e);
+		}
+	}
+
+	private static int writeSequence(byte[] src, int literalStart, int literals, byte[] dst, int out, int offset, int matchLength) {
+		int token = out++;
+		int matchCode = matchLength - MIN_MATCH;
+		dst[token] = (byte) (Math.min(literals, 15) << 4 | Math.min(matchCode, 15));
+		out = writeLength(dst, out, literals);
+		System.arraycopy(src, literalStart, dst, out, literals);
+		out += literals;
+		dst[out++] = (byte) offset;
+		dst[out++] = (byte) (offset >>> 8);
+		return writeLength(dst, out, matchCode);
+	}
+
+	// Bytes de extension de una longitud que no cabe en los 4 bits del control
+	private static int writeLength(byte[] dst, int out, int length) {
+		if (length < 15) {
+			return out;
+		}
+		length -= 15;
+		while (length >= 255) {
+			dst[out++] = (byte) 255;
+			length -= 255;
+		}
+		dst[out++] = (byte) length;
+		return out;
+	}
+
+	private static int readInt(byte[] src, int i) {
+		return (src[i] & 0xFF) | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF) << 16 | (src[i + 3] & 0xFF) << 24;
+	}
+
+	/**
+	 * Flujo que comprime por bloques lo que se escribe en el.
+	 */
+	public static final class LZOutputStream extends OutputStream {
+		private final OutputStream out;
+		private final byte[] block = new byte[BLOCK_SIZE];
+		private final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+		private final int[] table = new int[1 << HASH_LOG];
+		private int size;
+		private boolean closed;
+
+		public LZOutputStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (size == block.length) {
+				writeBlock();
+			}
+			block[size++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (size == block.length) {
+					writeBlock();
+				}
+				int count = Math.min(len, block.length - size);
+				System.arraycopy(b, off, block, size, count);
+				size += count;
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			writeBlock();
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				writeBlock();
+			} finally {
+				out.close();
+			}
+		}
+
+		private void writeBlock() throws IOException {
+			if (size == 0) {
+				return;
+			}
+			int length = compress(block, size, compressed, table);
+			boolean stored = length >= size;
+			writeInt(size);
+			writeInt(stored ? size : length);
+			out.write(stored ? block : compressed, 0, stored ? size : length);
+			size = 0;
+		}
+
+		private void writeInt(int value) throws IOException {
+			out.write(value >>> 24);
+			out.write(value >>> 16);
+			out.write(value >>> 8);
+			out.write(value);
+		}
+	}
+
+	/**
+	 * Flujo que descomprime los bloques escritos por {@link LZOutputStream}.
+	 */
+	public static final class LZInputStream extends InputStream {
+		private final DataInputStream in;
+		private final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+		private final byte[] block = new byte[BLOCK_SIZE];
+		private int position;
+		private int size;
+
+		public LZInputStream(InputStream in) {
+			this.in = new DataInputStream(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (position == size && !readBlock()) {
+				return -1;
+			}
+			return block[position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (position == size && !readBlock()) {
+				return -1;
+			}
+			int count = Math.min(len, size - position);
+			System.arraycopy(block, position, b, off, count);
+			position += count;
+			return count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		private boolean readBlock() throws IOException {
+			int first = in.read();
+			if (first < 0) {
+				return false;
+			}
+			int rawLength = first << 24 | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+			int storedLength = in.readInt();
+			if (rawLength <= 0 || rawLength > BLOCK_SIZE || storedLength <= 0 || storedLength > compressed.length) {
+				throw new IOException("Datos LZ corruptos: cabecera de bloque invalida");
+			}
+			try {
+				if (storedLength == rawLength) {
+					in.readFully(block, 0, rawLength);
+				} else {
+					in.readFully(compressed, 0, storedLength);
+					if (decompress(compressed, storedLength, block) != rawLength) {
+						throw new IOException("Datos LZ corruptos: tamaño de bloque incorrecto");
+					}
+				}
+			} catch (EOFException e) {
+				throw new IOException("Datos LZ truncados", e);
+			}
+			position = 0;
+			size = rawLength;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package model.exporter;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Copias de seguridad de los ficheros exportados, con varias generaciones.
+ * <p>
+ * La copia mas reciente es {@code fichero.bak} y las anteriores {@code fichero.bak.1},
+ * {@code fichero.bak.2}, etc. Cada copia nueva desplaza las demas una posicion y la mas
+ * antigua se borra cuando se supera el limite de generaciones.
+ * </p>
+ * <p>
+ * Al sustituir un fichero por uno nuevo no se copian sus datos: la version anterior pasa a
+ * ser la copia mediante un enlace duro, o renombrandola si el sistema de ficheros no
+ * admite enlaces. Solo {@link #copy(Path, int)} hace una copia real, con
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} para
+ * que los datos no pasen por la memoria de la aplicacion.
+ * </p>
+ */
+final class BackupRotation {
+	static final int DEFAULT_GENERATIONS = 3;
+
+	private BackupRotation() {
+	}
+
+	/**
+	 * Sustituye {@code file} por {@code temp} de forma atomica, conservando la version
+	 * anterior como la copia de seguridad mas reciente.
+	 * <p>
+	 * Con enlaces duros el fichero original existe en todo momento. Sin ellos, hay un
+	 * instante entre los dos renombrados en que solo existe la copia.
+	 * </p>
+	 *
+	 * @param generations numero de copias a conservar; con 0 no se guarda ninguna.
+	 */
+	static void replace(Path temp, Path file, int generations) throws IOException {
+		if (generations <= 0 || !Files.exists(file)) {
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return;
+		}
+
+		Path backup = rotate(file, generations);
+		if (link(backup, file)) {
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				// El fichero sigue enlazado con la copia: se quita el enlace para que no se modifiquen juntos
+				Files.deleteIfExists(backup);
+				throw e;
+			}
+		} else {
+			Files.move(file, backup, StandardCopyOption.ATOMIC_MOVE);
+			try {
+				Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				Files.move(backup, file, StandardCopyOption.ATOMIC_MOVE);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Guarda una copia real de {@code file} como la copia de seguridad mas reciente, para
+	 * los casos en que el fichero se va a modificar sin sustituirlo.
+	 *
+	 * @param generations numero de copias a conservar; con 0 no se guarda ninguna.
+	 */
+	static void copy(Path file, int generations) throws IOException {
+		if (generations <= 0 || !Files.exists(file)) {
+			return;
+		}
+
+		Path backup = rotate(file, generations);
+		try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(backup, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+			long size = in.size();
+			for (long position = 0; position < size; ) {
+				position += in.transferTo(position, size - position, out);
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(backup);
+			throw e;
+		}
+	}
+
+	/**
+	 * @return la ruta de la generacion {@code generation}, empezando en 0 por la mas reciente.
+	 */
+	static Path backupPath(Path file, int generation) {
+		String name = file.toString() + ".bak";
+		return Paths.get(generation == 0 ? name : name + "." + generation);
+	}
+
+	/**
+	 * Desplaza las copias existentes una generacion, borrando las que sobran, y deja libre
+	 * la ruta de la mas reciente.
+	 *
+	 * @return la ruta libre para la nueva copia.
+	 */
+	private static Path rotate(Path file, int generations) throws IOException {
+		// Las que superan el limite, incluidas las de un limite anterior mayor
+		for (int generation = generations - 1; Files.deleteIfExists(backupPath(file, generation)); generation++) {
+		}
+
+		for (int generation = generations - 2; generation >= 0; generation--) {
+			Path backup = backupPath(file, generation);
+			if (Files.exists(backup)) {
+				Files.move(backup, backupPath(file, generation + 1), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+		}
+		return backupPath(file, 0);
+	}
+
+	private static boolean link(Path backup, Path file) {
+		try {
+			Files.createLink(backup, file);
+			return true;
+		} catch (UnsupportedOperationException | IOException e) {
+			return false;
+		}
+	}
+}
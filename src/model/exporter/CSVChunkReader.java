@@ -0,0 +1,229 @@
+package model.exporter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import model.Task;
+
+/**
+ * Lee un fichero CSV de tareas repartiendolo entre varios hilos.
+ * <p>
+ * El fichero se divide en trozos que empiezan y terminan en un salto de linea; cada
+ * trozo se lee en un buffer propio, se decodifica y se convierte en tareas con un
+ * {@link CSVTaskParser} propio en un hilo del {@link ForkJoinPool} comun. Los resultados
+ * se unen en el orden de los trozos, por lo que las tareas y los errores salen en el
+ * mismo orden que con una lectura secuencial.
+ * </p>
+ * <p>
+ * Un salto de linea dentro de un campo entre comillas no separa filas. Si algun corte
+ * cae dentro de un campo asi (hay un numero impar de comillas antes del corte), el
+ * fichero se vuelve a leer de forma secuencial.
+ * </p>
+ */
+final class CSVChunkReader {
+	// Por debajo de este tamaño no compensa repartir el trabajo
+	static final long MIN_CHUNK_SIZE = 1 << 20;
+	// Tamaño maximo de cada trozo leido en memoria
+	static final long MAX_CHUNK_SIZE = 64L << 20;
+
+	/**
+	 * Tareas validas y errores de un fichero, en el orden en que aparecen.
+	 */
+	static final class Result {
+		final List<Task> tasks;
+		final List<String> errors;
+
+		Result(List<Task> tasks, List<String> errors) {
+			this.tasks = tasks;
+			this.errors = errors;
+		}
+	}
+
+	private final Path path;
+	private final char delimiter;
+
+	CSVChunkReader(Path path, char delimiter) {
+		this.path = path;
+		this.delimiter = delimiter;
+	}
+
+	/**
+	 * Lee todas las filas del fichero.
+	 *
+	 * @throws IOException si falla la lectura o el fichero no es UTF-8 valido.
+	 */
+	Result read() throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			int parallelism = ForkJoinPool.getCommonPoolParallelism();
+			if (size < 2 * MIN_CHUNK_SIZE || parallelism < 2) {
+				return readSequential();
+			}
+
+			// Varios trozos por hilo para repartir mejor la carga
+			long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size / (parallelism * 4L)));
+			List<Chunk> chunks = new ArrayList<>();
+			List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			long start = 0;
+			while (start < size) {
+				long end = start + chunkSize >= size ? size : nextLine(channel, start + chunkSize, size);
+				Chunk chunk = new Chunk(channel, start, end);
+				chunks.add(chunk);
+				tasks.add(ForkJoinTask.adapt(chunk));
+				start = end;
+			}
+
+			try {
+				ForkJoinTask.invokeAll(tasks);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+
+			return merge(chunks);
+		}
+	}
+
+	private Result merge(List<Chunk> chunks) throws IOException {
+		int total = 0;
+		long quotes = 0;
+		for (int i = 0; i < chunks.size(); i++) {
+			Chunk chunk = chunks.get(i);
+			if (i > 0 && quotes % 2 != 0) {
+				// El corte anterior partio un campo entre comillas
+				return readSequential();
+			}
+			quotes += chunk.quotes;
+			total += chunk.tasks.size();
+		}
+
+		List<Task> tasks = new ArrayList<>(total);
+		List<String> errors = new ArrayList<>();
+		int lineOffset = 0;
+		for (Chunk chunk : chunks) {
+			tasks.addAll(chunk.tasks);
+			for (int i = 0; i < chunk.errorLines.size(); i++) {
+				errors.add(CSVTaskParser.errorMessage(lineOffset + chunk.errorLines.get(i), chunk.records.get(i), chunk.errors.get(i)));
+			}
+			lineOffset += chunk.lines;
+		}
+		return new Result(tasks, errors);
+	}
+
+	private Result readSequential() throws IOException {
+		List<Task> tasks = new ArrayList<>();
+		List<String> errors = new ArrayList<>();
+		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			CSVTaskParser parser = new CSVTaskParser(reader, delimiter);
+			while (parser.next()) {
+				if (parser.task() != null) {
+					tasks.add(parser.task());
+				} else {
+					errors.add(CSVTaskParser.errorMessage(parser.lineNumber(), parser.record(), parser.error()));
+				}
+			}
+		}
+		return new Result(tasks, errors);
+	}
+
+	/**
+	 * @return la posicion siguiente al primer salto de linea desde {@code from}, o el final del fichero.
+	 */
+	private static long nextLine(FileChannel channel, long from, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long position = from;
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Convierte un trozo del fichero en tareas y guarda sus resultados.
+	 * <p>
+	 * Se ejecuta con {@link ForkJoinTask#adapt(Runnable)} en lugar de heredar de
+	 * {@code RecursiveTask}, que es serializable y no admite estos campos.
+	 * </p>
+	 */
+	private final class Chunk implements Runnable {
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+
+		private final List<Task> tasks = new ArrayList<>();
+		// Filas invalidas, con la linea contada desde el inicio del trozo
+		private final List<Integer> errorLines = new ArrayList<>();
+		private final List<String> records = new ArrayList<>();
+		private final List<String> errors = new ArrayList<>();
+		private int lines;
+		private long quotes;
+
+		Chunk(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public void run() {
+			try {
+				// Se lee en el heap en lugar de proyectarlo: una proyeccion sigue abierta
+				// hasta que la recoge el GC e impide reemplazar el fichero en Windows
+				ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+				while (bytes.hasRemaining()) {
+					if (channel.read(bytes, start + bytes.position()) < 0) {
+						throw new IOException("El fichero CSV ha cambiado durante la lectura");
+					}
+				}
+				bytes.flip();
+
+				// '\n' y '"' nunca forman parte de un caracter UTF-8 de varios bytes
+				byte[] array = bytes.array();
+				for (int i = 0; i < array.length; i++) {
+					byte b = array[i];
+					if (b == '\n') {
+						lines++;
+					} else if (b == '"') {
+						quotes++;
+					}
+				}
+
+				CharBuffer chars = StandardCharsets.UTF_8.newDecoder().decode(bytes);
+				CSVTaskParser parser = new CSVTaskParser(chars.array(), chars.arrayOffset() + chars.position(),
+						chars.arrayOffset() + chars.limit(), delimiter);
+				while (parser.next()) {
+					if (parser.task() != null) {
+						tasks.add(parser.task());
+					} else {
+						errorLines.add(parser.lineNumber());
+						records.add(parser.record());
+						errors.add(parser.error());
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
@@ -1,36 +1,83 @@
 package model.exporter;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import model.Task;
+import model.TaskEvent;
 import model.TaskObserver;
 
 
 public class CSVExporter implements IExporter, TaskObserver {
 	/* Atributos */
 	private final String directoryPath = System.getProperty("user.home") + "/Tasks";
-	private final String filePath = directoryPath + "/task.csv";
-	private final String delimitador = ";";
+	private final String filePath;
+	private final CompressionCodec codec;
+	private int backupGenerations = BackupRotation.DEFAULT_GENERATIONS;
+	private final char delimitador = ';';
 
-	// Cache local de los IDs de las tareas
-	private Set<Integer> cachedTaskIDs = new HashSet<>();
+	// Cache local de los IDs de las tareas. Los eventos la actualizan desde el hilo de
+	// entrega mientras una importacion la consulta, por eso es un conjunto concurrente
+	private volatile Set<Integer> cachedTaskIDs = ConcurrentHashMap.newKeySet();
+
+	// Identificadores que la ultima importacion omitio porque ya estaban en la cache
+	private volatile List<Integer> lastSkippedIDs = List.of();
+
+	/**
+	 * Recibe cada fila valida del fichero CSV. El lector permite copiar la fila original.
+	 */
+	@FunctionalInterface
+	private interface RowHandler {
+		void accept(CSVTaskParser row, Task task) throws IOException;
+	}
+
+	public CSVExporter() {
+		this(CompressionCodec.NONE);
+	}
+
+	/**
+	 * @param codec la compresion del fichero exportado, que añade su extension al nombre.
+	 */
+	public CSVExporter(CompressionCodec codec) {
+		this.codec = codec;
+		this.filePath = directoryPath + "/task.csv" + codec.getExtension();
+	}
 
 	@Override
 	public void update(Set<Integer> taskIDs) {
-		this.cachedTaskIDs = new HashSet<>(taskIDs);
+		Set<Integer> ids = ConcurrentHashMap.newKeySet(taskIDs.size());
+		ids.addAll(taskIDs);
+		this.cachedTaskIDs = ids;
+	}
+
+	@Override
+	public void taskChanged(TaskEvent event) {
+		// Solo las altas y bajas cambian los identificadores conocidos
+		switch (event.getType()) {
+			case CREATED:
+				cachedTaskIDs.add(event.getIdentifier());
+				break;
+			case REMOVED:
+				cachedTaskIDs.remove(event.getIdentifier());
+				break;
+			default:
+				break;
+		}
 	}
 
 	@Override
@@ -66,16 +113,23 @@ public class CSVExporter implements IExporter, TaskObserver {
 
 	@Override
 	public void createBackup(File file) throws IOException {
-		Path backupPath = Paths.get(filePath + ".bak");
-		Files.copy(file.toPath(), backupPath, StandardCopyOption.REPLACE_EXISTING);
+		BackupRotation.copy(file.toPath(), backupGenerations);
+	}
+
+	@Override
+	public void setBackupGenerations(int generations) {
+		if (generations < 0) {
+			throw new IllegalArgumentException("Error: El numero de copias de seguridad no puede ser negativo");
+		}
+		this.backupGenerations = generations;
 	}
 
 	/**
 	 * Lee una lista de tareas de un fichero CSV existente.
 	 * <p>
-	 * Este metodo lee todas las lineas de un fichero y convierte cada linea en una instancia de
-	 * {@link Task} usando {@link #factoryTask(String)}.
-	 * Si una linea no puede convertirse en una tarea, se omite y se registra un mensaje de error.
+	 * Este metodo lee todas las filas de un fichero y convierte cada una en una instancia de
+	 * {@link Task} usando {@link CSVTaskParser}.
+	 * Si una fila no puede convertirse en una tarea, se omite y se registra un mensaje de error.
 	 * </p>
 	 * 
 	 * @return una lista de tareas leidas desde el fichero. Si el fichero no existe, devuelve una lista vacia.
@@ -87,23 +141,56 @@ public class CSVExporter implements IExporter, TaskObserver {
 			return new ArrayList<>();
 		}
 
-		List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
-		List<Task> taskCSV = new ArrayList<>();
+		return readAllRows(path);
+	}
+
+	/**
+	 * Lee todas las tareas del fichero repartiendo el trabajo entre varios hilos con
+	 * {@link CSVChunkReader}, o en orden si esta comprimido. Las tareas se devuelven en el
+	 * orden del fichero.
+	 * <p>
+	 * Si alguna fila no se puede convertir en tarea se lanza una unica excepcion con todas ellas.
+	 * </p>
+	 */
+	private List<Task> readAllRows(Path path) throws IOException, ExporterException {
+		if (codec != CompressionCodec.NONE) {
+			// Un fichero comprimido no se puede repartir por posiciones: se lee en orden
+			List<Task> tasks = new ArrayList<>();
+			readRows(path, (row, task) -> tasks.add(task));
+			return tasks;
+		}
+
+		CSVChunkReader.Result result = new CSVChunkReader(path, delimitador).read();
+		if (!result.errors.isEmpty()) {
+			throw new ExporterException("Errores al procesar el archivo CSV. Detalles:\n" + String.join("\n", result.errors));
+		}
+		return result.tasks;
+	}
+
+	/**
+	 * Recorre el fichero fila a fila sin cargarlo entero en memoria.
+	 * <p>
+	 * Las filas que no se pueden convertir en tarea no se pasan al manejador; al terminar
+	 * se lanza una unica excepcion con todas ellas y su numero de linea.
+	 * </p>
+	 */
+	private void readRows(Path path, RowHandler handler) throws IOException, ExporterException {
 		List<String> invalidStrings = new ArrayList<>();
 
-		for (String line : lines) {
-			try {
-				taskCSV.add(factoryTask(line));
-			} catch (ExporterException e) {
-				invalidStrings.add("Linea invalida: \"" + line + "\" || Error: " + e.getMessage());
+		try (Reader reader = codec.newReader(path)) {
+			CSVTaskParser parser = new CSVTaskParser(reader, delimitador);
+			while (parser.next()) {
+				if (parser.task() == null) {
+					invalidStrings.add(CSVTaskParser.errorMessage(parser.lineNumber(), parser.record(), parser.error()));
+					continue;
+				}
+				handler.accept(parser, parser.task());
 			}
 		}
 
 		if (!invalidStrings.isEmpty()) {
 			throw new ExporterException("Errores al procesar el archivo CSV. Detalles:\n" + String.join("\n", invalidStrings));
 		}
-
-		return taskCSV;
 	}
 
 	/**
@@ -126,147 +213,194 @@ public class CSVExporter implements IExporter, TaskObserver {
 		return taskID;
 	}
 
+	/**
+	 * Exporta las tareas combinandolas con las que ya hay en el fichero.
+	 * <p>
+	 * El fichero existente se recorre en streaming, sin cargarlo en memoria: una primera
+	 * pasada solo averigua que tareas en memoria ya estan en el fichero, y la segunda
+	 * escribe en un fichero temporal cada fila (sustituida por la tarea en memoria si su
+	 * titulo o contenido han cambiado) intercalando por fecha las tareas nuevas y las
+	 * sustituidas que cambian de fecha. Al terminar, el temporal se mueve sobre el
+	 * original de forma atomica. La memoria usada depende solo de las tareas en memoria.
+	 * </p>
+	 * <p>
+	 * Como el fichero lo escribe este mismo metodo ordenado por fecha, el resultado es el
+	 * de ordenar todas las tareas por fecha sin necesidad de tenerlas todas en memoria.
+	 * </p>
+	 */
 	@Override
 	public void exportTasks(List<Task> tasks) throws ExporterException {
 		validateTasks(tasks);
 		ensureDirectoryExists();
 
 		File file = new File(filePath);
-		List<Task> existingTasks = new ArrayList<>();
+		Path savePath = file.toPath();
 
+		// Tareas en memoria por identificador, en el orden recibido
+		Map<Integer, Task> memoryTasks = new LinkedHashMap<>();
+		for (Task task : tasks) {
+			memoryTasks.put(task.getIdentifier(), task);
+		}
+
+		// Primera pasada: que tareas en memoria estan ya en el fichero y cuales cambian de fecha
+		Set<Integer> existingIDTasks = new HashSet<>();
+		List<PendingRow> inserts = new ArrayList<>();
+		int[] rowCount = { 0 };
 		if (file.exists()) {
 			try {
-				createBackup(file);
-				existingTasks = readTaskFromCSV();
+				readRows(savePath, (row, existingTask) -> {
+					int rowIndex = rowCount[0]++;
+					Task task = memoryTasks.get(existingTask.getIdentifier());
+					if (task == null) {
+						return;
+					}
+					existingIDTasks.add(task.getIdentifier());
+					// Si se sustituye y cambia de fecha, se escribira en su nueva posicion
+					if (isReplaced(existingTask, task) && !task.getDate().equals(existingTask.getDate())) {
+						inserts.add(new PendingRow(task, rowIndex));
+					}
+				});
 			} catch (IOException e) {
 				throw new ExporterException("Error leyendo el fichero existente para evitar duplicados", e);
 			}
 		}
 
-		// Comparar las tareas del fichero con las actuales en memoria
-		Set<Integer> existingIDTasks = readTasksID(existingTasks);
-		List<Task> allTasks = new ArrayList<>(existingTasks);
-		for (Task task : tasks) {
-			boolean taskExists = false;
+		// Las tareas nuevas van detras de las del fichero en caso de empate, como en una ordenacion estable
+		int order = rowCount[0];
+		for (Task task : memoryTasks.values()) {
+			if (!existingIDTasks.contains(task.getIdentifier())) {
+				inserts.add(new PendingRow(task, order++));
+			}
+		}
+		inserts.sort(null);
+		Iterator<PendingRow> pendingInserts = inserts.iterator();
+
+		Path tempPath = Paths.get(filePath + ".tmp");
+		try (BufferedWriter writer = codec.newWriter(tempPath)) {
+			PendingRow[] nextInsert = { pendingInserts.hasNext() ? pendingInserts.next() : null };
+			int[] rowIndex = { 0 };
+
+			if (file.exists()) {
+				// Segunda pasada: copiar el fichero aplicando los cambios e intercalando por fecha
+				readRows(savePath, (row, existingTask) -> {
+					PendingRow current = new PendingRow(existingTask, rowIndex[0]++);
+					Task task = memoryTasks.get(existingTask.getIdentifier());
+					boolean replaced = task != null && isReplaced(existingTask, task);
+					if (replaced && !task.getDate().equals(existingTask.getDate())) {
+						// Ya esta entre las inserciones con su nueva fecha
+						return;
+					}
 
-			for (int i = 0; i < existingIDTasks.size(); i++) {
-				Task existingTask = existingTasks.get(i);
+					while (nextInsert[0] != null && nextInsert[0].compareTo(current) < 0) {
+						writeTask(writer, nextInsert[0].task);
+						nextInsert[0] = pendingInserts.hasNext() ? pendingInserts.next() : null;
+					}
 
-				if (existingTask.getIdentifier() == task.getIdentifier()) {
-					taskExists = true;
-					if (!existingTask.getTitle().equals(task.getTitle()) || !existingTask.getContent().equals(task.getContent())) {
-						allTasks.set(i, task);
+					// Si la fila no cambia se copia tal cual
+					if (replaced) {
+						writeTask(writer, task);
+					} else {
+						row.writeRecord(writer);
+						writer.newLine();
 					}
-				}
+				});
 			}
 
-			if (!taskExists) {
-				allTasks.add(task);
+			// Las inserciones posteriores a la ultima fila del fichero
+			for (PendingRow insert = nextInsert[0]; insert != null; insert = pendingInserts.hasNext() ? pendingInserts.next() : null) {
+				writeTask(writer, insert.task);
 			}
-		}
-		
-		// Ordenarlas por fecha
-		allTasks.sort((task1, task2) -> task1.getDate().compareTo(task2.getDate()));
-		allTasks.reversed();
-		// Convertir Tareas a String delimitadas
-		List<String> taskLines = new ArrayList<>();
-		for (Task task : allTasks) {
-			taskLines.add(task.toDelimitedString(delimitador));
+		} catch (IOException e) {
+			deleteQuietly(tempPath);
+			throw new ExporterException("Error al exportar tareas al fichero CSV", e);
+		} catch (ExporterException e) {
+			deleteQuietly(tempPath);
+			throw e;
 		}
 
-		// Guardar todas las tareas en el archivo CSV
-		Path savePath = Paths.get(filePath);
+		// Sustituir el fichero solo cuando el temporal esta completo; el anterior queda como copia
 		try {
-			Files.write(savePath, taskLines, StandardCharsets.UTF_8);
+			BackupRotation.replace(tempPath, savePath, backupGenerations);
 		} catch (IOException e) {
+			deleteQuietly(tempPath);
 			throw new ExporterException("Error al exportar tareas al fichero CSV", e);
 		}
 	}
 
+	// Una fila del fichero se sustituye por la tarea en memoria si cambia su titulo o su contenido
+	private static boolean isReplaced(Task existingTask, Task task) {
+		return !existingTask.getTitle().equals(task.getTitle()) || !existingTask.getContent().equals(task.getContent());
+	}
+
 	/**
-	 * Crea una instancia de {@link Task} a partir de una cadena delimitada.
-	 * <p>
-	 * Este metodo convierte una cadena delimitada en un objeto de tipo {@link Task}.
-	 * Comprueba que la cadena no sea nula ni vacia y que contenga el numero correcto de campos,
-	 * separados por el delimitador correspondiente.
-	 * </p>
-	 * 
-	 * @param delimitedString la cadena de texto que representa una tarea, con los atributos separados por un delimitador.
-	 * @return una instancia de {@link Task} creada a partir de los valores de la cadena.
-	 * @throws ExporterException si la cadena es nula, esta vacia, su formato es incorrecto o no puede convertirse en una tarea.
+	 * Tarea a intercalar en el fichero, ordenada por fecha y, en caso de empate, por su
+	 * posicion en la ordenacion original.
 	 */
-	private Task factoryTask(String delimitedString) throws ExporterException {
-		if (delimitedString == null || delimitedString.trim().isEmpty()) {
-			throw new ExporterException("Error: La cadena leida esta vacia o es nula");
-		}
+	private static final class PendingRow implements Comparable<PendingRow> {
+		private final Task task;
+		private final int order;
 
-		String[] taskEntityFields = delimitedString.split(delimitador);
-		if (taskEntityFields.length != Task.getFieldCount()) {
-			throw new ExporterException("Error: La tarea no contiene los " + Task.getFieldCount() + " atributos esperados");
+		PendingRow(Task task, int order) {
+			this.task = task;
+			this.order = order;
 		}
 
-		try {
-			int identifier = Integer.parseInt(taskEntityFields[0]);
-			if (identifier < 0) {
-				throw new ExporterException("Error: El identificador no puede ser negativo");
-			}
-
-			String title = taskEntityFields[1];
-			if (title == null || title.trim().isEmpty()) {
-				throw new ExporterException("Error: El titulo no puede estar vacio");
-			}
-
-			DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-			LocalDate date = LocalDate.parse(taskEntityFields[2], dateFormatter);
-
-			String content = taskEntityFields[3];
-
-			int priority = Integer.parseInt(taskEntityFields[4]);
-			if (priority < 1 || priority > 5) {
-				throw new ExporterException("Error: La prioridad debe estar entre 1 y 5");
-			}
-
-			int estimatedDuration = Integer.parseInt(taskEntityFields[5]);
-			if (estimatedDuration <= 0) {
-				throw new ExporterException("Error: La duracion estimada debe ser mayor a 0");
-			}
-
-			boolean completed = Boolean.parseBoolean(taskEntityFields[6]);
+		@Override
+		public int compareTo(PendingRow other) {
+			int byDate = task.getDate().compareTo(other.task.getDate());
+			return byDate != 0 ? byDate : Integer.compare(order, other.order);
+		}
+	}
 
-			return new Task(identifier, title, date, content, priority, estimatedDuration, completed);
+	private void writeTask(BufferedWriter writer, Task task) throws IOException {
+		CSVTaskParser.writeTask(writer, task, delimitador);
+		writer.newLine();
+	}
 
-		} catch (NumberFormatException e) {
-			throw new ExporterException("Error: Atributo numerico erroneo en los atributos de la tarea", e);
-		} catch (DateTimeParseException e) {
-			throw new ExporterException("Error: Formato de fecha erroneo, valido: YYYY-MM-DD", e);
+	private static void deleteQuietly(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			// El temporal se sobrescribira en la siguiente exportacion
 		}
 	}
 
 	@Override
 	public List<Task> importTasks() throws ExporterException {
 		ensureDirectoryExists();
+		lastSkippedIDs = List.of();
 
 		File file = new File(filePath);
-		List<Task> fileTasks = new ArrayList<>();
+		List<Task> newTasks = new ArrayList<>();
+		Set<Integer> newIDs = new HashSet<>();
+		Set<Integer> skippedIDs = new LinkedHashSet<>();
 		if (file.exists() && file.length() > 0) {
+			List<Task> fileTasks;
 			try {
-				createBackup(file);
-				fileTasks = readTaskFromCSV();
+				fileTasks = readAllRows(file.toPath());
 			} catch (Exception e) {
 				throw new ExporterException("Error leyendo el fichero", e);
 			}
-		}
 
-		// Filtrar tareas con identificadores unicos
-		List<Task> newTasks = new ArrayList<>();
-		for (Task task : fileTasks) {
-			if (!cachedTaskIDs.contains(task.getIdentifier())) {
-				newTasks.add(task);
-				cachedTaskIDs.add(task.getIdentifier());
+			// Filtrar tareas con identificadores unicos, en el orden del fichero
+			for (Task task : fileTasks) {
+				if (cachedTaskIDs.contains(task.getIdentifier())) {
+					skippedIDs.add(task.getIdentifier());
+				} else if (newIDs.add(task.getIdentifier())) {
+					newTasks.add(task);
+				}
 			}
 		}
+		// Solo se actualiza la cache si el fichero se ha leido entero sin errores
+		cachedTaskIDs.addAll(newIDs);
+		lastSkippedIDs = List.copyOf(skippedIDs);
 
 		// Devolver solo las tareas nuevas
 		return newTasks;
 	}
+
+	@Override
+	public List<Integer> getSkippedIDs() {
+		return lastSkippedIDs;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,469 @@
+package model.exporter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+
+import model.Task;
+
+/**
+ * Lector de tareas en formato CSV que recorre la entrada una sola vez.
+ * <p>
+ * Sustituye a {@code String.split}: los campos se localizan por posiciones dentro de un
+ * buffer de caracteres que se reutiliza entre filas, los numeros y las fechas se
+ * convierten directamente desde esos caracteres y solo se crean cadenas para el titulo
+ * y el contenido. Admite campos entre comillas segun RFC 4180, con comillas dobles
+ * escapadas ({@code ""}) y delimitadores o saltos de linea dentro del campo.
+ * </p>
+ * <p>
+ * Las filas invalidas no lanzan excepciones: {@link #next()} avanza igualmente y
+ * {@link #error()} indica el motivo, con {@link #lineNumber()} para localizarla.
+ * </p>
+ * <pre>
+ * CSVTaskParser parser = new CSVTaskParser(reader, ';');
+ * while (parser.next()) {
+ *     if (parser.task() != null) { ... } else { ... parser.error() ... }
+ * }
+ * </pre>
+ */
+final class CSVTaskParser {
+	private static final int INITIAL_BUFFER = 64 * 1024;
+
+	private final Reader reader;
+	private final char delimiter;
+
+	private char[] buffer;
+	private int limit;
+	private int pos;
+	private boolean eof;
+
+	// Fila actual: posicion en el buffer, longitud y linea en la que empieza
+	private int recordStart;
+	private int recordLength;
+	private int recordLine;
+	private int line = 1;
+
+	// Campos de la fila actual, con posiciones relativas al inicio de la fila
+	private final int[] fieldStart = new int[Task.getFieldCount()];
+	private final int[] fieldEnd = new int[Task.getFieldCount()];
+	private final boolean[] fieldEscaped = new boolean[Task.getFieldCount()];
+	private int fieldCount;
+
+	private Task task;
+	private String error;
+
+	/**
+	 * Lee las tareas de un {@link Reader}, que no hace falta envolver en un buffer.
+	 *
+	 * @param reader    la entrada. No se cierra al terminar.
+	 * @param delimiter el separador de campos.
+	 */
+	CSVTaskParser(Reader reader, char delimiter) {
+		this.reader = reader;
+		this.delimiter = delimiter;
+		this.buffer = new char[INITIAL_BUFFER];
+	}
+
+	/**
+	 * Lee las tareas de un rango de caracteres ya en memoria, sin copiarlo.
+	 *
+	 * @param data      los caracteres.
+	 * @param from      la primera posicion del rango.
+	 * @param to        la posicion siguiente a la ultima del rango.
+	 * @param delimiter el separador de campos.
+	 */
+	CSVTaskParser(char[] data, int from, int to, char delimiter) {
+		this.reader = null;
+		this.delimiter = delimiter;
+		this.buffer = data;
+		this.pos = from;
+		this.limit = to;
+		this.eof = true;
+	}
+
+	/**
+	 * Avanza a la siguiente fila.
+	 *
+	 * @return {@code false} si no quedan filas.
+	 * @throws IOException si falla la lectura.
+	 */
+	boolean next() throws IOException {
+		task = null;
+		error = null;
+		recordStart = pos;
+		recordLength = 0;
+		if (pos == limit && !fill()) {
+			return false;
+		}
+
+		recordLine = line;
+		fieldCount = 0;
+		error = scanRecord();
+		if (error == null) {
+			error = buildTask();
+		}
+		return true;
+	}
+
+	/**
+	 * @return la tarea de la fila actual o {@code null} si la fila es invalida.
+	 */
+	Task task() {
+		return task;
+	}
+
+	/**
+	 * @return el motivo por el que la fila actual es invalida o {@code null} si es valida.
+	 */
+	String error() {
+		return error;
+	}
+
+	/**
+	 * @return la linea en la que empieza la fila actual, contando desde 1.
+	 */
+	int lineNumber() {
+		return recordLine;
+	}
+
+	/**
+	 * @return el texto original de la fila actual, sin el salto de linea.
+	 */
+	String record() {
+		return new String(buffer, recordStart, recordLength);
+	}
+
+	/**
+	 * Copia el texto original de la fila actual, sin el salto de linea, sin crear cadenas.
+	 */
+	void writeRecord(Writer writer) throws IOException {
+		writer.write(buffer, recordStart, recordLength);
+	}
+
+	/**
+	 * Mensaje para una fila invalida, con su linea, su texto y el motivo.
+	 */
+	static String errorMessage(int line, String record, String error) {
+		return "Linea " + line + " invalida: \"" + record + "\" || " + error;
+	}
+
+	/**
+	 * Escribe un campo de texto, entre comillas si contiene el delimitador, comillas o
+	 * saltos de linea.
+	 */
+	private static void writeField(Writer writer, String field, char delimiter) throws IOException {
+		if (!needsQuotes(field, delimiter)) {
+			writer.write(field);
+			return;
+		}
+		writer.write('"');
+		int from = 0;
+		for (int i = field.indexOf('"'); i >= 0; i = field.indexOf('"', i + 1)) {
+			writer.write(field, from, i + 1 - from);
+			writer.write('"');
+			from = i + 1;
+		}
+		writer.write(field, from, field.length() - from);
+		writer.write('"');
+	}
+
+	/**
+	 * Escribe una tarea como una fila, sin el salto de linea.
+	 */
+	static void writeTask(Writer writer, Task task, char delimiter) throws IOException {
+		writer.write(Integer.toString(task.getIdentifier()));
+		writer.write(delimiter);
+		writeField(writer, task.getTitle(), delimiter);
+		writer.write(delimiter);
+		writer.write(task.getDate().toString());
+		writer.write(delimiter);
+		writeField(writer, task.getContent(), delimiter);
+		writer.write(delimiter);
+		writer.write(Integer.toString(task.getPriority()));
+		writer.write(delimiter);
+		writer.write(Integer.toString(task.getEstimatedDuration()));
+		writer.write(delimiter);
+		writer.write(task.isCompleted() ? "true" : "false");
+	}
+
+	private static boolean needsQuotes(String field, char delimiter) {
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+			if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Localiza los campos de la fila y deja {@code pos} al principio de la siguiente.
+	 *
+	 * @return el error de formato o {@code null} si la fila esta bien formada.
+	 */
+	private String scanRecord() throws IOException {
+		String formatError = null;
+		int start = 0;
+		boolean quoted = false;
+		boolean escaped = false;
+		boolean afterQuote = false;
+
+		while (true) {
+			if (pos == limit && !fill()) {
+				if (quoted) {
+					formatError = "Error: Campo entre comillas sin cerrar";
+				}
+				int end = pos - recordStart;
+				if (!quoted && end > 0 && buffer[pos - 1] == '\r') {
+					end--;
+				}
+				endField(start, afterQuote ? end - 1 : end, escaped);
+				recordLength = end;
+				break;
+			}
+
+			char c = buffer[pos];
+			if (quoted) {
+				if (c == '"') {
+					if (pos + 1 == limit && !fill()) {
+						quoted = false;
+						afterQuote = true;
+					} else if (buffer[pos + 1] == '"') {
+						escaped = true;
+						pos++;
+					} else {
+						quoted = false;
+						afterQuote = true;
+					}
+				} else if (c == '\n') {
+					line++;
+				}
+				pos++;
+				continue;
+			}
+
+			if (c == delimiter || c == '\n') {
+				int end = pos - recordStart;
+				if (c == '\n' && end > 0 && buffer[pos - 1] == '\r') {
+					end--;
+				}
+				endField(start, afterQuote ? end - 1 : end, escaped);
+				pos++;
+				if (c == '\n') {
+					recordLength = end;
+					line++;
+					break;
+				}
+				start = pos - recordStart;
+				escaped = false;
+				afterQuote = false;
+			} else if (afterQuote) {
+				if (c != '\r' && formatError == null) {
+					formatError = "Error: Caracteres despues de cerrar las comillas";
+				}
+				pos++;
+			} else {
+				if (c == '"' && pos - recordStart == start) {
+					// El campo empieza por comillas: su contenido va sin ellas
+					quoted = true;
+					start++;
+				}
+				pos++;
+			}
+		}
+
+		if (formatError != null) {
+			return formatError;
+		}
+		if (fieldCount == 1 && isBlank(0)) {
+			return "Error: La cadena leida esta vacia o es nula";
+		}
+		if (fieldCount != Task.getFieldCount()) {
+			return "Error: La tarea no contiene los " + Task.getFieldCount() + " atributos esperados";
+		}
+		return null;
+	}
+
+	private void endField(int start, int end, boolean escaped) {
+		if (fieldCount < fieldStart.length) {
+			fieldStart[fieldCount] = start;
+			fieldEnd[fieldCount] = Math.max(start, end);
+			fieldEscaped[fieldCount] = escaped;
+		}
+		fieldCount++;
+	}
+
+	/**
+	 * Convierte los campos de la fila en una tarea aplicando las mismas validaciones que
+	 * el formato original.
+	 */
+	private String buildTask() {
+		long identifier = parseInt(0);
+		if (identifier == Long.MIN_VALUE) {
+			return "Error: Atributo numerico erroneo en los atributos de la tarea";
+		}
+		if (identifier < 0) {
+			return "Error: El identificador no puede ser negativo";
+		}
+
+		if (isBlank(1)) {
+			return "Error: El titulo no puede estar vacio";
+		}
+
+		LocalDate date = parseDate(2);
+		if (date == null) {
+			return "Error: Formato de fecha erroneo, valido: YYYY-MM-DD";
+		}
+
+		long priority = parseInt(4);
+		long estimatedDuration = parseInt(5);
+		if (priority == Long.MIN_VALUE || estimatedDuration == Long.MIN_VALUE) {
+			return "Error: Atributo numerico erroneo en los atributos de la tarea";
+		}
+		if (priority < 1 || priority > 5) {
+			return "Error: La prioridad debe estar entre 1 y 5";
+		}
+		if (estimatedDuration <= 0) {
+			return "Error: La duracion estimada debe ser mayor a 0";
+		}
+
+		task = new Task((int) identifier, text(1), date, text(3), (int) priority, (int) estimatedDuration, parseBoolean(6));
+		return null;
+	}
+
+	/**
+	 * Convierte un campo en entero como {@link Integer#parseInt(String)}.
+	 *
+	 * @return el valor o {@link Long#MIN_VALUE} si el campo no es un entero valido.
+	 */
+	private long parseInt(int field) {
+		int i = recordStart + fieldStart[field];
+		int end = recordStart + fieldEnd[field];
+		if (i == end) {
+			return Long.MIN_VALUE;
+		}
+		boolean negative = buffer[i] == '-';
+		if (negative || buffer[i] == '+') {
+			i++;
+			if (i == end) {
+				return Long.MIN_VALUE;
+			}
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = buffer[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return Long.MIN_VALUE;
+			}
+			value = value * 10 + digit;
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				return Long.MIN_VALUE;
+			}
+		}
+		value = negative ? -value : value;
+		return value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+	}
+
+	/**
+	 * Convierte un campo con formato {@code yyyy-MM-dd} en fecha.
+	 *
+	 * @return la fecha o {@code null} si el formato o la fecha no son validos.
+	 */
+	private LocalDate parseDate(int field) {
+		int i = recordStart + fieldStart[field];
+		if (fieldEnd[field] - fieldStart[field] != 10 || buffer[i + 4] != '-' || buffer[i + 7] != '-') {
+			return null;
+		}
+		int year = digits(i, 4);
+		int month = digits(i + 5, 2);
+		int day = digits(i + 8, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 1
+				|| day > Month.of(month).length(Year.isLeap(year))) {
+			return null;
+		}
+		return LocalDate.of(year, month, day);
+	}
+
+	private int digits(int from, int count) {
+		int value = 0;
+		for (int i = from; i < from + count; i++) {
+			int digit = buffer[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	// Igual que Boolean.parseBoolean: cualquier valor distinto de "true" es false
+	private boolean parseBoolean(int field) {
+		int i = recordStart + fieldStart[field];
+		return fieldEnd[field] - fieldStart[field] == 4
+				&& (buffer[i] | 0x20) == 't' && (buffer[i + 1] | 0x20) == 'r'
+				&& (buffer[i + 2] | 0x20) == 'u' && (buffer[i + 3] | 0x20) == 'e';
+	}
+
+	private boolean isBlank(int field) {
+		for (int i = recordStart + fieldStart[field]; i < recordStart + fieldEnd[field]; i++) {
+			if (buffer[i] > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String text(int field) {
+		int start = recordStart + fieldStart[field];
+		int end = recordStart + fieldEnd[field];
+		if (!fieldEscaped[field]) {
+			return new String(buffer, start, end - start);
+		}
+		// Quitar el escape de las comillas dobles
+		StringBuilder text = new StringBuilder(end - start);
+		for (int i = start; i < end; i++) {
+			text.append(buffer[i]);
+			if (buffer[i] == '"') {
+				i++;
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Lee mas caracteres conservando la fila actual entera al principio del buffer, que
+	 * crece si la fila no cabe.
+	 *
+	 * @return {@code false} si no hay mas caracteres.
+	 */
+	private boolean fill() throws IOException {
+		if (eof) {
+			return false;
+		}
+		int keep = limit - recordStart;
+		if (keep == buffer.length) {
+			char[] larger = new char[buffer.length * 2];
+			System.arraycopy(buffer, recordStart, larger, 0, keep);
+			buffer = larger;
+		} else if (recordStart > 0) {
+			System.arraycopy(buffer, recordStart, buffer, 0, keep);
+		}
+		pos -= recordStart;
+		recordStart = 0;
+		limit = keep;
+
+		int read = reader.read(buffer, limit, buffer.length - limit);
+		while (read == 0) {
+			read = reader.read(buffer, limit, buffer.length - limit);
+		}
+		if (read < 0) {
+			eof = true;
+			return false;
+		}
+		limit += read;
+		return true;
+	}
+}
@@ -0,0 +1,557 @@
+package model.exporter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import model.Task;
+import model.TaskEvent;
+import model.TaskObserver;
+import model.repository.TaskQuery;
+
+/**
+ * Exportador a un formato binario por columnas pensado para analisis.
+ * <p>
+ * Las tareas se guardan en grupos de hasta {@value #ROW_GROUP_SIZE} filas. Dentro de cada
+ * grupo los atributos se escriben columna a columna: identificador, prioridad y duracion
+ * como enteros, la fecha como dias desde 1970-01-01, el estado de completado como un
+ * mapa de bits y el titulo y el contenido como cadenas UTF-8, con diccionario si se
+ * repiten mucho o con tabla de posiciones si no.
+ * </p>
+ * <p>
+ * Cada grupo empieza con el minimo y el maximo de sus columnas numericas y su tamaño,
+ * de modo que {@link #readTasks(TaskQuery)} puede saltarse los grupos que no pueden
+ * cumplir un filtro por fecha o prioridad sin leerlos. Si se elige compresion, los datos
+ * de cada grupo se comprimen por separado y las cabeceras quedan sin comprimir.
+ * </p>
+ * <p>
+ * A diferencia de los formatos de texto, el fichero no se combina con el anterior: cada
+ * exportacion escribe una instantanea completa de las tareas recibidas.
+ * </p>
+ */
+public class ColumnarExporter implements IExporter, TaskObserver {
+	/* Atributos */
+	private final String directoryPath = System.getProperty("user.home") + "/Tasks";
+	private final String filePath;
+	private final CompressionCodec codec;
+	private int backupGenerations = BackupRotation.DEFAULT_GENERATIONS;
+
+	static final int ROW_GROUP_SIZE = 65_536;
+
+	private static final int MAGIC = 0x54434F4C;
+	// La version 2 añade la compresion de los datos de cada grupo
+	private static final int VERSION = 2;
+	// Numero de filas, minimo y maximo de identificador, prioridad, duracion y fecha, y tamaño de los datos
+	private static final int GROUP_HEADER_SIZE_V1 = 4 + 8 * 4 + 4;
+	// Ademas, el tamaño de los datos sin comprimir
+	private static final int GROUP_HEADER_SIZE = GROUP_HEADER_SIZE_V1 + 4;
+
+	private static final byte OFFSET_ENCODING = 0;
+	private static final byte DICTIONARY_ENCODING = 1;
+	// Fecha ausente
+	private static final int NO_DATE = Integer.MIN_VALUE;
+
+	// Cache local de los IDs de las tareas. Los eventos la actualizan desde el hilo de
+	// entrega mientras una importacion la consulta, por eso es un conjunto concurrente
+	private volatile Set<Integer> cachedTaskIDs = ConcurrentHashMap.newKeySet();
+
+	// Identificadores que la ultima importacion omitio porque ya estaban en la cache
+	private volatile List<Integer> lastSkippedIDs = List.of();
+
+	// Grupos saltados por la ultima lectura
+	private int lastSkippedRowGroups;
+
+	public ColumnarExporter() {
+		this(CompressionCodec.NONE);
+	}
+
+	/**
+	 * @param codec la compresion del fichero exportado, que añade su extension al nombre.
+	 */
+	public ColumnarExporter(CompressionCodec codec) {
+		this.codec = codec;
+		this.filePath = directoryPath + "/task.col" + codec.getExtension();
+	}
+
+	@Override
+	public void update(Set<Integer> taskIDs) {
+		Set<Integer> ids = ConcurrentHashMap.newKeySet(taskIDs.size());
+		ids.addAll(taskIDs);
+		this.cachedTaskIDs = ids;
+	}
+
+	@Override
+	public void taskChanged(TaskEvent event) {
+		// Solo las altas y bajas cambian los identificadores conocidos
+		switch (event.getType()) {
+			case CREATED:
+				cachedTaskIDs.add(event.getIdentifier());
+				break;
+			case REMOVED:
+				cachedTaskIDs.remove(event.getIdentifier());
+				break;
+			default:
+				break;
+		}
+	}
+
+	@Override
+	public void ensureDirectoryExists() throws ExporterException {
+		File directoryTasks = new File(directoryPath);
+		if (!directoryTasks.exists()) {
+			if (!directoryTasks.mkdirs()) {
+				throw new ExporterException("Error: No se pudo crear el Directorio: " + directoryPath);
+			}
+		}
+
+		if (!directoryTasks.isDirectory()) {
+			throw new ExporterException("Error: La ruta no es un directorio: " + directoryPath);
+		}
+
+		if (!directoryTasks.canWrite()) {
+			throw new ExporterException("Error: No se tiene permiso de escritura en el directorio: " + directoryPath);
+		}
+	}
+
+	@Override
+	public void validateTasks(List<Task> tasks) throws ExporterException {
+		if (tasks == null || tasks.isEmpty()) {
+			throw new ExporterException("Error La lista esta vacia o es nula");
+		}
+
+		for (Task task : tasks) {
+			if (task == null) {
+				throw new ExporterException("Error: La lista contiene tarea/s nula/s");
+			}
+		}
+	}
+
+	@Override
+	public void createBackup(File file) throws IOException {
+		BackupRotation.copy(file.toPath(), backupGenerations);
+	}
+
+	@Override
+	public void setBackupGenerations(int generations) {
+		if (generations < 0) {
+			throw new IllegalArgumentException("Error: El numero de copias de seguridad no puede ser negativo");
+		}
+		this.backupGenerations = generations;
+	}
+
+	/**
+	 * Escribe las tareas en el orden recibido, sustituyendo el fichero anterior.
+	 * <p>
+	 * Conviene que las tareas lleguen ordenadas por fecha (como las exporta el modelo) para
+	 * que los rangos de fechas de cada grupo sean estrechos y se puedan saltar mas grupos.
+	 * </p>
+	 */
+	@Override
+	public void exportTasks(List<Task> tasks) throws ExporterException {
+		validateTasks(tasks);
+		ensureDirectoryExists();
+
+		File file = new File(filePath);
+		Path savePath = file.toPath();
+		Path tempPath = Paths.get(filePath + ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath), 1 << 16))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(codec.ordinal());
+				// Un solo recorrido: la lista puede ser una vista sin acceso por posicion eficiente
+				Iterator<Task> remaining = tasks.iterator();
+				for (int from = 0; from < tasks.size(); from += ROW_GROUP_SIZE) {
+					writeRowGroup(out, remaining, Math.min(ROW_GROUP_SIZE, tasks.size() - from), codec);
+				}
+			}
+			BackupRotation.replace(tempPath, savePath, backupGenerations);
+		} catch (IOException e) {
+			try {
+				Files.deleteIfExists(tempPath);
+			} catch (IOException ex) {
+				// El temporal se sobrescribira en la siguiente exportacion
+			}
+			throw new ExporterException("Error al exportar tareas al fichero columnar", e);
+		}
+	}
+
+	@Override
+	public List<Task> importTasks() throws ExporterException {
+		ensureDirectoryExists();
+		lastSkippedIDs = List.of();
+
+		// Filtrar tareas con identificadores unicos
+		List<Task> newTasks = new ArrayList<>();
+		Set<Integer> newIDs = new HashSet<>();
+		Set<Integer> skippedIDs = new LinkedHashSet<>();
+		for (Task task : readTasks(new TaskQuery())) {
+			if (cachedTaskIDs.contains(task.getIdentifier())) {
+				skippedIDs.add(task.getIdentifier());
+			} else if (newIDs.add(task.getIdentifier())) {
+				newTasks.add(task);
+			}
+		}
+		// Solo se actualiza la cache si el fichero se ha leido entero sin errores
+		cachedTaskIDs.addAll(newIDs);
+		lastSkippedIDs = List.copyOf(skippedIDs);
+		return newTasks;
+	}
+
+	@Override
+	public List<Integer> getSkippedIDs() {
+		return lastSkippedIDs;
+	}
+
+	/**
+	 * Lee las tareas del fichero que cumplen la consulta.
+	 * <p>
+	 * Los grupos cuyo minimo y maximo de fecha o prioridad quedan fuera de los rangos de la
+	 * consulta se saltan sin leerlos. Dentro de cada grupo se comprueban primero las
+	 * columnas numericas y solo se decodifican las cadenas de las filas que las cumplen.
+	 * </p>
+	 *
+	 * @param query la consulta. Se aplican sus filtros, su ordenacion y su paginacion.
+	 * @return las tareas que cumplen la consulta; una lista vacia si el fichero no existe.
+	 * @throws ExporterException si el fichero no se puede leer o no tiene el formato esperado.
+	 */
+	public List<Task> readTasks(TaskQuery query) throws ExporterException {
+		if (query == null) {
+			throw new ExporterException("Error: La consulta no puede ser nula");
+		}
+		Path path = Paths.get(filePath);
+		if (!Files.exists(path)) {
+			return new ArrayList<>();
+		}
+
+		int minDay = query.getDateFrom() == null ? Integer.MIN_VALUE : (int) query.getDateFrom().toEpochDay();
+		int maxDay = query.getDateTo() == null ? Integer.MAX_VALUE : (int) query.getDateTo().toEpochDay();
+		// Sin ordenacion se puede parar en cuanto se tienen las tareas pedidas
+		long wanted = query.getSortKey() == TaskQuery.SortKey.NONE ? (long) query.getOffset() + query.getLimit() : Long.MAX_VALUE;
+
+		List<Task> matching = new ArrayList<>();
+		int skipped = 0;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(GROUP_HEADER_SIZE);
+			readFully(channel, header.limit(8));
+			int version = header.getInt(4);
+			if (header.getInt(0) != MAGIC || version < 1 || version > VERSION) {
+				throw new ExporterException("Error: El fichero no tiene formato columnar valido");
+			}
+			// La compresion es la del fichero, no la de este exportador
+			CompressionCodec fileCodec = CompressionCodec.NONE;
+			if (version >= 2) {
+				readFully(channel, header.clear().limit(4));
+				fileCodec = CompressionCodec.values()[header.getInt(0)];
+			}
+			int headerSize = version >= 2 ? GROUP_HEADER_SIZE : GROUP_HEADER_SIZE_V1;
+
+			while (matching.size() < wanted && channel.position() < channel.size()) {
+				header.clear().limit(headerSize);
+				readFully(channel, header);
+				header.flip();
+				int rows = header.getInt();
+				header.position(header.position() + 8); // minimo y maximo de identificador
+				int groupMinPriority = header.getInt();
+				int groupMaxPriority = header.getInt();
+				header.position(header.position() + 8); // minimo y maximo de duracion
+				int groupMinDay = header.getInt();
+				int groupMaxDay = header.getInt();
+				int length = header.getInt();
+				int rawLength = version >= 2 ? header.getInt() : length;
+
+				boolean outsideDates = query.hasDateRange() && (groupMaxDay < minDay || groupMinDay > maxDay);
+				boolean outsidePriorities = query.hasPriorityRange()
+						&& (groupMaxPriority < query.getMinPriority() || groupMinPriority > query.getMaxPriority());
+				if (outsideDates || outsidePriorities) {
+					channel.position(channel.position() + length);
+					skipped++;
+					continue;
+				}
+
+				ByteBuffer data = ByteBuffer.allocate(length);
+				readFully(channel, data);
+				if (fileCodec != CompressionCodec.NONE) {
+					try (InputStream in = fileCodec.decompress(new ByteArrayInputStream(data.array()))) {
+						data = ByteBuffer.wrap(in.readNBytes(rawLength));
+					}
+				}
+				data.position(0);
+				readRowGroup(data, rows, query, matching, wanted);
+			}
+		} catch (IOException | RuntimeException e) {
+			throw new ExporterException("Error leyendo el fichero columnar", e);
+		}
+
+		lastSkippedRowGroups = skipped;
+		return query.apply(matching);
+	}
+
+	/**
+	 * @return el numero de grupos de filas que se salto la ultima llamada a {@link #readTasks(TaskQuery)}.
+	 */
+	public int getLastSkippedRowGroups() {
+		return lastSkippedRowGroups;
+	}
+
+	// Escribe las siguientes {@code rows} tareas del iterador como un grupo de filas
+	private static void writeRowGroup(DataOutputStream out, Iterator<Task> tasks, int rows, CompressionCodec codec) throws IOException {
+		int[] identifiers = new int[rows];
+		int[] priorities = new int[rows];
+		int[] durations = new int[rows];
+		int[] days = new int[rows];
+		long[] completed = new long[words(rows)];
+		String[] titles = new String[rows];
+		String[] contents = new String[rows];
+
+		int minDay = Integer.MAX_VALUE;
+		int maxDay = Integer.MIN_VALUE;
+		for (int i = 0; i < rows; i++) {
+			Task task = tasks.next();
+			identifiers[i] = task.getIdentifier();
+			priorities[i] = task.getPriority();
+			durations[i] = task.getEstimatedDuration();
+			LocalDate date = task.getDate();
+			days[i] = date == null ? NO_DATE : (int) date.toEpochDay();
+			if (date != null) {
+				minDay = Math.min(minDay, days[i]);
+				maxDay = Math.max(maxDay, days[i]);
+			}
+			if (task.isCompleted()) {
+				completed[i >>> 6] |= 1L << i;
+			}
+			titles[i] = task.getTitle();
+			contents[i] = task.getContent();
+		}
+
+		// Los datos se preparan antes para escribir su tamaño en la cabecera
+		ColumnBuffer data = new ColumnBuffer(rows * 32);
+		data.writeInts(identifiers);
+		data.writeInts(priorities);
+		data.writeInts(durations);
+		data.writeInts(days);
+		data.writeLongs(completed);
+		writeStrings(data, titles);
+		writeStrings(data, contents);
+
+		out.writeInt(rows);
+		writeRange(out, identifiers);
+		writeRange(out, priorities);
+		writeRange(out, durations);
+		out.writeInt(minDay);
+		out.writeInt(maxDay);
+		if (codec == CompressionCodec.NONE) {
+			out.writeInt(data.size());
+			out.writeInt(data.size());
+			data.writeTo(out);
+			return;
+		}
+
+		// Cada grupo se comprime por separado para poder saltarlo sin descomprimirlo
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.size() / 2);
+		try (DataOutputStream compressor = new DataOutputStream(codec.compress(compressed))) {
+			data.writeTo(compressor);
+		}
+		out.writeInt(compressed.size());
+		out.writeInt(data.size());
+		compressed.writeTo(out);
+	}
+
+	private static void writeRange(DataOutputStream out, int[] values) throws IOException {
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for (int value : values) {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		out.writeInt(min);
+		out.writeInt(max);
+	}
+
+	/**
+	 * Escribe una columna de cadenas con diccionario si al menos la mitad de los valores se
+	 * repiten, o con tabla de posiciones si no.
+	 */
+	private static void writeStrings(ColumnBuffer data, String[] values) throws IOException {
+		long[] nulls = new long[words(values.length)];
+		Map<String, Integer> dictionary = new HashMap<>();
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == null) {
+				nulls[i >>> 6] |= 1L << i;
+			} else {
+				dictionary.putIfAbsent(values[i], dictionary.size());
+			}
+		}
+
+		boolean useDictionary = dictionary.size() * 2 <= values.length;
+		data.writeByte(useDictionary ? DICTIONARY_ENCODING : OFFSET_ENCODING);
+		data.writeLongs(nulls);
+
+		if (useDictionary) {
+			String[] entries = new String[dictionary.size()];
+			dictionary.forEach((value, code) -> entries[code] = value);
+			data.writeInt(entries.length);
+			writeOffsets(data, entries);
+			for (String value : values) {
+				data.writeInt(value == null ? -1 : dictionary.get(value));
+			}
+		} else {
+			writeOffsets(data, values);
+		}
+	}
+
+	// Tabla de posiciones seguida de los bytes UTF-8 de todas las cadenas
+	private static void writeOffsets(ColumnBuffer data, String[] values) throws IOException {
+		byte[][] encoded = new byte[values.length][];
+		int offset = 0;
+		data.writeInt(0);
+		for (int i = 0; i < values.length; i++) {
+			encoded[i] = values[i] == null ? new byte[0] : values[i].getBytes(StandardCharsets.UTF_8);
+			offset += encoded[i].length;
+			data.writeInt(offset);
+		}
+		for (byte[] bytes : encoded) {
+			data.write(bytes);
+		}
+	}
+
+	private static void readRowGroup(ByteBuffer data, int rows, TaskQuery query, List<Task> matching, long wanted) {
+		int[] identifiers = readInts(data, rows);
+		int[] priorities = readInts(data, rows);
+		int[] durations = readInts(data, rows);
+		int[] days = readInts(data, rows);
+		long[] completed = readLongs(data, words(rows));
+		StringColumn titles = new StringColumn(data, rows);
+		StringColumn contents = new StringColumn(data, rows);
+
+		long minDay = query.getDateFrom() == null ? Long.MIN_VALUE : query.getDateFrom().toEpochDay();
+		long maxDay = query.getDateTo() == null ? Long.MAX_VALUE : query.getDateTo().toEpochDay();
+		for (int i = 0; i < rows && matching.size() < wanted; i++) {
+			boolean isCompleted = (completed[i >>> 6] & (1L << i)) != 0;
+			if (query.hasDateRange() && (days[i] == NO_DATE || days[i] < minDay || days[i] > maxDay)) {
+				continue;
+			}
+			if (query.hasPriorityRange() && (priorities[i] < query.getMinPriority() || priorities[i] > query.getMaxPriority())) {
+				continue;
+			}
+			if (query.getCompleted() != null && isCompleted != query.getCompleted()) {
+				continue;
+			}
+
+			LocalDate date = days[i] == NO_DATE ? null : LocalDate.ofEpochDay(days[i]);
+			Task task = new Task(identifiers[i], titles.get(i), date, contents.get(i), priorities[i], durations[i], isCompleted);
+			if (query.matchesText(task)) {
+				matching.add(task);
+			}
+		}
+	}
+
+	private static int[] readInts(ByteBuffer data, int count) {
+		int[] values = new int[count];
+		data.asIntBuffer().get(values);
+		data.position(data.position() + count * Integer.BYTES);
+		return values;
+	}
+
+	private static long[] readLongs(ByteBuffer data, int count) {
+		long[] values = new long[count];
+		data.asLongBuffer().get(values);
+		data.position(data.position() + count * Long.BYTES);
+		return values;
+	}
+
+	private static int words(int bits) {
+		return (bits + 63) >>> 6;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new EOFException("Fichero columnar truncado");
+			}
+		}
+	}
+
+	/**
+	 * Columna de cadenas de un grupo; las cadenas se decodifican al pedirlas.
+	 */
+	private static final class StringColumn {
+		private final ByteBuffer data;
+		private final long[] nulls;
+		private final int[] codes;
+		private final int[] offsets;
+		private final int bytesStart;
+		private final String[] decoded;
+
+		StringColumn(ByteBuffer data, int rows) {
+			this.data = data;
+			byte encoding = data.get();
+			nulls = readLongs(data, words(rows));
+			int entries = encoding == DICTIONARY_ENCODING ? data.getInt() : rows;
+			offsets = readInts(data, entries + 1);
+			bytesStart = data.position();
+			data.position(bytesStart + offsets[entries]);
+			codes = encoding == DICTIONARY_ENCODING ? readInts(data, rows) : null;
+			decoded = new String[entries];
+		}
+
+		String get(int row) {
+			if ((nulls[row >>> 6] & (1L << row)) != 0) {
+				return null;
+			}
+			int entry = codes == null ? row : codes[row];
+			if (decoded[entry] == null) {
+				decoded[entry] = new String(data.array(), data.arrayOffset() + bytesStart + offsets[entry],
+						offsets[entry + 1] - offsets[entry], StandardCharsets.UTF_8);
+			}
+			return decoded[entry];
+		}
+	}
+
+	/**
+	 * Buffer de bytes en memoria para preparar las columnas de un grupo.
+	 */
+	private static final class ColumnBuffer extends DataOutputStream {
+		ColumnBuffer(int capacity) {
+			super(new ByteArrayOutputStream(capacity));
+		}
+
+		void writeInts(int[] values) throws IOException {
+			for (int value : values) {
+				writeInt(value);
+			}
+		}
+
+		void writeLongs(long[] values) throws IOException {
+			for (long value : values) {
+				writeLong(value);
+			}
+		}
+
+		void writeTo(DataOutputStream target) throws IOException {
+			((ByteArrayOutputStream) out).writeTo(target);
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package model.exporter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import model.codec.LZCodec;
+
+/**
+ * Compresion opcional de los ficheros exportados.
+ * <p>
+ * Se elige junto al formato con un sufijo, por ejemplo {@code "csv.gz"} o
+ * {@code "json.lz"}, y el exportador añade la extension correspondiente al fichero.
+ * Todos los codecs trabajan en streaming, por lo que la memoria usada no depende del
+ * tamaño del fichero. Las copias de seguridad son copias del fichero, asi que quedan
+ * comprimidas igual que el.
+ * </p>
+ */
+public enum CompressionCodec {
+	/** Sin comprimir. */
+	NONE("", true),
+	/** GZIP estandar; los miembros concatenados se leen como un solo flujo. */
+	GZIP(".gz", true),
+	/** Deflate con cabecera zlib; no admite añadir datos a un fichero existente. */
+	DEFLATE(".deflate", false),
+	/** Compresor LZ propio ({@link LZCodec}), mas rapido y con menos ratio que GZIP. */
+	LZ(".lz", true);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final String extension;
+	private final boolean appendable;
+
+	CompressionCodec(String extension, boolean appendable) {
+		this.extension = extension;
+		this.appendable = appendable;
+	}
+
+	/**
+	 * @return la extension que se añade al nombre del fichero, vacia si no se comprime.
+	 */
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * @return {@code true} si se puede añadir un flujo comprimido al final de otro.
+	 */
+	public boolean isAppendable() {
+		return appendable;
+	}
+
+	/**
+	 * Envuelve un flujo de salida para comprimir lo que se escribe. Al cerrarlo se cierra
+	 * tambien el flujo original.
+	 */
+	public OutputStream compress(OutputStream out) throws IOException {
+		switch (this) {
+			case GZIP:
+				return new GZIPOutputStream(out, BUFFER_SIZE);
+			case DEFLATE:
+				return new DeflaterOutputStream(out, new Deflater(), BUFFER_SIZE) {
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							def.end();
+						}
+					}
+				};
+			case LZ:
+				return new LZCodec.LZOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+			case NONE:
+			default:
+				return new BufferedOutputStream(out, BUFFER_SIZE);
+		}
+	}
+
+	/**
+	 * Envuelve un flujo de entrada para descomprimir lo que se lee.
+	 */
+	public InputStream decompress(InputStream in) throws IOException {
+		switch (this) {
+			case GZIP:
+				return new GZIPInputStream(in, BUFFER_SIZE);
+			case DEFLATE:
+				return new InflaterInputStream(in, new Inflater(), BUFFER_SIZE) {
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							inf.end();
+						}
+					}
+				};
+			case LZ:
+				return new LZCodec.LZInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+			case NONE:
+			default:
+				return new BufferedInputStream(in, BUFFER_SIZE);
+		}
+	}
+
+	/**
+	 * Abre un fichero para leer texto UTF-8 descomprimiendolo.
+	 */
+	public BufferedReader newReader(Path path) throws IOException {
+		if (this == NONE) {
+			return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+		}
+		return new BufferedReader(new InputStreamReader(decompress(Files.newInputStream(path)), StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
+	/**
+	 * Abre un fichero para escribir texto UTF-8 comprimiendolo.
+	 *
+	 * @param options las opciones de apertura, por ejemplo {@code APPEND}; por defecto se crea o se trunca.
+	 */
+	public BufferedWriter newWriter(Path path, OpenOption... options) throws IOException {
+		if (this == NONE) {
+			return Files.newBufferedWriter(path, StandardCharsets.UTF_8, options);
+		}
+		return new BufferedWriter(new OutputStreamWriter(compress(Files.newOutputStream(path, options)), StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
+	/**
+	 * Obtiene el codec a partir del sufijo de un formato, por ejemplo {@code "gz"}.
+	 *
+	 * @param suffix el sufijo sin punto, o {@code null} para no comprimir.
+	 * @throws ExporterException si el sufijo no corresponde a ningun codec.
+	 */
+	public static CompressionCodec fromSuffix(String suffix) throws ExporterException {
+		if (suffix == null || suffix.isEmpty()) {
+			return NONE;
+		}
+		for (CompressionCodec codec : values()) {
+			if (codec != NONE && codec.extension.equals("." + suffix)) {
+				return codec;
+			}
+		}
+		throw new ExporterException("Error: La compresion: " + suffix + " aun no es soportada");
+	}
+}
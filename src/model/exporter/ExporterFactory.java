@@ -7,9 +7,15 @@ public class ExporterFactory {
 	// Tipos soportados
 	public static final String CSV = "csv";
 	public static final String JSON = "json";
+	public static final String NDJSON = "ndjson";
+	public static final String COLUMNAR = "columnar";
 
 	/**
 	 * Devuelve una instancia de {@link IExporter} segun el tipo.
+	 * <p>
+	 * El tipo puede incluir la compresion del fichero como sufijo: {@code "csv.gz"},
+	 * {@code "json.deflate"}, {@code "ndjson.lz"}... (ver {@link CompressionCodec}).
+	 * </p>
 	 *
 	 * @param type el tipo de exportador requerido.
 	 * @return una instancia de la clase correspondiente de {@code IExporter}.
@@ -20,11 +26,22 @@ public class ExporterFactory {
 			throw new ExporterException("Error: El tipo de exportador no puede ser nulo o vacio.");
 		}
 
-		switch (type.trim().toLowerCase()) {
+		// El formato puede llevar la compresion como sufijo, por ejemplo "csv.gz"
+		String[] parts = type.trim().toLowerCase().split("\\.", 2);
+		CompressionCodec codec = CompressionCodec.fromSuffix(parts.length > 1 ? parts[1] : null);
+
+		switch (parts[0]) {
 		case CSV:
-			return new CSVExporter();
+			return new CSVExporter(codec);
 		case JSON:
-			return new JSONExporter();
+			return new JSONExporter(codec);
+		case NDJSON:
+			if (!codec.isAppendable()) {
+				throw new ExporterException("Error: El formato " + NDJSON + " necesita una compresion que admita añadir datos");
+			}
+			return new NDJSONExporter(codec);
+		case COLUMNAR:
+			return new ColumnarExporter(codec);
 		default:
 			throw new ExporterException("Error: El formato: " + type + " aun no es soportado");
 		}
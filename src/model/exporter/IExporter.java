@@ -35,14 +35,29 @@ public interface IExporter {
 	/**
 	 * Crea una copia de seguridad del archivo a exportar.
 	 * <p>
-	 * Si el fichero existe, este metodo genera una copia con la extension {@code .bak}.
+	 * Si el fichero existe, este metodo genera una copia con la extension {@code .bak}. Las
+	 * copias anteriores se conservan como {@code .bak.1}, {@code .bak.2}, etc. hasta el numero
+	 * de generaciones configurado con {@link #setBackupGenerations(int)}.
 	 * Si no se puede crear la copia de seguridad, lanza una excepcion.
 	 * </p>
+	 * <p>
+	 * Las exportaciones no necesitan llamarlo: al sustituir el fichero, la version anterior
+	 * pasa a ser la copia sin duplicar sus datos. La importacion no modifica el fichero y
+	 * no crea copias.
+	 * </p>
 	 * 
 	 * @param file la ruta del fichero original.
 	 * @throws ExporterException si ocurre un error al intentar crear la copia de seguridad.
 	 */
 	void createBackup(File file) throws IOException;
+
+	/**
+	 * Establece cuantas copias de seguridad del fichero se conservan. Por defecto son 3.
+	 * 
+	 * @param generations el numero de copias; con 0 no se crean copias.
+	 * @throws IllegalArgumentException si el numero es negativo.
+	 */
+	void setBackupGenerations(int generations);
 	
 	/**
 	 * Exporta una lista de tareas a un fichero ubicado en la carpeta {@code ~/Tasks}.
@@ -52,13 +67,13 @@ public interface IExporter {
 	 * <ul>
 	 *   <li>Comprueba la lista de tareas utilizando {@link #validateTasks(List)} para garantizar que no es nula ni contiene valores erroneos.</li>
 	 *   <li>Comprueba la existencia del directorio donde se exporta y lo crea si es necesario mediante {@link #ensureDirectoryExists()}.</li>
-	 *   <li>Si ya existe un fichero en la ruta especificada, lee las tareas existentes con {@link #readTaskFromCSV()} y 
-	 *       crea una copia de seguridad con {@link #createBackup(File)}.</li>
+	 *   <li>Si ya existe un fichero en la ruta especificada, lee las tareas existentes con {@link #readTaskFromCSV()}.</li>
 	 *   <li>Combina las tareas nuevas con las existentes, evitando duplicados basados en el identificador de las tareas.</li>
 	 * </ul>
 	 * <p>
 	 * Cuando acaba, escribe todas las tareas (existentes y nuevas) en el fichero. Cada tarea se representa en una linea 
-	 * y sus atributos están delimitados por el delimitador requerido por la extension.
+	 * y sus atributos están delimitados por el delimitador requerido por la extension. La version anterior del
+	 * fichero se conserva como copia de seguridad.
 	 * </p>
 	 * 
 	 * @param tasks la lista de tareas a exportar.
@@ -73,9 +88,22 @@ public interface IExporter {
 	 * Este metodo lee las tareas desde un fichero delimitado y las devuelve, filtrando las tareas basadas en sus identificadores
 	 * para evitar duplicados. Si el fichero no existe o está vacio, devuelve una lista vacía.
 	 * </p>
+	 * <p>
+	 * Tampoco se devuelven las tareas cuyo identificador ya conoce el exportador: las del repositorio
+	 * que observa y las de importaciones anteriores. Esos identificadores se consultan con
+	 * {@link #getSkippedIDs()}.
+	 * </p>
 	 * 
 	 * @return la lista de tareas importadas, filtradas por identificadores unicos.
 	 * @throws ExporterException si ocurre un error al intentar leer el archivo o procesar las tareas.
 	 */	
 	List<Task> importTasks() throws ExporterException;
+
+	/**
+	 * Devuelve los identificadores de las tareas del fichero que la ultima llamada a
+	 * {@link #importTasks()} omitio porque ya existian.
+	 * 
+	 * @return los identificadores omitidos, en el orden del fichero; vacia si no se omitio ninguna.
+	 */
+	List<Integer> getSkippedIDs();
 }
\ No newline at end of file
@@ -7,30 +7,70 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import model.Task;
+import model.TaskEvent;
 import model.TaskObserver;
 
 public class JSONExporter implements IExporter, TaskObserver {
 	/* Atributos */
 	private final String directoryPath = System.getProperty("user.home") + "/Tasks";
-	private final String filePath = directoryPath + "/task.json";
+	private final String filePath;
+	private final CompressionCodec codec;
+	private int backupGenerations = BackupRotation.DEFAULT_GENERATIONS;
 
-	// Cache local de los IDs de las tareas
-	private Set<Integer> cachedTaskIDs = new HashSet<>();
+	// Cache local de los IDs de las tareas. Los eventos la actualizan desde el hilo de
+	// entrega mientras una importacion la consulta, por eso es un conjunto concurrente
+	private volatile Set<Integer> cachedTaskIDs = ConcurrentHashMap.newKeySet();
+
+	// Identificadores que la ultima importacion omitio porque ya estaban en la cache
+	private volatile List<Integer> lastSkippedIDs = List.of();
+
+	public JSONExporter() {
+		this(CompressionCodec.NONE);
+	}
+
+	/**
+	 * @param codec la compresion del fichero exportado, que añade su extension al nombre.
+	 */
+	public JSONExporter(CompressionCodec codec) {
+		this.codec = codec;
+		this.filePath = directoryPath + "/task.json" + codec.getExtension();
+	}
 
 	@Override
 	public void update(Set<Integer> taskIDs) {
-		this.cachedTaskIDs = new HashSet<>(taskIDs);
+		Set<Integer> ids = ConcurrentHashMap.newKeySet(taskIDs.size());
+		ids.addAll(taskIDs);
+		this.cachedTaskIDs = ids;
+	}
+
+	@Override
+	public void taskChanged(TaskEvent event) {
+		// Solo las altas y bajas cambian los identificadores conocidos
+		switch (event.getType()) {
+			case CREATED:
+				cachedTaskIDs.add(event.getIdentifier());
+				break;
+			case REMOVED:
+				cachedTaskIDs.remove(event.getIdentifier());
+				break;
+			default:
+				break;
+		}
 	}
 
 
@@ -66,8 +106,15 @@ public class JSONExporter implements IExporter, TaskObserver {
 	}
 	@Override
 	public void createBackup(File file) throws IOException {
-		Path backupPath = Paths.get(filePath + ".bak");
-		Files.copy(file.toPath(), backupPath, StandardCopyOption.REPLACE_EXISTING);
+		BackupRotation.copy(file.toPath(), backupGenerations);
+	}
+
+	@Override
+	public void setBackupGenerations(int generations) {
+		if (generations < 0) {
+			throw new IllegalArgumentException("Error: El numero de copias de seguridad no puede ser negativo");
+		}
+		this.backupGenerations = generations;
 	}
 	
 	public Set<Integer> readTasksID(List<Task> tasks) {
@@ -80,90 +127,115 @@ public class JSONExporter implements IExporter, TaskObserver {
 		return taskID;
 	}
 
+	/**
+	 * Exporta las tareas combinandolas con las que ya hay en el fichero.
+	 * <p>
+	 * El fichero existente se lee tarea a tarea con un {@link JsonReader} y cada una se
+	 * escribe en un fichero temporal con un {@link JsonWriter}, sustituida por la tarea en
+	 * memoria si su titulo o contenido han cambiado. Las tareas en memoria que no estaban
+	 * en el fichero se añaden al final. Al terminar, el temporal se mueve sobre el
+	 * original de forma atomica. Nunca se construye el JSON completo en memoria.
+	 * </p>
+	 */
 	@Override
 	public void exportTasks(List<Task> tasks) throws ExporterException {
 		validateTasks(tasks);
 		ensureDirectoryExists();
 
 		File file = new File(filePath);
-		List<Task> existingTasks = new ArrayList<>();
-		
-		// Si el archivo existe, hacer una copia de seguridad y cargar las tareas existentes
-		if (file.exists()) {
-			try {
-				createBackup(file);
-				existingTasks = importTasks();
-			} catch (IOException e) {
-				throw new ExporterException("Error leyendo el fichero existente para evitar duplicados", e);
-			}
-		}
-
-		// Usar la cache de IDs para evitar duplicados
-		Set<Integer> existingTaskIDs = readTasksID(existingTasks);
-		List<Task> allTasks = new ArrayList<>(existingTasks);
-		allTasks.sort((task1, task2) -> task1.getDate().compareTo(task2.getDate()));
-		allTasks.reversed();
+		Path savePath = file.toPath();
 
+		// Tareas en memoria por identificador, en el orden recibido
+		Map<Integer, Task> memoryTasks = new LinkedHashMap<>();
 		for (Task task : tasks) {
-			boolean taskExists = false;
-				
-			for (int i = 0; i < existingTaskIDs.size(); i++) {
-				Task existingTask = existingTasks.get(i);
-				if (existingTask.getIdentifier() == task.getIdentifier()) {
-					taskExists = true;
-					if (!existingTask.getTitle().equals(task.getTitle()) || !existingTask.getContent().equals(task.getContent())) {
-						allTasks.set(i, task);
+			memoryTasks.put(task.getIdentifier(), task);
+		}
+
+		Path tempPath = Paths.get(filePath + ".tmp");
+		try (JsonWriter writer = TaskCodecs.GSON.newJsonWriter(codec.newWriter(tempPath))) {
+			writer.beginArray();
+
+			// Si el archivo existe, copiar sus tareas
+			Set<Integer> existingTaskIDs = new HashSet<>();
+			if (file.exists() && file.length() > 0) {
+				try (JsonReader reader = TaskCodecs.GSON.newJsonReader(codec.newReader(savePath))) {
+					reader.beginArray();
+					while (reader.hasNext()) {
+						Task existingTask = TaskCodecs.TASK_ADAPTER.read(reader);
+						Task task = memoryTasks.get(existingTask.getIdentifier());
+						if (task != null && existingTaskIDs.add(task.getIdentifier())
+								&& (!Objects.equals(existingTask.getTitle(), task.getTitle()) || !Objects.equals(existingTask.getContent(), task.getContent()))) {
+							existingTask = task;
+						}
+						TaskCodecs.TASK_ADAPTER.write(writer, existingTask);
 					}
-					break;
+					reader.endArray();
 				}
 			}
-			if (!taskExists) {
-				allTasks.add(task);
+
+			for (Task task : memoryTasks.values()) {
+				if (!existingTaskIDs.contains(task.getIdentifier())) {
+					TaskCodecs.TASK_ADAPTER.write(writer, task);
+				}
 			}
+			writer.endArray();
+		} catch (IOException | JsonParseException | IllegalStateException e) {
+			deleteQuietly(tempPath);
+			throw new ExporterException("Error al exportar tareas al fichero JSON", e);
 		}
 
-		// Usar Gson para convertir la lista de tareas a JSON
-		Gson gson = new GsonBuilder().registerTypeAdapter(LocalDate.class, new LocalDateAdapter()).create();
-
-		String json = gson.toJson(allTasks);
-
-		// Guardar el JSON en el archivo
-		Path savePath = Paths.get(filePath);
+		// Sustituir el fichero solo cuando el temporal esta completo; el anterior queda como copia
 		try {
-			Files.write(savePath, json.getBytes(StandardCharsets.UTF_8));
+			BackupRotation.replace(tempPath, savePath, backupGenerations);
 		} catch (IOException e) {
+			deleteQuietly(tempPath);
 			throw new ExporterException("Error al exportar tareas al fichero JSON", e);
 		}
 	}
-	
+
+	private static void deleteQuietly(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			// El temporal se sobrescribira en la siguiente exportacion
+		}
+	}
+
 	public List<Task> importTasks() throws ExporterException {
 		ensureDirectoryExists();
+		lastSkippedIDs = List.of();
 
 		File file = new File(filePath);
 		if (!file.exists() || file.length() == 0) {
 			return new ArrayList<>();
 		}
 
-		try {
-			// Leer el contenido del archivo JSON
-			String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-
-			// Pasar el JSON a una lista de objetos Task
-			Gson gson = new GsonBuilder().registerTypeAdapter(LocalDate.class, new LocalDateAdapter()).create();
-			Task[] taskArray = gson.fromJson(json, Task[].class);
-			List<Task> tasks = List.of(taskArray);
-
-			// Filtrar tareas con identificadores unicos
-			List<Task> newTasks = new ArrayList<>();
-			for (Task task : tasks) {
-				if (!cachedTaskIDs.contains(task.getIdentifier())) {
+		// Leer las tareas una a una y filtrar las de identificadores unicos
+		List<Task> newTasks = new ArrayList<>();
+		Set<Integer> newIDs = new HashSet<>();
+		Set<Integer> skippedIDs = new LinkedHashSet<>();
+		try (JsonReader reader = TaskCodecs.GSON.newJsonReader(codec.newReader(file.toPath()))) {
+			reader.beginArray();
+			while (reader.hasNext()) {
+				Task task = TaskCodecs.TASK_ADAPTER.read(reader);
+				if (cachedTaskIDs.contains(task.getIdentifier())) {
+					skippedIDs.add(task.getIdentifier());
+				} else if (newIDs.add(task.getIdentifier())) {
 					newTasks.add(task);
-					cachedTaskIDs.add(task.getIdentifier());
 				}
 			}
-			return newTasks;
-		} catch (IOException e) {
+			reader.endArray();
+		} catch (IOException | JsonParseException | IllegalStateException e) {
 			throw new ExporterException("Error leyendo el fichero JSON", e);
 		}
+		// Solo se actualiza la cache si el fichero se ha leido entero sin errores
+		cachedTaskIDs.addAll(newIDs);
+		lastSkippedIDs = List.copyOf(skippedIDs);
+		return newTasks;
+	}
+
+	@Override
+	public List<Integer> getSkippedIDs() {
+		return lastSkippedIDs;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,556 @@
+package model.exporter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import com.google.gson.JsonParseException;
+
+import model.Task;
+import model.TaskEvent;
+import model.TaskObserver;
+
+/**
+ * Exportador en formato NDJSON (JSON Lines): una tarea por linea.
+ * <p>
+ * La exportacion es incremental y solo añade lineas al final del fichero. Un fichero
+ * auxiliar ({@code task.ndjson.checkpoint}) guarda una huella de cada tarea exportada,
+ * de modo que cada exportacion solo escribe las tareas nuevas o que han cambiado desde
+ * la anterior. Si una tarea aparece varias veces, la ultima linea es la que vale.
+ * </p>
+ * <p>
+ * Como observador del repositorio, el exportador apunta las tareas creadas o
+ * modificadas desde la ultima exportacion. Mientras recibe los eventos, cada
+ * exportacion solo serializa esas tareas y añade sus huellas al final del fichero
+ * auxiliar, asi que su coste depende de los cambios y no del numero de tareas. La
+ * primera exportacion tras {@link #update(Set)}, o si el fichero ha cambiado por fuera
+ * o la lista recibida no cuadra con los eventos, compara todas las tareas con las
+ * huellas guardadas.
+ * </p>
+ * <p>
+ * Cuando el fichero acumula demasiadas versiones antiguas se compacta, reescribiendolo
+ * con una sola linea por tarea; el fichero auxiliar se reescribe igual cuando acumula
+ * demasiadas huellas repetidas. Si el fichero auxiliar falta o no corresponde al
+ * fichero actual, se reconstruye leyendo el fichero.
+ * </p>
+ * <p>
+ * La importacion procesa las lineas en paralelo.
+ * </p>
+ */
+public class NDJSONExporter implements IExporter, TaskObserver {
+	/* Atributos */
+	private final String directoryPath = System.getProperty("user.home") + "/Tasks";
+	private final String filePath;
+	private final CompressionCodec codec;
+	private int backupGenerations = BackupRotation.DEFAULT_GENERATIONS;
+	private final String checkpointPath;
+
+	// Identifica el formato del fichero auxiliar
+	private static final int CHECKPOINT_MAGIC = 0x4E444A43;
+	private static final int CHECKPOINT_VERSION = 2;
+	// Tamaño de cada huella en el fichero auxiliar: identificador y huella
+	private static final int CHECKPOINT_ENTRY_BYTES = Integer.BYTES + Long.BYTES;
+
+	// Se compacta cuando hay mas del doble de lineas que de tareas
+	private static final int COMPACTION_RATIO = 2;
+	private static final int COMPACTION_MIN_LINES = 1024;
+
+	// Cache local de los IDs de las tareas. Los eventos la actualizan desde el hilo de
+	// entrega mientras una importacion la consulta, por eso es un conjunto concurrente
+	private volatile Set<Integer> cachedTaskIDs = ConcurrentHashMap.newKeySet();
+
+	// Identificadores que la ultima importacion omitio porque ya estaban en la cache
+	private volatile List<Integer> lastSkippedIDs = List.of();
+
+	// Tareas creadas o modificadas desde la ultima exportacion, segun los eventos
+	private final Map<Integer, Task> changedTasks = new ConcurrentHashMap<>();
+	// Numero de tareas del repositorio segun los eventos, para comprobar la lista a exportar
+	private final AtomicInteger trackedSize = new AtomicInteger();
+	// Se reciben eventos desde la ultima sincronizacion completa
+	private boolean tracking;
+	// Estado tras la ultima exportacion, si se puede continuar solo con los cambios
+	private Checkpoint current;
+
+	/**
+	 * Estado del fichero tras la ultima exportacion.
+	 * <p>
+	 * En el fichero auxiliar se guarda como una cabecera seguida de bloques; cada
+	 * exportacion añade un bloque con las huellas que cambian y el tamaño del fichero,
+	 * y al leerlo prevalecen los ultimos bloques.
+	 * </p>
+	 */
+	private static final class Checkpoint {
+		// Tamaño del fichero, para detectar cambios hechos por fuera
+		private long fileLength;
+		private long lines;
+		// Identificador -> huella de la ultima linea exportada
+		private final Map<Integer, Long> hashes = new HashMap<>();
+		// Huellas escritas en el fichero auxiliar, incluidas las que ya no valen
+		private long records;
+		// El fichero auxiliar no admite mas bloques y debe reescribirse entero
+		private boolean rewrite = true;
+
+		private boolean needsCompaction() {
+			return lines >= COMPACTION_MIN_LINES && lines > (long) COMPACTION_RATIO * hashes.size();
+		}
+
+		private boolean needsRewrite(int added) {
+			return rewrite || (records + added >= COMPACTION_MIN_LINES && records + added > (long) COMPACTION_RATIO * hashes.size());
+		}
+	}
+
+	public NDJSONExporter() {
+		this(CompressionCodec.NONE);
+	}
+
+	/**
+	 * @param codec la compresion del fichero exportado, que añade su extension al nombre.
+	 */
+	public NDJSONExporter(CompressionCodec codec) {
+		this.codec = codec;
+		this.filePath = directoryPath + "/task.ndjson" + codec.getExtension();
+		this.checkpointPath = filePath + ".checkpoint";
+	}
+
+	/**
+	 * Sincronizacion completa: a partir de ahora se siguen los eventos, pero la siguiente
+	 * exportacion compara todas las tareas porque se pudo perder algun cambio.
+	 */
+	@Override
+	public synchronized void update(Set<Integer> taskIDs) {
+		Set<Integer> ids = ConcurrentHashMap.newKeySet(taskIDs.size());
+		ids.addAll(taskIDs);
+		this.cachedTaskIDs = ids;
+		changedTasks.clear();
+		trackedSize.set(taskIDs.size());
+		tracking = true;
+		current = null;
+	}
+
+	@Override
+	public void taskChanged(TaskEvent event) {
+		int identifier = event.getIdentifier();
+		switch (event.getType()) {
+			case CREATED:
+				cachedTaskIDs.add(identifier);
+				trackedSize.incrementAndGet();
+				changedTasks.put(identifier, event.getTask());
+				break;
+			case MODIFIED:
+				changedTasks.put(identifier, event.getTask());
+				break;
+			case REMOVED:
+				// Las tareas eliminadas no se exportan, pero sus lineas anteriores se conservan
+				cachedTaskIDs.remove(identifier);
+				trackedSize.decrementAndGet();
+				changedTasks.remove(identifier);
+				break;
+			default:
+				break;
+		}
+	}
+
+	@Override
+	public void ensureDirectoryExists() throws ExporterException {
+		File directoryTasks = new File(directoryPath);
+		if (!directoryTasks.exists()) {
+			if (!directoryTasks.mkdirs()) {
+				throw new ExporterException("Error: No se pudo crear el Directorio: " + directoryPath);
+			}
+		}
+
+		if (!directoryTasks.isDirectory()) {
+			throw new ExporterException("Error: La ruta no es un directorio: " + directoryPath);
+		}
+
+		if (!directoryTasks.canWrite()) {
+			throw new ExporterException("Error: No se tiene permiso de escritura en el directorio: " + directoryPath);
+		}
+	}
+
+	@Override
+	public void validateTasks(List<Task> tasks) throws ExporterException {
+		if (tasks == null || tasks.isEmpty()) {
+			throw new ExporterException("Error La lista esta vacia o es nula");
+		}
+
+		for (Task task : tasks) {
+			if (task == null) {
+				throw new ExporterException("Error: La lista contiene tarea/s nula/s");
+			}
+		}
+	}
+
+	/**
+	 * Crea una copia real del fichero. Las exportaciones no la usan: al compactar, la
+	 * version anterior del fichero queda como copia, y el resto solo añaden lineas.
+	 */
+	@Override
+	public void createBackup(File file) throws IOException {
+		BackupRotation.copy(file.toPath(), backupGenerations);
+	}
+
+	@Override
+	public void setBackupGenerations(int generations) {
+		if (generations < 0) {
+			throw new IllegalArgumentException("Error: El numero de copias de seguridad no puede ser negativo");
+		}
+		this.backupGenerations = generations;
+	}
+
+	/**
+	 * Añade al final del fichero las tareas nuevas o modificadas desde la ultima exportacion.
+	 * <p>
+	 * Si el exportador sigue los eventos del repositorio y el fichero no ha cambiado
+	 * desde su ultima exportacion, solo se comparan las tareas de los eventos recibidos
+	 * desde entonces; si no, se comparan todas las de {@code tasks}.
+	 * </p>
+	 * <p>
+	 * Si la escritura falla, el fichero se recorta a su tamaño anterior para no dejar
+	 * lineas a medias.
+	 * </p>
+	 */
+	@Override
+	public synchronized void exportTasks(List<Task> tasks) throws ExporterException {
+		validateTasks(tasks);
+		ensureDirectoryExists();
+
+		Path savePath = Paths.get(filePath);
+		long fileLength = fileLength(savePath);
+		// Si algo falla, la siguiente exportacion vuelve a comparar todas las tareas
+		Checkpoint checkpoint = current;
+		current = null;
+
+		Collection<Task> candidates;
+		if (checkpoint != null && checkpoint.fileLength == fileLength && trackedSize.get() == tasks.size()) {
+			candidates = new ArrayList<>(changedTasks.values());
+		} else {
+			checkpoint = loadCheckpoint(savePath, fileLength);
+			candidates = tasks;
+			trackedSize.set(tasks.size());
+		}
+
+		// Lineas y huellas de las tareas nuevas o modificadas; su memoria depende de los cambios
+		List<String> changedLines = new ArrayList<>();
+		Map<Integer, Long> changedHashes = new HashMap<>();
+		for (Task task : candidates) {
+			String line = TaskCodecs.TASK_ADAPTER.toJson(task);
+			long hash = hash(line);
+			Long previous = checkpoint.hashes.put(task.getIdentifier(), hash);
+			if (previous == null || previous != hash) {
+				changedLines.add(line);
+				changedHashes.put(task.getIdentifier(), hash);
+			}
+		}
+
+		if (!changedLines.isEmpty()) {
+			long originalLength = checkpoint.fileLength;
+			try {
+				try (BufferedWriter writer = codec.newWriter(savePath, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+					for (String line : changedLines) {
+						writer.write(line);
+						writer.write('\n');
+					}
+				}
+				checkpoint.lines += changedLines.size();
+				checkpoint.fileLength = Files.size(savePath);
+			} catch (IOException e) {
+				truncate(savePath, originalLength);
+				throw new ExporterException("Error al exportar tareas al fichero NDJSON", e);
+			}
+		}
+
+		if (checkpoint.needsCompaction()) {
+			compact(savePath, checkpoint);
+			checkpoint.rewrite = true;
+		}
+		if (checkpoint.needsRewrite(changedHashes.size())) {
+			saveCheckpoint(checkpoint);
+		} else if (!changedHashes.isEmpty()) {
+			appendCheckpoint(checkpoint, changedHashes);
+		}
+
+		// Los cambios que lleguen mientras tanto quedan para la siguiente exportacion
+		for (Task task : candidates) {
+			changedTasks.remove(task.getIdentifier(), task);
+		}
+		if (tracking) {
+			current = checkpoint;
+		}
+	}
+
+	private static long fileLength(Path savePath) throws ExporterException {
+		try {
+			return Files.exists(savePath) ? Files.size(savePath) : 0;
+		} catch (IOException e) {
+			throw new ExporterException("Error leyendo el fichero NDJSON", e);
+		}
+	}
+
+	/**
+	 * Importa las tareas del fichero procesando las lineas en paralelo.
+	 * <p>
+	 * Si una tarea aparece en varias lineas se devuelve la ultima version, en la posicion
+	 * de su primera aparicion.
+	 * </p>
+	 */
+	@Override
+	public List<Task> importTasks() throws ExporterException {
+		ensureDirectoryExists();
+		lastSkippedIDs = List.of();
+
+		File file = new File(filePath);
+		if (!file.exists() || file.length() == 0) {
+			return new ArrayList<>();
+		}
+
+		Map<Integer, Task> fileTasks = new LinkedHashMap<>();
+		List<String> invalidStrings = new ArrayList<>();
+		Path path = file.toPath();
+		try (BufferedReader reader = codec == CompressionCodec.NONE ? null : codec.newReader(path);
+				Stream<String> lines = reader == null ? Files.lines(path, StandardCharsets.UTF_8) : reader.lines()) {
+			// Files.lines reparte el fichero entre hilos; si esta comprimido se reparten bloques de lineas
+			List<Object> parsed = lines.parallel().map(NDJSONExporter::parseLine).toList();
+			for (Object result : parsed) {
+				if (result instanceof Task task) {
+					fileTasks.put(task.getIdentifier(), task);
+				} else if (result != null) {
+					invalidStrings.add((String) result);
+				}
+			}
+		} catch (IOException | UncheckedIOException e) {
+			throw new ExporterException("Error leyendo el fichero NDJSON", e);
+		}
+
+		if (!invalidStrings.isEmpty()) {
+			throw new ExporterException("Errores al procesar el archivo NDJSON. Detalles:\n" + String.join("\n", invalidStrings));
+		}
+
+		// Filtrar tareas con identificadores unicos
+		List<Task> newTasks = new ArrayList<>();
+		List<Integer> skippedIDs = new ArrayList<>();
+		for (Task task : fileTasks.values()) {
+			if (cachedTaskIDs.add(task.getIdentifier())) {
+				newTasks.add(task);
+			} else {
+				skippedIDs.add(task.getIdentifier());
+			}
+		}
+		lastSkippedIDs = List.copyOf(skippedIDs);
+		return newTasks;
+	}
+
+	@Override
+	public List<Integer> getSkippedIDs() {
+		return lastSkippedIDs;
+	}
+
+	// Deshace una escritura incompleta al final del fichero
+	private static void truncate(Path path, long length) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(length);
+		} catch (IOException e) {
+			// Sin poder recortar, el fichero auxiliar no coincidira y se reconstruira
+		}
+	}
+
+	/**
+	 * @return la tarea de la linea, el mensaje de error si no es valida o {@code null} si esta vacia.
+	 */
+	private static Object parseLine(String line) {
+		if (line.isBlank()) {
+			return null;
+		}
+		try {
+			Task task = TaskCodecs.TASK_ADAPTER.fromJson(line);
+			if (task == null) {
+				return "Linea invalida: \"" + line + "\" || Error: La tarea es nula";
+			}
+			return task;
+		} catch (IOException | JsonParseException | IllegalStateException e) {
+			return "Linea invalida: \"" + line + "\" || Error: " + e.getMessage();
+		}
+	}
+
+	/**
+	 * Reescribe el fichero con una sola linea por tarea, la ultima de cada una.
+	 */
+	private void compact(Path savePath, Checkpoint checkpoint) throws ExporterException {
+		Path tempPath = Paths.get(filePath + ".tmp");
+		try {
+			// Ultima linea de cada tarea, en el orden de su primera aparicion
+			Map<Integer, String> latest = new LinkedHashMap<>();
+			try (BufferedReader reader = codec.newReader(savePath)) {
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					if (!line.isBlank()) {
+						latest.put(TaskCodecs.TASK_ADAPTER.fromJson(line).getIdentifier(), line);
+					}
+				}
+			}
+
+			try (BufferedWriter writer = codec.newWriter(tempPath)) {
+				for (String line : latest.values()) {
+					writer.write(line);
+					writer.write('\n');
+				}
+			}
+			BackupRotation.replace(tempPath, savePath, backupGenerations);
+
+			checkpoint.lines = latest.size();
+			checkpoint.fileLength = Files.size(savePath);
+		} catch (IOException | JsonParseException | IllegalStateException e) {
+			try {
+				Files.deleteIfExists(tempPath);
+			} catch (IOException ex) {
+				// El temporal se sobrescribira en la siguiente compactacion
+			}
+			throw new ExporterException("Error al compactar el fichero NDJSON", e);
+		}
+	}
+
+	/**
+	 * Lee el fichero auxiliar o, si no existe o no corresponde al fichero actual, lo
+	 * reconstruye leyendo el fichero entero.
+	 */
+	private Checkpoint loadCheckpoint(Path savePath, long fileLength) throws ExporterException {
+		Path path = Paths.get(checkpointPath);
+		if (Files.exists(path)) {
+			try {
+				Checkpoint checkpoint = readCheckpoint(ByteBuffer.wrap(Files.readAllBytes(path)));
+				if (checkpoint != null && checkpoint.fileLength == fileLength) {
+					return checkpoint;
+				}
+			} catch (IOException e) {
+				// Fichero auxiliar ilegible: se reconstruye
+			}
+		}
+
+		Checkpoint checkpoint = new Checkpoint();
+		checkpoint.fileLength = fileLength;
+		if (fileLength == 0) {
+			return checkpoint;
+		}
+		try (BufferedReader reader = codec.newReader(savePath)) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				if (line.isBlank()) {
+					continue;
+				}
+				// La huella se calcula sobre la linea que se escribiria hoy para la tarea
+				Task task = TaskCodecs.TASK_ADAPTER.fromJson(line);
+				checkpoint.hashes.put(task.getIdentifier(), hash(TaskCodecs.TASK_ADAPTER.toJson(task)));
+				checkpoint.lines++;
+			}
+		} catch (IOException | JsonParseException | IllegalStateException e) {
+			throw new ExporterException("Error leyendo el fichero NDJSON existente", e);
+		}
+		return checkpoint;
+	}
+
+	/**
+	 * Lee los bloques del fichero auxiliar. Un bloque incompleto al final (por una
+	 * escritura interrumpida) se descarta y obliga a reescribir el fichero.
+	 *
+	 * @return el estado leido, o {@code null} si el fichero no tiene el formato esperado.
+	 */
+	private static Checkpoint readCheckpoint(ByteBuffer in) {
+		if (in.remaining() < 2 * Integer.BYTES || in.getInt() != CHECKPOINT_MAGIC || in.getInt() != CHECKPOINT_VERSION) {
+			return null;
+		}
+		Checkpoint checkpoint = new Checkpoint();
+		checkpoint.fileLength = -1;
+		checkpoint.rewrite = false;
+		while (in.hasRemaining()) {
+			int count = in.remaining() >= Integer.BYTES ? in.getInt(in.position()) : -1;
+			long blockBytes = Integer.BYTES + (long) count * CHECKPOINT_ENTRY_BYTES + 2 * Long.BYTES;
+			if (count < 0 || in.remaining() < blockBytes) {
+				checkpoint.rewrite = true;
+				break;
+			}
+			in.getInt();
+			for (int i = 0; i < count; i++) {
+				checkpoint.hashes.put(in.getInt(), in.getLong());
+			}
+			checkpoint.fileLength = in.getLong();
+			checkpoint.lines = in.getLong();
+			checkpoint.records += count;
+		}
+		return checkpoint;
+	}
+
+	// Reescribe el fichero auxiliar con un unico bloque
+	private void saveCheckpoint(Checkpoint checkpoint) throws ExporterException {
+		Path path = Paths.get(checkpointPath);
+		Path tempPath = Paths.get(checkpointPath + ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+				out.writeInt(CHECKPOINT_MAGIC);
+				out.writeInt(CHECKPOINT_VERSION);
+				writeCheckpointBlock(out, checkpoint.hashes, checkpoint);
+			}
+			Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			checkpoint.records = checkpoint.hashes.size();
+			checkpoint.rewrite = false;
+		} catch (IOException e) {
+			// Las lineas ya estan escritas: la siguiente exportacion reconstruye el estado
+			throw new ExporterException("Error guardando el estado de la exportacion NDJSON", e);
+		}
+	}
+
+	// Añade al fichero auxiliar un bloque con las huellas que han cambiado
+	private void appendCheckpoint(Checkpoint checkpoint, Map<Integer, Long> changedHashes) throws ExporterException {
+		Path path = Paths.get(checkpointPath);
+		if (!Files.exists(path)) {
+			saveCheckpoint(checkpoint);
+			return;
+		}
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.APPEND)))) {
+			writeCheckpointBlock(out, changedHashes, checkpoint);
+			checkpoint.records += changedHashes.size();
+		} catch (IOException e) {
+			// Un bloque a medias se descarta al leerlo y el estado se reconstruye
+			throw new ExporterException("Error guardando el estado de la exportacion NDJSON", e);
+		}
+	}
+
+	private static void writeCheckpointBlock(DataOutputStream out, Map<Integer, Long> hashes, Checkpoint checkpoint) throws IOException {
+		out.writeInt(hashes.size());
+		for (Map.Entry<Integer, Long> entry : hashes.entrySet()) {
+			out.writeInt(entry.getKey());
+			out.writeLong(entry.getValue());
+		}
+		out.writeLong(checkpoint.fileLength);
+		out.writeLong(checkpoint.lines);
+	}
+
+	// FNV-1a de 64 bits
+	private static long hash(String line) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < line.length(); i++) {
+			hash ^= line.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+}
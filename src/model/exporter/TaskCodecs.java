@@ -0,0 +1,36 @@
+package model.exporter;
+
+import java.time.format.DateTimeFormatter;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import model.Task;
+
+/**
+ * Serializadores y formateadores compartidos para las tareas.
+ * <p>
+ * Todos son inmutables y seguros entre hilos, asi que se crean una sola vez y se
+ * reutilizan en cada exportacion, importacion o fila mostrada, en lugar de construir
+ * uno nuevo por llamada o por tarea.
+ * </p>
+ */
+public final class TaskCodecs {
+	/**
+	 * Formato de las fechas en los ficheros y en la vista, por ejemplo "2024-12-06".
+	 */
+	public static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+	/**
+	 * Adaptador que lee y escribe una tarea campo a campo, sin reflexion.
+	 */
+	public static final TaskTypeAdapter TASK_ADAPTER = new TaskTypeAdapter();
+
+	/**
+	 * Instancia de Gson con el adaptador de tareas registrado.
+	 */
+	public static final Gson GSON = new GsonBuilder().registerTypeAdapter(Task.class, TASK_ADAPTER).create();
+
+	private TaskCodecs() {
+	}
+}
@@ -0,0 +1,114 @@
+package model.exporter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import model.Task;
+
+/**
+ * Adaptador de Gson que escribe y lee una {@link Task} campo a campo.
+ * <p>
+ * Sustituye a la serializacion por reflexion de Gson y al antiguo adaptador de
+ * {@link LocalDate}, que pasaba cada fecha por un arbol de {@code JsonElement}. El
+ * formato es el mismo que se generaba hasta ahora: un objeto con los atributos de la
+ * tarea y la fecha en ISO-8601 (por ejemplo, "2024-12-06"), de modo que los ficheros
+ * existentes se siguen pudiendo leer.
+ * </p>
+ * <p>
+ * Al leer se ignoran los atributos desconocidos y los que falten toman su valor por
+ * defecto, igual que con la reflexion.
+ * </p>
+ */
+public final class TaskTypeAdapter extends TypeAdapter<Task> {
+
+	@Override
+	public void write(JsonWriter out, Task task) throws IOException {
+		if (task == null) {
+			out.nullValue();
+			return;
+		}
+		out.beginObject();
+		out.name("identifier").value(task.getIdentifier());
+		if (task.getTitle() != null) {
+			out.name("title").value(task.getTitle());
+		}
+		if (task.getDate() != null) {
+			out.name("date").value(task.getDate().toString());
+		}
+		if (task.getContent() != null) {
+			out.name("content").value(task.getContent());
+		}
+		out.name("priority").value(task.getPriority());
+		out.name("estimatedDuration").value(task.getEstimatedDuration());
+		out.name("completed").value(task.isCompleted());
+		out.endObject();
+	}
+
+	@Override
+	public Task read(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+
+		int identifier = 0;
+		String title = null;
+		LocalDate date = null;
+		String content = null;
+		int priority = 0;
+		int estimatedDuration = 0;
+		boolean completed = false;
+
+		in.beginObject();
+		while (in.hasNext()) {
+			String name = in.nextName();
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				continue;
+			}
+			switch (name) {
+				case "identifier":
+					identifier = in.nextInt();
+					break;
+				case "title":
+					title = in.nextString();
+					break;
+				case "date":
+					date = parseDate(in.nextString());
+					break;
+				case "content":
+					content = in.nextString();
+					break;
+				case "priority":
+					priority = in.nextInt();
+					break;
+				case "estimatedDuration":
+					estimatedDuration = in.nextInt();
+					break;
+				case "completed":
+					completed = in.nextBoolean();
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return new Task(identifier, title, date, content, priority, estimatedDuration, completed);
+	}
+
+	private static LocalDate parseDate(String value) {
+		try {
+			return LocalDate.parse(value);
+		} catch (DateTimeParseException e) {
+			throw new JsonParseException("Error: Formato de fecha erroneo, valido: YYYY-MM-DD", e);
+		}
+	}
+}
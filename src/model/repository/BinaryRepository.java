@@ -6,18 +6,21 @@
 package model.repository;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import model.Task;
 
@@ -25,66 +28,175 @@ import model.Task;
 public class BinaryRepository implements IRepository {
 	/* Atributos */
 	private final String filePath = System.getProperty("user.home") + "/task.bin";
-	private List<Task> tasks = new ArrayList<>();
-	private Set<Integer> usedIDs = new HashSet<>();
+	// Tareas indexadas por identificador, tambien fuente del conjunto de IDs usados.
+	// Los escritores se serializan con el monitor del repositorio; los lectores usan
+	// instantaneas inmutables del almacen sin bloquear.
+	private final TaskStore tasks = new TaskStore();
+	// Cambios desde el ultimo guardado, para no reescribir el fichero si no hay ninguno
+	private final ChangeTracker changes = new ChangeTracker();
+	// Identificadores de las tareas nuevas, con la marca de agua en task.bin.ids
+	private IdAllocator idAllocator = new SequentialIdAllocator(Paths.get(filePath + ".ids"));
+
+	// Modo diario: cada operacion se añade a un log que se compacta en segundo plano
+	private static final long COMPACTION_THRESHOLD = 4L * 1024 * 1024;
+	private static final long COMPACTION_PERIOD_SECONDS = 30;
+
+	private final boolean journaled;
+	private final TaskJournal journal;
+	private final Object compactionLock = new Object();
+	private ScheduledExecutorService compactor;
+	// Ultimo fallo de la compactacion en segundo plano, pendiente de comunicar en saveTasks
+	private volatile RepositoryException compactionFailure;
+
+
+	/* Constructores */
+	public BinaryRepository() {
+		this(false);
+	}
+
+	/**
+	 * Crea un repositorio binario.
+	 *
+	 * @param journaled si es {@code true}, cada operacion se persiste al momento en un
+	 *                  diario {@code task.bin.log} que se integra periodicamente en
+	 *                  {@code task.bin}; si es {@code false}, solo se guarda al llamar
+	 *                  a {@link #saveTasks()}. El diario se fuerza a disco en cada
+	 *                  operacion ({@link JournalSync#ALWAYS}).
+	 */
+	public BinaryRepository(boolean journaled) {
+		this(journaled, JournalSync.ALWAYS);
+	}
+
+	/**
+	 * Crea un repositorio binario eligiendo cuando se fuerza a disco el diario.
+	 *
+	 * @param journaled si se usa el diario de operaciones.
+	 * @param sync      la politica de escritura a disco del diario; se ignora sin diario.
+	 */
+	public BinaryRepository(boolean journaled, JournalSync sync) {
+		this.journaled = journaled;
+		this.journal = journaled ? new TaskJournal(filePath + ".log", sync) : null;
+	}
 
 
 	@Override
-	public void loadTasks() throws RepositoryException {
+	public synchronized void loadTasks() throws RepositoryException {
 		// Ruta del fichero binario en el directorio del usuario
 		File file = new File(filePath);
 
+		// Se carga en un indice aparte que sustituye al actual al terminar
+		TaskIndex loaded = new TaskIndex();
+
 		// Verificamos si el archivo existe
 		if (file.exists()) {
-			try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-				// Leemos el objeto serializado del archivo
-				Object obj = ois.readObject();
-
-				// Verificamos que sea una lista
-				if (obj instanceof List<?>) {
-					// Creamos una lista temporal
-					List<?> tempList = (List<?>) obj;
-
-					// Inicializamos la lista 'tasks' (limpia y vacía)
-					tasks = new ArrayList<>();
-
-					// Iteramos sobre cada elemento de la lista temporal
-					for (Object item : tempList) {
-						// Verificamos si el elemento actual es del tipo Task
-						if (item instanceof Task) {
-							// Hacemos un cast seguro y añadimos el elemento a 'tasks'
-							tasks.add((Task) item);
-
-							// Añadir identificador al conjunto de los IDs
-							usedIDs.add(((Task) item).getIdentifier());
-						} else {
-							throw new RepositoryException("Error: El archivo contiene elementos que no son de tipo Task");
-						}
-					}
-					
-				} else {
-					throw new RepositoryException("Error: El archivo no contiene una lista de tareas");
+			try {
+				// Los ficheros de versiones anteriores se convierten una sola vez
+				if (LegacyBinaryMigrator.isLegacy(file.toPath())) {
+					LegacyBinaryMigrator.migrate(file.toPath());
 				}
-			} catch (IOException | ClassNotFoundException e) {
+			} catch (IOException e) {
 				throw new RepositoryException("Error: Carga de Fichero Binario", e);
 			}
+
+			if (file.length() > 0) {
+				try (TaskCodec.Reader reader = new TaskCodec.Reader(Files.newInputStream(file.toPath()))) {
+					// Inicializamos el indice con el tamaño indicado en la cabecera,
+					// acotado por el tamaño del fichero por si la cabecera estuviera dañada
+					int expectedSize = (int) Math.min(reader.readHeader(), file.length());
+					loaded = new TaskIndex(expectedSize);
+
+					// Leemos todas las tareas y se indexan de una vez; los identificadores
+					// repetidos se ignoran
+					List<Task> read = new ArrayList<>(expectedSize);
+					for (Task task = reader.readTask(); task != null; task = reader.readTask()) {
+						read.add(task);
+					}
+					loaded.addAll(read);
+				} catch (IOException e) {
+					throw new RepositoryException("Error: Carga de Fichero Binario", e);
+				}
+			}
+		}
+
+		if (journaled) {
+			// Aplicar las operaciones registradas despues de la ultima instantanea
+			try {
+				journal.replay(loaded);
+			} catch (IOException e) {
+				throw new RepositoryException("Error: Lectura del diario de operaciones", e);
+			}
+		}
+		tasks.reset(loaded);
+		observeAll(idAllocator, loaded.ids());
+		if (journaled) {
+			startCompactor();
 		}
+
+		// Lo cargado ya esta en disco
+		changes.clear();
 	}
 
 	@Override
 	public void saveTasks() throws RepositoryException {
-		// Comprobar si la lista esta vacia
-		if (tasks == null) {
-			throw new RepositoryException("Error: Las lista de tareas esta vacia");
-		}
+		// El indice no admite tareas nulas, no hace falta recorrerlo
+
+		// Un guardado a la vez: todos escriben en el mismo temporal, y la instantanea se
+		// toma dentro del bloqueo para que una mas antigua no sustituya a una mas nueva
+		synchronized (compactionLock) {
+			// Si fallo la compactacion en segundo plano se reintenta aqui y, si vuelve a
+			// fallar, se comunica con el error del guardado
+			RepositoryException failure = compactionFailure;
+			compactionFailure = null;
+
+			// Sin cambios desde el ultimo guardado no hay nada que escribir
+			ChangeTracker.Delta delta = changes.drain();
+			if (delta.isEmpty() && failure == null) {
+				changes.saved(0);
+				return;
+			}
+
+			try {
+				if (journaled) {
+					// Las operaciones ya estan en el diario, basta con integrarlo en la instantanea
+					changes.saved(compactJournal());
+					return;
+				}
 
-		// Comprobar si hay tareas vacias
-		for (Task task : tasks) {
-			if (task == null) {
-				throw new RepositoryException("Error: La lista contiene una tarea nula");
+				// La instantanea es inmutable, no hace falta bloquear a los escritores
+				List<Task> tasksToSave = tasks.snapshot().tasks();
+				writeSnapshot(tasksToSave);
+				changes.saved(tasksToSave.size());
+			} catch (RepositoryException e) {
+				// Los cambios siguen pendientes para el siguiente guardado
+				for (int i = 0; i < delta.size(); i++) {
+					changes.restore(delta.identifier(i), delta.change(i));
+				}
+				if (failure != null && failure != e) {
+					e.addSuppressed(failure);
+				}
+				throw e;
 			}
 		}
-		
+	}
+
+	/**
+	 * Devuelve el registro de cambios pendientes y los contadores de escritura.
+	 */
+	public ChangeTracker getChangeTracker() {
+		return changes;
+	}
+
+	/**
+	 * Escribe la instantanea completa en un fichero temporal y lo mueve sobre
+	 * {@code task.bin}, de modo que un fallo a mitad no deja el fichero corrupto.
+	 * Se llama siempre con {@code compactionLock}, porque el temporal es compartido.
+	 * <p>
+	 * El temporal se fuerza a disco antes de moverlo, y el directorio despues, para que
+	 * tras un corte de luz {@code task.bin} sea la instantanea completa antes de que
+	 * {@link #compactJournal()} descarte el diario que la cubria.
+	 * </p>
+	 */
+	private void writeSnapshot(List<Task> tasksToSave) throws RepositoryException {
 		// Ruta del fichero binario
 		File file = new File(filePath);
 
@@ -93,13 +205,140 @@ public class BinaryRepository implements IRepository {
 			throw new RepositoryException("Error: No se puede escribir en fichero: " + filePath);
 		}
 
-		try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
-			// Usar una copia inmutable para evitar modificaciones de la original
-			List<Task> tasksToSave = List.copyOf(tasks);
-			oos.writeObject(tasksToSave);
+		Path tempPath = Paths.get(filePath + ".tmp");
+		try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+				TaskCodec.Writer writer = new TaskCodec.Writer(Channels.newOutputStream(channel))) {
+			writer.writeHeader(tasksToSave.size());
+			for (Task task : tasksToSave) {
+				writer.writeTask(task);
+			}
+			writer.writeEnd();
+			writer.flush();
+			channel.force(true);
 		} catch (IOException e) {
 			throw new RepositoryException("Error: Fallo en la exportacion de Tareas", e);
 		}
+
+		try {
+			Files.move(tempPath, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			TaskJournal.forceDirectory(file.toPath());
+		} catch (IOException e) {
+			throw new RepositoryException("Error: No se puede escribir en fichero: " + filePath, e);
+		}
+	}
+
+	/**
+	 * Integra el diario en una nueva instantanea.
+	 * <p>
+	 * Solo se bloquea a los escritores mientras se copia la lista y se rota el diario;
+	 * la escritura de la instantanea se hace fuera del bloqueo. Si falla, el diario
+	 * rotado se conserva y se volvera a aplicar en la siguiente carga o compactacion.
+	 * El diario rotado solo se descarta cuando la instantanea ya esta en disco.
+	 * </p>
+	 *
+	 * @return el numero de tareas escritas en la instantanea.
+	 */
+	private int compactJournal() throws RepositoryException {
+		synchronized (compactionLock) {
+			List<Task> tasksToSave;
+			synchronized (this) {
+				tasksToSave = tasks.snapshot().tasks();
+				try {
+					journal.rotate();
+				} catch (IOException e) {
+					throw new RepositoryException("Error: No se pudo rotar el diario de operaciones", e);
+				}
+			}
+
+			writeSnapshot(tasksToSave);
+
+			try {
+				journal.discardRotated();
+			} catch (IOException e) {
+				throw new RepositoryException("Error: No se pudo descartar el diario compactado", e);
+			}
+			return tasksToSave.size();
+		}
+	}
+
+	// Compacta periodicamente el diario cuando supera el umbral
+	private void startCompactor() {
+		if (compactor != null) {
+			return;
+		}
+		compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "task-journal-compactor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		compactor.scheduleWithFixedDelay(() -> {
+			// Con el cerrojo, para que saveTasks no lea el fallo a medias
+			synchronized (compactionLock) {
+				try {
+					if (journal.size() > COMPACTION_THRESHOLD) {
+						compactJournal();
+						compactionFailure = null;
+					}
+				} catch (IOException e) {
+					compactionFailure = new RepositoryException("Error: No se pudo compactar el diario de operaciones", e);
+				} catch (RepositoryException e) {
+					// El diario sigue siendo valido; se reintenta en la siguiente ejecucion
+					// o en el siguiente guardado, que comunica el error
+					compactionFailure = e;
+				}
+			}
+		}, COMPACTION_PERIOD_SECONDS, COMPACTION_PERIOD_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Detiene la compactacion en segundo plano del diario, esperando a que termine la que
+	 * este en curso. Los cambios no guardados siguen en el diario y se aplican en la
+	 * siguiente carga; el repositorio se puede volver a cargar despues de cerrarlo.
+	 *
+	 * @throws RepositoryException si la espera se interrumpe.
+	 */
+	@Override
+	public void close() throws RepositoryException {
+		ScheduledExecutorService running;
+		synchronized (this) {
+			running = compactor;
+			compactor = null;
+		}
+		if (running == null) {
+			return;
+		}
+		running.shutdown();
+		try {
+			running.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RepositoryException("Error: Interrumpido al detener la compactacion del diario", e);
+		}
+	}
+
+	// Registra la operacion en el diario antes de aplicarla en memoria
+	private void logOperation(byte operation, Task t) throws RepositoryException {
+		if (!journaled) {
+			return;
+		}
+		try {
+			journal.append(operation, t);
+		} catch (IOException e) {
+			throw new RepositoryException("Error: No se pudo registrar la operacion en el diario", e);
+		}
+	}
+
+	// Registra un lote de operaciones en el diario con una sola escritura
+	private void logOperations(byte[] operations, List<Task> batch) throws RepositoryException {
+		if (!journaled) {
+			return;
+		}
+		try {
+			journal.appendAll(operations, batch);
+		} catch (IOException e) {
+			throw new RepositoryException("Error: No se pudo registrar el lote de operaciones en el diario", e);
+		}
 	}
 
 
@@ -107,28 +346,40 @@ public class BinaryRepository implements IRepository {
 	 * Genera un identificador unico para una nueva tarea.
 	 * 
 	 * <p>
-	 * El metodo utiliza un generador de numeros aleatorios para crear un
-	 * identificador diferente a los ya existentes. El identificador
-	 * generado se añade al conjunto de identificadores utilizados
-	 * para garantizar posibles identificadores unicos futuros.
+	 * El identificador lo da el {@link IdAllocator} del repositorio en tiempo constante;
+	 * solo se descarta si ya lo usa una tarea añadida con identificador propio.
+	 * El identificador queda ocupado cuando la tarea se añade al indice.
 	 * </p>
 	 * 
 	 * @return Un identificador unico para una tarea.
 	 */
-	private int generateUniqueID() {
-		Random random = new Random();
+	private int generateUniqueID() throws RepositoryException {
 		int newID;
 		do {
-			newID = random.nextInt(Integer.MAX_VALUE);
-		} while (usedIDs.contains(newID));
+			newID = idAllocator.next();
+		} while (tasks.contains(newID));
 
-		usedIDs.add(newID);
 		return newID;
 	}
 
+	@Override
+	public synchronized void setIdAllocator(IdAllocator allocator) {
+		observeAll(allocator, tasks.snapshot().ids());
+		idAllocator = allocator;
+	}
+
+	// Los generadores solo necesitan el mayor identificador existente
+	private static void observeAll(IdAllocator allocator, Set<Integer> identifiers) {
+		int max = 0;
+		for (int identifier : identifiers) {
+			max = Math.max(max, identifier);
+		}
+		allocator.observe(max);
+	}
+
 	
 	@Override
-	public void addTask(Task t) throws RepositoryException {
+	public synchronized void addTask(Task t) throws RepositoryException {
 		// Comprobar si la tarea esta vacia
 		if (t == null) {
 			throw new RepositoryException("Error: La tarea es nula");
@@ -145,24 +396,20 @@ public class BinaryRepository implements IRepository {
 		
 		// Comprobaciones futuras demas atributos (Me canse xd)
 
-		if (tasks != null && !tasks.isEmpty()) {
-			for (Task task : tasks) {
-				if (task.getIdentifier() == t.getIdentifier()) {
-					throw new RepositoryException("Error: Tarea con identificador: " + t.getIdentifier() + " ya existe");
-				}
-			}
+		// El indice rechaza identificadores duplicados en tiempo constante
+		if (tasks.contains(t.getIdentifier())) {
+			throw new RepositoryException("Error: Tarea con identificador: " + t.getIdentifier() + " ya existe");
 		}
 
-		try {
-			tasks.add(t);
-		} catch (Exception e) {
-			throw new RepositoryException("Error al añadir la tarea: " + e.getMessage(), e);
-		}
+		logOperation(TaskJournal.ADD, t);
+		tasks.add(t);
+		idAllocator.observe(t.getIdentifier());
+		changes.created(t.getIdentifier());
 	}
 
 
 	@Override
-	public void createTask(Task t) throws RepositoryException {
+	public synchronized void createTask(Task t) throws RepositoryException {
 		// Comprobar si la tarea esta vacia
 		if (t == null) {
 			throw new RepositoryException("Error: La tarea es nula");
@@ -180,14 +427,6 @@ public class BinaryRepository implements IRepository {
 		if (t.getContent() == null || t.getContent().isEmpty()) {
 			throw new RepositoryException("Error: El contenido de la tarea es obligatorio");
 		}
-		
-		if (tasks != null && !tasks.isEmpty()) {
-			for (Task task : tasks) {
-				if (task.getIdentifier() == t.getIdentifier()) {
-					throw new RepositoryException("Error: Tarea con identificador: " + t.getIdentifier() + " ya existe");
-				}
-			}
-		}
 
 		try {
 			addTask(t);
@@ -198,37 +437,29 @@ public class BinaryRepository implements IRepository {
 
 
 	@Override
-	public void removeTask(Task t) throws RepositoryException {
+	public synchronized void removeTask(Task t) throws RepositoryException {
 		// Comprobar si la tarea esta vacia
 		if (t == null) {
 			throw new RepositoryException("Error: La tarea es nula");
 		}
 
-		// Comprobar si la lista de tareas es nula o vacia
-		if (tasks == null || tasks.isEmpty()) {
+		// Comprobar si la lista de tareas esta vacia
+		if (tasks.isEmpty()) {
 			throw new RepositoryException("Error: La lista de tareas es nula o vacia");
 		}
 
-		// Buscar y eliminar la tarea por su identificador
-		boolean removed = false;
-		for (Iterator<Task> iterator = tasks.iterator(); iterator.hasNext(); ) {
-			Task currentTask = iterator.next();
-			if (currentTask.getIdentifier() == t.getIdentifier()) {
-				// Eliminar usando el iterador para evitar ConcurrentModificationException
-				iterator.remove();
-				usedIDs.remove(currentTask.getIdentifier());
-				removed = true;
-				break;
-			}
-		}
-	    
-		if (!removed) {
+		if (!tasks.contains(t.getIdentifier())) {
 			throw new RepositoryException("Error: No se encontro la tarea con identificador: " + t.getIdentifier());
 		}
+
+		// Eliminar la tarea por su identificador
+		logOperation(TaskJournal.REMOVE, t);
+		tasks.remove(t.getIdentifier());
+		changes.deleted(t.getIdentifier());
 	}
 
 	@Override
-	public void modifyTask(Task t) throws RepositoryException {
+	public synchronized void modifyTask(Task t) throws RepositoryException {
 		// Validar que la tarea no sea nula
 		if (t == null) {
 			throw new RepositoryException("Error: La tarea es nula");
@@ -243,79 +474,165 @@ public class BinaryRepository implements IRepository {
 			throw new RepositoryException("Error: El contenido de la tarea es obligatorio");
 		}
 
-		// Usar un Iterator para buscar y reemplazar la tarea
-		boolean found = false;
-		ListIterator<Task> iterator = tasks.listIterator();
-		while (iterator.hasNext()) {
-			Task existingTask = iterator.next();
-			if (existingTask.getIdentifier() == t.getIdentifier()) {
-				// Reemplazar la tarea existente con la nueva
-				iterator.set(t);
-				found = true;
-				break;
+		// Excepcion si no se encuentra la tarea
+		if (!tasks.contains(t.getIdentifier())) {
+			throw new RepositoryException("Error: Tarea con identificador " + t.getIdentifier() + " no encontrada");
+		}
+
+		// Reemplazar la tarea existente con la nueva, conservando su posicion
+		logOperation(TaskJournal.MODIFY, t);
+		tasks.replace(t);
+		changes.modified(t.getIdentifier());
+	}
+
+	// Operaciones en bloque: se comprueban todas las filas, se registran en el diario con
+	// una sola escritura y se aplican al almacen como una unica version
+
+	@Override
+	public synchronized BulkResult addAll(List<Task> batch) throws RepositoryException {
+		return upsert(batch, false);
+	}
+
+	@Override
+	public synchronized BulkResult upsertAll(List<Task> batch) throws RepositoryException {
+		return upsert(batch, true);
+	}
+
+	private BulkResult upsert(List<Task> batch, boolean replaceExisting) throws RepositoryException {
+		if (batch == null) {
+			throw new RepositoryException("Error: La lista de tareas es nula");
+		}
+		String[] errors = TaskBatch.validate(batch, true);
+		TaskBatch.rejectDuplicates(batch, errors);
+
+		BulkResult.Builder result = new BulkResult.Builder(batch.size());
+		List<Task> additions = new ArrayList<>();
+		List<Task> replacements = new ArrayList<>();
+		for (int row = 0; row < batch.size(); row++) {
+			Task t = batch.get(row);
+			if (errors[row] == null && tasks.contains(t.getIdentifier())) {
+				if (replaceExisting) {
+					replacements.add(t);
+					result.set(row, BulkResult.Outcome.REPLACED);
+					continue;
+				}
+				errors[row] = "Error: Tarea con identificador: " + t.getIdentifier() + " ya existe";
+			}
+			if (errors[row] != null) {
+				result.fail(row, errors[row]);
+			} else {
+				additions.add(t);
+				result.set(row, BulkResult.Outcome.ADDED);
 			}
 		}
 
-		// Excepcion si no se encuentra la tarea
-		if (!found) {
-			throw new RepositoryException("Error: Tarea con identificador " + t.getIdentifier() + " no encontrada");
+		List<Task> written = new ArrayList<>(additions);
+		written.addAll(replacements);
+		byte[] operations = new byte[written.size()];
+		Arrays.fill(operations, 0, additions.size(), TaskJournal.ADD);
+		Arrays.fill(operations, additions.size(), operations.length, TaskJournal.MODIFY);
+		logOperations(operations, written);
+
+		tasks.apply(additions, replacements, List.of());
+		int maxID = 0;
+		for (Task t : additions) {
+			changes.created(t.getIdentifier());
+			maxID = Math.max(maxID, t.getIdentifier());
+		}
+		idAllocator.observe(maxID);
+		for (Task t : replacements) {
+			changes.modified(t.getIdentifier());
 		}
+		return result.build();
 	}
 
 	@Override
-	public List<Task> getAllTasks() throws RepositoryException {
-		try {
-			// Si es nula, devolvemos lista vacia
-			if (tasks == null) {
-				return new ArrayList<>();
+	public synchronized BulkResult removeAll(List<Task> batch) throws RepositoryException {
+		if (batch == null) {
+			throw new RepositoryException("Error: La lista de tareas es nula");
+		}
+		String[] errors = TaskBatch.validate(batch, false);
+		TaskBatch.rejectDuplicates(batch, errors);
+
+		BulkResult.Builder result = new BulkResult.Builder(batch.size());
+		List<Task> removed = new ArrayList<>();
+		List<Integer> removals = new ArrayList<>();
+		for (int row = 0; row < batch.size(); row++) {
+			Task t = batch.get(row);
+			if (errors[row] == null && !tasks.contains(t.getIdentifier())) {
+				errors[row] = "Error: No se encontro la tarea con identificador: " + t.getIdentifier();
+			}
+			if (errors[row] != null) {
+				result.fail(row, errors[row]);
+			} else {
+				removed.add(t);
+				removals.add(t.getIdentifier());
+				result.set(row, BulkResult.Outcome.REMOVED);
 			}
-			return new ArrayList<>(tasks);
-		} catch (Exception e) {
-			throw new RepositoryException("Error al obtener la lista de tareas", e);
 		}
+
+		byte[] operations = new byte[removed.size()];
+		Arrays.fill(operations, TaskJournal.REMOVE);
+		logOperations(operations, removed);
+
+		tasks.apply(List.of(), List.of(), removals);
+		for (int identifier : removals) {
+			changes.deleted(identifier);
+		}
+		return result.build();
 	}
 
+	// Las lecturas no bloquean: trabajan sobre la instantanea inmutable de la version actual,
+	// que solo se copia si ha habido escrituras desde la anterior
+
+	@Override
+	public List<Task> getAllTasks() throws RepositoryException {
+		// Lista de solo lectura compartida por todas las lecturas de la misma version
+		return tasks.snapshot().tasks();
+	}
+
+	// Los metodos ordenados devuelven vistas de solo lectura de los indices secundarios:
+	// no copian ni ordenan la lista en cada llamada
+
 	@Override
 	public List<Task> getTasksSortedByPriority() throws RepositoryException {
-		try {
-			List<Task> sortedTasks = getAllTasks();
-			// Ordenamos las tareas por su atributo "priority" (de mayor a menor)
-			sortedTasks.sort((task1, task2) -> Integer.compare(task2.getPriority(), task1.getPriority()));
-			return sortedTasks;
-		} catch (Exception e) {
-			throw new RepositoryException("Error al obtener la lista de tareas ordenada por prioridad", e);
-		}
+		// Tareas por su atributo "priority" (de mayor a menor)
+		return tasks.snapshot().byPriority();
 	}
 
 	@Override
 	public List<Task> getTasksSortedByDate() throws RepositoryException {
-		try {
-			List<Task> sortedTasks = getAllTasks();
-			// Ordenamos las tareas por el atributo "date" (de mas antigua a mas nueva)
-			sortedTasks.sort((task1, task2) -> task1.getDate().compareTo(task2.getDate()));
-			sortedTasks.reversed();
-			return sortedTasks;
-		} catch (Exception e) {
-			throw new RepositoryException("Error al obtener la lista de tareas ordenada por fecha", e);
-		}
+		// Tareas por el atributo "date" (de mas antigua a mas nueva)
+		return tasks.snapshot().byDate();
 	}
 	
 	@Override
 	public List<Task> getTasksSortedByCompletion() throws RepositoryException {
-		try {
-			List<Task> sortedTasks = getAllTasks();
-			// Ordenamos las tareas por su atributo "priority" (de mayor a menor)
-			sortedTasks.sort((task1, task2) -> Boolean.compare(!task2.isCompleted(), !task1.isCompleted()));
-			return sortedTasks;
-		} catch (Exception e) {
-			throw new RepositoryException("Error al obtener la lista de tareas completadas", e);
+		// Tareas pendientes primero y despues las completadas
+		return tasks.snapshot().byCompletion();
+	}
+
+	// Se resuelve sobre los indices secundarios sin copiar ni ordenar la lista completa
+	@Override
+	public List<Task> queryTasks(TaskQuery query) throws RepositoryException {
+		if (query == null) {
+			throw new RepositoryException("Error: La consulta es nula");
 		}
+		return tasks.snapshot().query(query);
 	}
 
-	// Esta funcion deberia de implementar excepciones y comprobar no sea nula antes
+	// Vista de solo lectura derivada de la instantanea actual
 	@Override
 	public Set<Integer> getUsedIDs() throws RepositoryException {
-		return usedIDs;
+		return tasks.snapshot().ids();
+	}
+
+	/**
+	 * @return el numero de escrituras aplicadas en memoria, que identifica la version de
+	 *         las listas devueltas por las lecturas.
+	 */
+	public long getVersion() {
+		return tasks.version();
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package model.repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resultado de una operacion en bloque de un repositorio, con una fila por tarea de la
+ * lista de entrada y en el mismo orden.
+ * <p>
+ * Guarda un byte por fila con su resultado y el mensaje solo de las filas fallidas, de
+ * modo que un lote grande sin errores apenas ocupa memoria.
+ * </p>
+ */
+public final class BulkResult {
+	/**
+	 * Resultado de una fila.
+	 */
+	public enum Outcome {
+		/** La tarea no existia y se ha añadido. */
+		ADDED,
+		/** La tarea ya existia y se ha reemplazado. */
+		REPLACED,
+		/** La tarea se ha eliminado. */
+		REMOVED,
+		/** La tarea no se ha aplicado; ver {@link BulkResult#getError(int)}. */
+		FAILED
+	}
+
+	private static final Outcome[] OUTCOMES = Outcome.values();
+
+	private final byte[] outcomes;
+	private final Map<Integer, String> errors;
+	private final int failed;
+
+	private BulkResult(byte[] outcomes, Map<Integer, String> errors) {
+		this.outcomes = outcomes;
+		this.errors = errors;
+		this.failed = errors.size();
+	}
+
+	/**
+	 * @return el numero de filas del lote.
+	 */
+	public int getTotal() {
+		return outcomes.length;
+	}
+
+	public int getSucceeded() {
+		return outcomes.length - failed;
+	}
+
+	public int getFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return {@code true} si todas las filas se aplicaron.
+	 */
+	public boolean isSuccess() {
+		return failed == 0;
+	}
+
+	public Outcome getOutcome(int row) {
+		return OUTCOMES[outcomes[row]];
+	}
+
+	/**
+	 * @return el motivo del fallo de la fila, o {@code null} si se aplico.
+	 */
+	public String getError(int row) {
+		return errors.get(row);
+	}
+
+	/**
+	 * @return las filas fallidas en orden creciente.
+	 */
+	public int[] getFailedRows() {
+		int[] rows = new int[failed];
+		int count = 0;
+		for (int row = 0; row < outcomes.length && count < failed; row++) {
+			if (outcomes[row] == Outcome.FAILED.ordinal()) {
+				rows[count++] = row;
+			}
+		}
+		return rows;
+	}
+
+	@Override
+	public String toString() {
+		return getSucceeded() + " de " + getTotal() + " tareas aplicadas, " + failed + " con errores";
+	}
+
+	/**
+	 * Construye el resultado fila a fila. Las filas que no se marcan quedan como fallidas
+	 * sin mensaje, para que un olvido no se cuente como exito.
+	 */
+	static final class Builder {
+		private final byte[] outcomes;
+		private final Map<Integer, String> errors = new HashMap<>();
+
+		Builder(int size) {
+			outcomes = new byte[size];
+			Arrays.fill(outcomes, (byte) Outcome.FAILED.ordinal());
+		}
+
+		void set(int row, Outcome outcome) {
+			outcomes[row] = (byte) outcome.ordinal();
+		}
+
+		void fail(int row, String error) {
+			outcomes[row] = (byte) Outcome.FAILED.ordinal();
+			errors.put(row, error);
+		}
+
+		BulkResult build() {
+			for (int row = 0; row < outcomes.length; row++) {
+				if (outcomes[row] == Outcome.FAILED.ordinal()) {
+					errors.putIfAbsent(row, "Error: La tarea no se ha procesado");
+				}
+			}
+			return new BulkResult(outcomes, errors);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package model.repository;
+
+/**
+ * Registro de las tareas creadas, modificadas o eliminadas desde el ultimo guardado.
+ * <p>
+ * Los repositorios lo actualizan desde {@code addTask}, {@code modifyTask} y
+ * {@code removeTask}, y al guardar solo escriben el delta pendiente. Varios cambios
+ * sobre la misma tarea se combinan en uno: crear y modificar es crear, crear y
+ * eliminar no deja nada que escribir, eliminar y volver a crear es modificar.
+ * </p>
+ * <p>
+ * Tambien lleva la cuenta de los registros escritos y de los guardados omitidos por
+ * no haber cambios.
+ * </p>
+ */
+public final class ChangeTracker {
+
+	/**
+	 * Tipo de cambio pendiente sobre una tarea.
+	 */
+	public enum Change {
+		CREATED, MODIFIED, DELETED
+	}
+
+	private static final Change[] CHANGES = Change.values();
+
+	// Identificador -> ordinal del cambio pendiente
+	private IdIndex pending = new IdIndex();
+
+	private long writtenRecords;
+	private long saves;
+	private long skippedSaves;
+
+	ChangeTracker() {
+	}
+
+	synchronized void created(int identifier) {
+		record(identifier, Change.CREATED);
+	}
+
+	synchronized void modified(int identifier) {
+		record(identifier, Change.MODIFIED);
+	}
+
+	synchronized void deleted(int identifier) {
+		record(identifier, Change.DELETED);
+	}
+
+	/**
+	 * Comprueba si hay cambios pendientes de guardar.
+	 */
+	public synchronized boolean isDirty() {
+		return pending.size() > 0;
+	}
+
+	/**
+	 * @return el numero de tareas con cambios pendientes de guardar.
+	 */
+	public synchronized int getPendingChanges() {
+		return pending.size();
+	}
+
+	/**
+	 * @return el numero total de registros escritos por los guardados.
+	 */
+	public synchronized long getWrittenRecords() {
+		return writtenRecords;
+	}
+
+	/**
+	 * @return el numero de guardados que han escrito algo.
+	 */
+	public synchronized long getSaves() {
+		return saves;
+	}
+
+	/**
+	 * @return el numero de guardados omitidos por no haber cambios.
+	 */
+	public synchronized long getSkippedSaves() {
+		return skippedSaves;
+	}
+
+	/**
+	 * Olvida los cambios pendientes, por ejemplo tras cargar las tareas.
+	 */
+	synchronized void clear() {
+		pending = new IdIndex();
+	}
+
+	/**
+	 * Extrae los cambios pendientes y deja el registro limpio.
+	 * <p>
+	 * Los cambios que se produzcan mientras se guarda el delta quedan pendientes para
+	 * el siguiente guardado. Si el guardado falla, hay que devolverlos con
+	 * {@link #restore(int, Change)}.
+	 * </p>
+	 */
+	synchronized Delta drain() {
+		Delta delta = new Delta(pending.size());
+		pending.forEachKey(identifier -> delta.add(identifier, CHANGES[pending.get(identifier)]));
+		pending = new IdIndex();
+		return delta;
+	}
+
+	/**
+	 * Devuelve un cambio que no se pudo guardar, combinado con los posteriores.
+	 */
+	synchronized void restore(int identifier, Change change) {
+		int later = pending.get(identifier);
+		if (later == IdIndex.MISSING) {
+			pending.put(identifier, change.ordinal());
+			return;
+		}
+		pending.remove(identifier);
+		Change combined = combine(change, CHANGES[later]);
+		if (combined != null) {
+			pending.put(identifier, combined.ordinal());
+		}
+	}
+
+	/**
+	 * Anota el resultado de un guardado.
+	 *
+	 * @param records el numero de registros escritos, 0 si no habia nada que guardar.
+	 */
+	synchronized void saved(int records) {
+		if (records == 0) {
+			skippedSaves++;
+			return;
+		}
+		saves++;
+		writtenRecords += records;
+	}
+
+	private void record(int identifier, Change change) {
+		int previous = pending.remove(identifier);
+		Change combined = previous == IdIndex.MISSING ? change : combine(CHANGES[previous], change);
+		if (combined != null) {
+			pending.put(identifier, combined.ordinal());
+		}
+	}
+
+	/**
+	 * Combina dos cambios consecutivos sobre la misma tarea.
+	 *
+	 * @return el cambio resultante o {@code null} si se anulan.
+	 */
+	private static Change combine(Change first, Change second) {
+		switch (first) {
+			case CREATED:
+				return second == Change.DELETED ? null : Change.CREATED;
+			case MODIFIED:
+				return second == Change.DELETED ? Change.DELETED : Change.MODIFIED;
+			case DELETED:
+			default:
+				return second == Change.DELETED ? Change.DELETED : Change.MODIFIED;
+		}
+	}
+
+	/**
+	 * Cambios extraidos para un guardado.
+	 */
+	static final class Delta {
+		private final int[] identifiers;
+		private final Change[] changes;
+		private int size;
+
+		private Delta(int capacity) {
+			identifiers = new int[capacity];
+			changes = new Change[capacity];
+		}
+
+		private void add(int identifier, Change change) {
+			identifiers[size] = identifier;
+			changes[size] = change;
+			size++;
+		}
+
+		int size() {
+			return size;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		int identifier(int index) {
+			return identifiers[index];
+		}
+
+		Change change(int index) {
+			return changes[index];
+		}
+	}
+}
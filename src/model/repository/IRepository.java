@@ -64,6 +64,51 @@ public interface IRepository {
 	 */
 	void createTask(Task t) throws RepositoryException;
 
+	/**
+	 * Agrega varias tareas de una vez.
+	 * <p>
+	 * Cada tarea se valida igual que en {@link #addTask(Task)}, y tambien se rechazan los
+	 * identificadores repetidos dentro del lote (se conserva la primera aparicion). Las
+	 * tareas validas se añaden juntas y las demas se informan en el resultado, sin
+	 * impedir el resto.
+	 * </p>
+	 *
+	 * @param tasks las tareas a agregar.
+	 * @return el resultado de cada tarea, en el orden de entrada.
+	 * @throws RepositoryException Si la lista es nula o el lote no se puede aplicar.
+	 */
+	BulkResult addAll(List<Task> tasks) throws RepositoryException;
+
+	/**
+	 * Agrega o reemplaza varias tareas de una vez, segun exista ya su identificador.
+	 *
+	 * @param tasks las tareas a agregar o reemplazar.
+	 * @return el resultado de cada tarea, en el orden de entrada.
+	 * @throws RepositoryException Si la lista es nula o el lote no se puede aplicar.
+	 * @see #addAll(List)
+	 */
+	BulkResult upsertAll(List<Task> tasks) throws RepositoryException;
+
+	/**
+	 * Elimina varias tareas de una vez por su identificador. Las que no existen se
+	 * informan en el resultado.
+	 *
+	 * @param tasks las tareas a eliminar.
+	 * @return el resultado de cada tarea, en el orden de entrada.
+	 * @throws RepositoryException Si la lista es nula o el lote no se puede aplicar.
+	 */
+	BulkResult removeAll(List<Task> tasks) throws RepositoryException;
+
+	/**
+	 * Cambia el generador de identificadores de {@link #createTask(Task)}.
+	 * <p>
+	 * Antes de usarlo le comunica los identificadores de las tareas ya cargadas.
+	 * </p>
+	 * 
+	 * @param allocator el generador a usar en las tareas nuevas.
+	 */
+	void setIdAllocator(IdAllocator allocator);
+
 	/**
 	 * Elimina una tarea del repositorio por su identificador.
 	 * <p>
@@ -91,8 +136,8 @@ public interface IRepository {
 	/**
 	 * Devuelve una lista con todas las tareas almacenadas.
 	 * <p>
-	 * Devuelve una copia de la lista para evitar modificaciones externas. Si no hay tareas,
-	 * devuelve una lista vacia.
+	 * Devuelve una copia o una lista de solo lectura para evitar modificaciones externas,
+	 * que no cambia con las escrituras posteriores. Si no hay tareas, devuelve una lista vacia.
 	 * </p>
 	 * 
 	 * @return Una lista con todas las tareas almacenadas.
@@ -104,7 +149,8 @@ public interface IRepository {
 	/**
 	 * Devuelve una lista de tareas ordenadas por prioridad en orden descendente.
 	 * <p>
-	 * Genera y devuelve una copia ordenada de la lista de tareas, sin modificar la original.
+	 * Devuelve una lista ordenada de solo lectura, sin modificar la original, que no
+	 * cambia con las escrituras posteriores del repositorio.
 	 * </p>
 	 * 
 	 * @return Una lista de tareas ordenadas por prioridad en orden descendente.
@@ -126,7 +172,8 @@ public interface IRepository {
 	/**
 	 * Devuelve una lista de tareas ordenadas por fecha en orden descendente.
 	 * <p>
-	 * Genera y devuelve una copia ordenada de la lista de tareas, sin modificar la original.
+	 * Devuelve una lista ordenada de solo lectura, sin modificar la original, que no
+	 * cambia con las escrituras posteriores del repositorio.
 	 * </p>
 	 * 
 	 * @return Una lista de tareas ordenadas por fecha en orden descendente.
@@ -134,6 +181,20 @@ public interface IRepository {
 	 */
 	List<Task> getTasksSortedByDate() throws RepositoryException;
 
+	/**
+	 * Devuelve las tareas que cumplen una consulta.
+	 * <p>
+	 * Aplica los filtros, la ordenacion y la paginacion de la consulta en el propio
+	 * repositorio, usando sus indices o su servidor cuando es posible, en lugar de
+	 * copiar todas las tareas y filtrarlas despues.
+	 * </p>
+	 * 
+	 * @param query la consulta a ejecutar.
+	 * @return Una lista nueva con las tareas que cumplen la consulta.
+	 * @throws RepositoryException Si la consulta es nula o no se puede ejecutar.
+	 */
+	List<Task> queryTasks(TaskQuery query) throws RepositoryException;
+
 	/**
 	 * Devuelve un conjunto con los identificadores unicos de las tareas.
 	 * <p>
@@ -144,4 +205,16 @@ public interface IRepository {
 	 * @throws RepositoryException Si ocurre un error inesperado.
 	 */
 	Set<Integer> getUsedIDs() throws RepositoryException;
+
+	/**
+	 * Libera los recursos del repositorio, como hilos en segundo plano o ficheros abiertos.
+	 * <p>
+	 * No guarda los cambios pendientes: se llama despues de {@link #saveTasks()}.
+	 * Por defecto no hace nada.
+	 * </p>
+	 * 
+	 * @throws RepositoryException Si no se pueden liberar los recursos.
+	 */
+	default void close() throws RepositoryException {
+	}
 }
\ No newline at end of file
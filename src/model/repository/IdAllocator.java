@@ -0,0 +1,30 @@
+package model.repository;
+
+/**
+ * Genera los identificadores de las tareas nuevas de un repositorio.
+ * <p>
+ * El repositorio le comunica con {@link #observe(int)} los identificadores que ya
+ * existen (al cargar y al añadir tareas con identificador propio) y pide uno nuevo con
+ * {@link #next()} en cada {@code createTask}. Las implementaciones deben ser seguras
+ * para varios hilos y devolver identificadores positivos en tiempo constante, mayores
+ * que el mayor observado mientras quede rango; por eso basta con observar el mayor de
+ * los existentes.
+ * </p>
+ * <p>
+ * Un identificador observado despues de que el generador lo haya reservado puede
+ * devolverse igualmente; el repositorio comprueba que este libre y, si no, pide otro.
+ * </p>
+ */
+public interface IdAllocator {
+	/**
+	 * @return un identificador que este generador no ha devuelto antes.
+	 * @throws RepositoryException si no quedan identificadores o no se puede guardar el
+	 *                             estado del generador.
+	 */
+	int next() throws RepositoryException;
+
+	/**
+	 * Indica que existe una tarea con este identificador, para no volver a generarlo.
+	 */
+	void observe(int identifier);
+}
@@ -0,0 +1,189 @@
+package model.repository;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Tabla hash de direccionamiento abierto con claves y valores {@code int} primitivos.
+ * <p>
+ * Evita el coste de un {@code HashMap<Integer, Integer>} (boxing y un nodo por entrada):
+ * claves y valores se guardan en dos arrays paralelos y las colisiones se resuelven
+ * con sondeo lineal. Al borrar se desplazan hacia atras las entradas siguientes del
+ * mismo grupo, por lo que no quedan lapidas que degraden las busquedas.
+ * </p>
+ * <p>
+ * Los valores deben ser mayores o iguales que cero.
+ * </p>
+ */
+final class IdIndex {
+	/** Valor devuelto cuando la clave no existe. */
+	static final int MISSING = -1;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private int[] keys;
+	// Se guarda valor + 1 para que 0 indique un hueco libre
+	private int[] values;
+	private int mask;
+	private int size;
+	private int resizeAt;
+
+	IdIndex() {
+		this(MIN_CAPACITY);
+	}
+
+	IdIndex(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean containsKey(int key) {
+		return slotOf(key) >= 0;
+	}
+
+	/**
+	 * Devuelve el valor asociado a la clave o {@link #MISSING} si no existe.
+	 */
+	int get(int key) {
+		int slot = slotOf(key);
+		return slot < 0 ? MISSING : values[slot] - 1;
+	}
+
+	/**
+	 * Asocia el valor a la clave.
+	 *
+	 * @return el valor anterior o {@link #MISSING} si la clave era nueva.
+	 */
+	int put(int key, int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("El valor no puede ser negativo: " + value);
+		}
+
+		int slot = hash(key) & mask;
+		while (values[slot] != 0) {
+			if (keys[slot] == key) {
+				int previous = values[slot] - 1;
+				values[slot] = value + 1;
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		values[slot] = value + 1;
+		if (++size > resizeAt) {
+			rehash(keys.length << 1);
+		}
+		return MISSING;
+	}
+
+	/**
+	 * Elimina la clave.
+	 *
+	 * @return el valor que tenia asociado o {@link #MISSING} si no existia.
+	 */
+	int remove(int key) {
+		int slot = slotOf(key);
+		if (slot < 0) {
+			return MISSING;
+		}
+		int previous = values[slot] - 1;
+
+		// Desplazar hacia atras las entradas que dependian de este hueco
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (values[next] != 0) {
+			int ideal = hash(keys[next]) & mask;
+			if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		values[hole] = 0;
+		size--;
+		return previous;
+	}
+
+	void clear() {
+		Arrays.fill(values, 0);
+		size = 0;
+	}
+
+	/**
+	 * Devuelve una copia independiente de la tabla.
+	 */
+	IdIndex copy() {
+		IdIndex copy = new IdIndex();
+		copy.keys = keys.clone();
+		copy.values = values.clone();
+		copy.mask = mask;
+		copy.size = size;
+		copy.resizeAt = resizeAt;
+		return copy;
+	}
+
+	/**
+	 * Recorre todas las claves almacenadas, sin un orden definido.
+	 */
+	void forEachKey(IntConsumer action) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != 0) {
+				action.accept(keys[i]);
+			}
+		}
+	}
+
+	private int slotOf(int key) {
+		int slot = hash(key) & mask;
+		while (values[slot] != 0) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void rehash(int newCapacity) {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(newCapacity);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != 0) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (values[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		// Factor de carga maximo de 0.5 para mantener cortas las secuencias de sondeo
+		resizeAt = capacity >>> 1;
+	}
+
+	private static int capacityFor(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity >>> 1 < expectedSize) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static int hash(int key) {
+		// Mezcla de Fibonacci: los identificadores secuenciales no caen en el mismo grupo
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
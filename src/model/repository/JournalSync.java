@@ -0,0 +1,24 @@
+package model.repository;
+
+/**
+ * Cuando se fuerza a disco el diario de operaciones de {@link BinaryRepository}.
+ * <p>
+ * Escribir un registro lo deja en la cache del sistema operativo, que sobrevive a un
+ * cierre abrupto de la aplicacion pero no a un corte de luz o un fallo del sistema.
+ * Forzarlo a disco cubre tambien esos casos, a costa de esperar al dispositivo en cada
+ * escritura.
+ * </p>
+ */
+public enum JournalSync {
+	/**
+	 * Fuerza a disco cada registro o lote antes de confirmar la operacion. Es la opcion
+	 * por defecto: una operacion que termina sin error no se pierde.
+	 */
+	ALWAYS,
+	/**
+	 * Deja que el sistema operativo decida cuando escribir. Mucho mas rapido, pero un
+	 * fallo del sistema puede perder las ultimas operaciones (el diario sigue siendo
+	 * legible: la cola incompleta se descarta al cargarlo).
+	 */
+	NONE
+}
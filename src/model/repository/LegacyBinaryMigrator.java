@@ -0,0 +1,112 @@
+package model.repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.Task;
+
+/**
+ * Migrador de ficheros {@code task.bin} escritos con la serializacion de Java.
+ * <p>
+ * Lee la lista serializada de las versiones anteriores, la reescribe con
+ * {@link TaskCodec} y conserva el fichero original como {@code task.bin.legacy}.
+ * Solo es necesario ejecutarlo una vez por fichero: los ficheros ya migrados se
+ * reconocen por su cabecera.
+ * </p>
+ */
+final class LegacyBinaryMigrator {
+
+	private LegacyBinaryMigrator() {
+	}
+
+	/**
+	 * Comprueba si el fichero existe y no tiene la cabecera de {@link TaskCodec}.
+	 *
+	 * @param path la ruta del fichero de tareas.
+	 * @return {@code true} si hay que migrarlo antes de leerlo.
+	 * @throws IOException si no se puede leer la cabecera.
+	 */
+	static boolean isLegacy(Path path) throws IOException {
+		if (!Files.exists(path) || Files.size(path) == 0) {
+			return false;
+		}
+		try (InputStream in = Files.newInputStream(path)) {
+			byte[] header = in.readNBytes(4);
+			return !TaskCodec.hasMagic(header, 0, header.length);
+		}
+	}
+
+	/**
+	 * Convierte el fichero al nuevo formato.
+	 *
+	 * @param path la ruta del fichero de tareas.
+	 * @return el numero de tareas migradas.
+	 * @throws RepositoryException si el fichero antiguo no es valido o no se puede reescribir.
+	 */
+	static int migrate(Path path) throws RepositoryException {
+		List<Task> tasks = readLegacy(path);
+
+		Path tempPath = Paths.get(path + ".tmp");
+		Path legacyPath = Paths.get(path + ".legacy");
+		try (TaskCodec.Writer writer = new TaskCodec.Writer(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+			writer.writeHeader(tasks.size());
+			for (Task task : tasks) {
+				writer.writeTask(task);
+			}
+			writer.writeEnd();
+		} catch (IOException e) {
+			throw new RepositoryException("Error: No se pudo migrar el fichero binario " + path, e);
+		}
+
+		try {
+			// Conservar el original por si hubiera que volver a una version anterior
+			Files.copy(path, legacyPath, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new RepositoryException("Error: No se pudo sustituir el fichero binario " + path, e);
+		}
+		return tasks.size();
+	}
+
+	/**
+	 * Lee una lista de tareas serializada con {@link ObjectInputStream}.
+	 * <p>
+	 * Comprueba que el fichero contenga una lista y que todos sus elementos sean
+	 * instancias de {@code Task}.
+	 * </p>
+	 */
+	static List<Task> readLegacy(Path path) throws RepositoryException {
+		try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			// Leemos el objeto serializado del archivo
+			Object obj = ois.readObject();
+
+			// Verificamos que sea una lista
+			if (!(obj instanceof List<?>)) {
+				throw new RepositoryException("Error: El archivo no contiene una lista de tareas");
+			}
+
+			List<?> tempList = (List<?>) obj;
+			List<Task> tasks = new ArrayList<>(tempList.size());
+			for (Object item : tempList) {
+				// Verificamos si el elemento actual es del tipo Task
+				if (item instanceof Task) {
+					tasks.add((Task) item);
+				} else {
+					throw new RepositoryException("Error: El archivo contiene elementos que no son de tipo Task");
+				}
+			}
+			return tasks;
+		} catch (IOException | ClassNotFoundException e) {
+			throw new RepositoryException("Error: Carga de Fichero Binario", e);
+		}
+	}
+}
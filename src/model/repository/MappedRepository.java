@@ -0,0 +1,753 @@
+package model.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import model.Task;
+
+/**
+ * Repositorio que guarda las tareas en un fichero proyectado en memoria.
+ * <p>
+ * El fichero {@code task.map} contiene una cabecera y una region de huecos de tamaño
+ * fijo, uno por tarea, con los campos numericos y la posicion de sus cadenas. Los
+ * titulos y contenidos se añaden al final de un monton de cadenas {@code task.heap.N}
+ * que se lee con un {@link FileChannel}.
+ * </p>
+ * <p>
+ * Cargar el repositorio consiste en proyectar el fichero y recorrer los identificadores
+ * de los huecos, sin crear ningun objeto {@link Task}. Modificar la prioridad, la fecha,
+ * la duracion o el estado cambia los bytes del hueco en su sitio; solo los cambios de
+ * titulo o contenido escriben en el monton. La cache de paginas del sistema operativo
+ * se encarga de llevar los cambios a disco.
+ * </p>
+ * <p>
+ * Formato de un hueco (48 bytes):
+ * </p>
+ * <pre>
+ * 0 id | 4 flags | 8 prioridad | 12 dia epoch | 16 duracion | 20 longitud titulo
+ * 24 posicion titulo (long) | 32 posicion contenido (long) | 40 longitud contenido | 44 reservado
+ * </pre>
+ */
+public class MappedRepository implements IRepository {
+	/* Atributos */
+	private final String filePath = System.getProperty("user.home") + "/task.map";
+	private final String heapPrefix = System.getProperty("user.home") + "/task.heap.";
+
+	private static final int MAGIC = 0x544D4150; // "TMAP"
+	private static final int VERSION = 1;
+
+	// Cabecera
+	private static final int HEADER_SIZE = 64;
+	private static final int H_MAGIC = 0;
+	private static final int H_VERSION = 4;
+	private static final int H_CAPACITY = 8;
+	private static final int H_SLOT_COUNT = 12;
+	private static final int H_LIVE = 16;
+	private static final int H_HEAP_GENERATION = 20;
+	private static final int H_HEAP_END = 24;
+	private static final int H_HEAP_GARBAGE = 32;
+
+	// Hueco
+	private static final int SLOT_SIZE = 48;
+	private static final int S_ID = 0;
+	private static final int S_FLAGS = 4;
+	private static final int S_PRIORITY = 8;
+	private static final int S_DATE = 12;
+	private static final int S_DURATION = 16;
+	private static final int S_TITLE_LENGTH = 20;
+	private static final int S_TITLE_OFFSET = 24;
+	private static final int S_CONTENT_OFFSET = 32;
+	private static final int S_CONTENT_LENGTH = 40;
+
+	private static final int FLAG_LIVE = 0x01;
+	private static final int FLAG_COMPLETED = 0x02;
+	private static final int FLAG_HAS_DATE = 0x04;
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE;
+	private static final long MIN_HEAP_COMPACTION = 1024 * 1024;
+
+	private FileChannel slotChannel;
+	private MappedByteBuffer slots;
+	private FileChannel heap;
+
+	// Identificador -> numero de hueco
+	private IdIndex index = new IdIndex();
+	// Pila de huecos libres para reutilizar
+	private int[] freeSlots = new int[16];
+	private int freeCount;
+
+	// Identificadores de las tareas nuevas, con la marca de agua en task.map.ids
+	private IdAllocator idAllocator = new SequentialIdAllocator(Paths.get(filePath + ".ids"));
+
+
+	@Override
+	public synchronized void loadTasks() throws RepositoryException {
+		close();
+		Path path = Paths.get(filePath);
+		try {
+			// Restos de una compactacion interrumpida
+			Files.deleteIfExists(Paths.get(filePath + ".tmp"));
+
+			boolean exists = Files.exists(path) && Files.size(path) >= HEADER_SIZE;
+			slotChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+			if (!exists) {
+				slots = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize(INITIAL_CAPACITY));
+				slots.putInt(H_MAGIC, MAGIC);
+				slots.putInt(H_VERSION, VERSION);
+				slots.putInt(H_CAPACITY, INITIAL_CAPACITY);
+				slots.putInt(H_HEAP_GENERATION, 1);
+			} else {
+				int capacity = readCapacity(slotChannel);
+				slots = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize(capacity));
+				if (slots.getInt(H_MAGIC) != MAGIC) {
+					throw new RepositoryException("Error: El fichero " + filePath + " no es un repositorio proyectado");
+				}
+				if (slots.getInt(H_VERSION) != VERSION) {
+					throw new RepositoryException("Error: Version no soportada del fichero " + filePath);
+				}
+			}
+
+			heap = openHeap(slots.getInt(H_HEAP_GENERATION), false);
+		} catch (IOException e) {
+			throw new RepositoryException("Error: Carga del fichero proyectado", e);
+		}
+
+		// Reconstruir el indice leyendo solo identificadores y flags
+		int slotCount = slots.getInt(H_SLOT_COUNT);
+		index = new IdIndex(slots.getInt(H_LIVE));
+		freeCount = 0;
+		int maxID = 0;
+		for (int slot = 0; slot < slotCount; slot++) {
+			int base = slotBase(slot);
+			if ((slots.getInt(base + S_FLAGS) & FLAG_LIVE) != 0) {
+				int identifier = slots.getInt(base + S_ID);
+				index.put(identifier, slot);
+				maxID = Math.max(maxID, identifier);
+			} else {
+				pushFree(slot);
+			}
+		}
+		idAllocator.observe(maxID);
+	}
+
+	@Override
+	public synchronized void saveTasks() throws RepositoryException {
+		ensureLoaded();
+		try {
+			long garbage = slots.getLong(H_HEAP_GARBAGE);
+			if (garbage > MIN_HEAP_COMPACTION && garbage > slots.getLong(H_HEAP_END) / 2) {
+				compactHeap();
+			}
+			heap.force(false);
+			slots.force();
+		} catch (IOException e) {
+			throw new RepositoryException("Error: No se pudo sincronizar el fichero proyectado", e);
+		}
+	}
+
+	@Override
+	public synchronized void addTask(Task t) throws RepositoryException {
+		ensureLoaded();
+		validate(t);
+
+		if (index.containsKey(t.getIdentifier())) {
+			throw new RepositoryException("Error: Tarea con identificador: " + t.getIdentifier() + " ya existe");
+		}
+
+		try {
+			int slot = allocateSlot();
+			int base = slotBase(slot);
+			slots.putInt(base + S_ID, t.getIdentifier());
+			writeNumbers(base, t);
+			writeString(base + S_TITLE_OFFSET, base + S_TITLE_LENGTH, t.getTitle());
+			writeString(base + S_CONTENT_OFFSET, base + S_CONTENT_LENGTH, t.getContent());
+			// El hueco se marca como vivo al final, cuando ya esta completo
+			slots.putInt(base + S_FLAGS, flagsOf(t) | FLAG_LIVE);
+
+			index.put(t.getIdentifier(), slot);
+			slots.putInt(H_LIVE, index.size());
+			idAllocator.observe(t.getIdentifier());
+		} catch (IOException e) {
+			throw new RepositoryException("Error al añadir la tarea: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public synchronized void createTask(Task t) throws RepositoryException {
+		// Comprobar si la tarea esta vacia
+		if (t == null) {
+			throw new RepositoryException("Error: La tarea es nula");
+		}
+		ensureLoaded();
+
+		// Generar un identificador unico
+		t.setIdentifier(generateUniqueID());
+		addTask(t);
+	}
+
+	@Override
+	public synchronized void removeTask(Task t) throws RepositoryException {
+		// Comprobar si la tarea esta vacia
+		if (t == null) {
+			throw new RepositoryException("Error: La tarea es nula");
+		}
+		ensureLoaded();
+
+		int slot = index.remove(t.getIdentifier());
+		if (slot == IdIndex.MISSING) {
+			throw new RepositoryException("Error: No se encontro la tarea con identificador: " + t.getIdentifier());
+		}
+
+		int base = slotBase(slot);
+		slots.putInt(base + S_FLAGS, 0);
+		addGarbage(Math.max(slots.getInt(base + S_TITLE_LENGTH), 0) + Math.max(slots.getInt(base + S_CONTENT_LENGTH), 0));
+		pushFree(slot);
+		slots.putInt(H_LIVE, index.size());
+	}
+
+	@Override
+	public synchronized void modifyTask(Task t) throws RepositoryException {
+		ensureLoaded();
+		validate(t);
+
+		int slot = index.get(t.getIdentifier());
+		if (slot == IdIndex.MISSING) {
+			throw new RepositoryException("Error: Tarea con identificador " + t.getIdentifier() + " no encontrada");
+		}
+
+		try {
+			int base = slotBase(slot);
+			// Los campos de tamaño fijo se sobrescriben en su sitio
+			writeNumbers(base, t);
+			slots.putInt(base + S_FLAGS, flagsOf(t) | FLAG_LIVE);
+
+			// Las cadenas solo se reescriben en el monton si han cambiado
+			if (!t.getTitle().equals(readString(base + S_TITLE_OFFSET, base + S_TITLE_LENGTH))) {
+				addGarbage(slots.getInt(base + S_TITLE_LENGTH));
+				writeString(base + S_TITLE_OFFSET, base + S_TITLE_LENGTH, t.getTitle());
+			}
+			if (!t.getContent().equals(readString(base + S_CONTENT_OFFSET, base + S_CONTENT_LENGTH))) {
+				addGarbage(slots.getInt(base + S_CONTENT_LENGTH));
+				writeString(base + S_CONTENT_OFFSET, base + S_CONTENT_LENGTH, t.getContent());
+			}
+		} catch (IOException e) {
+			throw new RepositoryException("Error al actualizar la tarea: " + e.getMessage(), e);
+		}
+	}
+
+	// Operaciones en bloque: se comprueban todas las filas antes de tocar el fichero y
+	// despues se escriben los huecos uno a uno sin soltar el cerrojo
+
+	@Override
+	public synchronized BulkResult addAll(List<Task> batch) throws RepositoryException {
+		return upsert(batch, false);
+	}
+
+	@Override
+	public synchronized BulkResult upsertAll(List<Task> batch) throws RepositoryException {
+		return upsert(batch, true);
+	}
+
+	private BulkResult upsert(List<Task> batch, boolean replaceExisting) throws RepositoryException {
+		if (batch == null) {
+			throw new RepositoryException("Error: La lista de tareas es nula");
+		}
+		ensureLoaded();
+		String[] errors = TaskBatch.validate(batch, true);
+		TaskBatch.rejectDuplicates(batch, errors);
+
+		BulkResult.Builder result = new BulkResult.Builder(batch.size());
+		for (int row = 0; row < batch.size(); row++) {
+			Task t = batch.get(row);
+			if (errors[row] != null) {
+				result.fail(row, errors[row]);
+				continue;
+			}
+			boolean exists = index.containsKey(t.getIdentifier());
+			if (exists && !replaceExisting) {
+				result.fail(row, "Error: Tarea con identificador: " + t.getIdentifier() + " ya existe");
+				continue;
+			}
+			// Solo quedan errores de escritura en el fichero
+			try {
+				if (exists) {
+					modifyTask(t);
+					result.set(row, BulkResult.Outcome.REPLACED);
+				} else {
+					addTask(t);
+					result.set(row, BulkResult.Outcome.ADDED);
+				}
+			} catch (RepositoryException e) {
+				result.fail(row, e.getMessage());
+			}
+		}
+		return result.build();
+	}
+
+	@Override
+	public synchronized BulkResult removeAll(List<Task> batch) throws RepositoryException {
+		if (batch == null) {
+			throw new RepositoryException("Error: La lista de tareas es nula");
+		}
+		ensureLoaded();
+		String[] errors = TaskBatch.validate(batch, false);
+		TaskBatch.rejectDuplicates(batch, errors);
+
+		BulkResult.Builder result = new BulkResult.Builder(batch.size());
+		for (int row = 0; row < batch.size(); row++) {
+			Task t = batch.get(row);
+			if (errors[row] == null && !index.containsKey(t.getIdentifier())) {
+				errors[row] = "Error: No se encontro la tarea con identificador: " + t.getIdentifier();
+			}
+			if (errors[row] != null) {
+				result.fail(row, errors[row]);
+				continue;
+			}
+			try {
+				removeTask(t);
+				result.set(row, BulkResult.Outcome.REMOVED);
+			} catch (RepositoryException e) {
+				result.fail(row, e.getMessage());
+			}
+		}
+		return result.build();
+	}
+
+	@Override
+	public synchronized List<Task> getAllTasks() throws RepositoryException {
+		ensureLoaded();
+		List<Task> tasks = new ArrayList<>(index.size());
+		int slotCount = slots.getInt(H_SLOT_COUNT);
+		try {
+			for (int slot = 0; slot < slotCount; slot++) {
+				int base = slotBase(slot);
+				if ((slots.getInt(base + S_FLAGS) & FLAG_LIVE) != 0) {
+					tasks.add(readTask(base));
+				}
+			}
+		} catch (IOException e) {
+			throw new RepositoryException("Error al obtener la lista de tareas", e);
+		}
+		return tasks;
+	}
+
+	// Los metodos ordenados son consultas sin filtros: se ordenan los numeros de hueco por
+	// los campos de tamaño fijo y solo despues se leen las tareas, ya en su orden
+
+	@Override
+	public List<Task> getTasksSortedByPriority() throws RepositoryException {
+		// Tareas por su atributo "priority" (de mayor a menor)
+		return queryTasks(new TaskQuery().sortBy(TaskQuery.SortKey.PRIORITY));
+	}
+
+	@Override
+	public List<Task> getTasksSortedByDate() throws RepositoryException {
+		// Tareas por el atributo "date" (de mas antigua a mas nueva, sin fecha al final)
+		return queryTasks(new TaskQuery().sortBy(TaskQuery.SortKey.DATE));
+	}
+
+	@Override
+	public List<Task> getTasksSortedByCompletion() throws RepositoryException {
+		// Primero las pendientes y despues las completadas
+		return queryTasks(new TaskQuery().sortBy(TaskQuery.SortKey.COMPLETION));
+	}
+
+	/**
+	 * Ejecuta la consulta recorriendo los huecos del fichero proyectado.
+	 * <p>
+	 * Los filtros de fecha, prioridad y estado y la clave de ordenacion se leen de los
+	 * campos de tamaño fijo del hueco, sin leer el monton. Los huecos que cumplen los
+	 * filtros se ordenan como enteros y el titulo y el contenido solo se leen de las
+	 * tareas de la pagina pedida, o de las necesarias para evaluar el filtro de texto.
+	 * </p>
+	 */
+	@Override
+	public synchronized List<Task> queryTasks(TaskQuery query) throws RepositoryException {
+		if (query == null) {
+			throw new RepositoryException("Error: La consulta es nula");
+		}
+		ensureLoaded();
+		long[] order = sortedSlots(query);
+
+		List<Task> matching = new ArrayList<>();
+		int skip = query.getOffset();
+		int position = 0;
+		// Sin filtro de texto todos los huecos son resultados y se salta el desplazamiento sin leerlos
+		if (query.getText() == null) {
+			position = Math.min(skip, order.length);
+			skip = 0;
+		}
+		try {
+			for (; position < order.length && matching.size() < query.getLimit(); position++) {
+				Task task = readTask(slotBase((int) order[position]));
+				if (!query.matchesText(task)) {
+					continue;
+				}
+				if (skip > 0) {
+					skip--;
+				} else {
+					matching.add(task);
+				}
+			}
+		} catch (IOException e) {
+			throw new RepositoryException("Error al consultar las tareas", e);
+		}
+		return matching;
+	}
+
+	/**
+	 * Huecos que cumplen los filtros numericos, ordenados por la clave de la consulta.
+	 * <p>
+	 * Cada posicion guarda la clave en los 32 bits altos y el numero de hueco en los bajos,
+	 * asi que ordenar los {@code long} deja los empates en el orden de los huecos, igual
+	 * que la ordenacion estable de {@link TaskQuery#apply(Iterable)}.
+	 * </p>
+	 */
+	private long[] sortedSlots(TaskQuery query) {
+		int slotCount = slots.getInt(H_SLOT_COUNT);
+		long[] order = new long[Math.min(index.size(), slotCount)];
+		int count = 0;
+		for (int slot = 0; slot < slotCount && count < order.length; slot++) {
+			int base = slotBase(slot);
+			if (matchesSlot(base, query)) {
+				order[count++] = (long) sortKey(base, query.getSortKey()) << 32 | slot;
+			}
+		}
+		if (query.getSortKey() != TaskQuery.SortKey.NONE) {
+			Arrays.sort(order, 0, count);
+		}
+		return count == order.length ? order : Arrays.copyOf(order, count);
+	}
+
+	// Clave del hueco con el mismo orden que TaskQuery.comparator
+	private int sortKey(int base, TaskQuery.SortKey sortKey) {
+		int flags = slots.getInt(base + S_FLAGS);
+		switch (sortKey) {
+			case PRIORITY:
+				// El complemento invierte el orden sin desbordar
+				return ~slots.getInt(base + S_PRIORITY);
+			case DATE:
+				return (flags & FLAG_HAS_DATE) != 0 ? slots.getInt(base + S_DATE) : Integer.MAX_VALUE;
+			case COMPLETION:
+				return (flags & FLAG_COMPLETED) != 0 ? 1 : 0;
+			case NONE:
+			default:
+				return 0;
+		}
+	}
+
+	// Filtros sobre los campos numericos del hueco
+	private boolean matchesSlot(int base, TaskQuery query) {
+		int flags = slots.getInt(base + S_FLAGS);
+		if ((flags & FLAG_LIVE) == 0) {
+			return false;
+		}
+		if (query.getCompleted() != null && ((flags & FLAG_COMPLETED) != 0) != query.getCompleted()) {
+			return false;
+		}
+		if (query.hasPriorityRange()) {
+			int priority = slots.getInt(base + S_PRIORITY);
+			if (priority < query.getMinPriority() || priority > query.getMaxPriority()) {
+				return false;
+			}
+		}
+		if (query.hasDateRange()) {
+			if ((flags & FLAG_HAS_DATE) == 0) {
+				return false;
+			}
+			long epochDay = slots.getInt(base + S_DATE);
+			if ((query.getDateFrom() != null && epochDay < query.getDateFrom().toEpochDay())
+					|| (query.getDateTo() != null && epochDay > query.getDateTo().toEpochDay())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public synchronized Set<Integer> getUsedIDs() throws RepositoryException {
+		ensureLoaded();
+		// Copia de solo lectura: el indice cambia con cada escritura
+		Set<Integer> ids = new HashSet<>(index.size() * 4 / 3 + 1);
+		index.forEachKey(ids::add);
+		return Collections.unmodifiableSet(ids);
+	}
+
+	/**
+	 * Sincroniza y libera los ficheros proyectados.
+	 */
+	@Override
+	public synchronized void close() throws RepositoryException {
+		try {
+			releaseMappings();
+		} catch (IOException e) {
+			throw new RepositoryException("Error: No se pudo cerrar el fichero proyectado", e);
+		}
+	}
+
+	private void releaseMappings() throws IOException {
+		if (slots != null) {
+			slots.force();
+			slots = null;
+		}
+		if (slotChannel != null) {
+			slotChannel.close();
+			slotChannel = null;
+		}
+		if (heap != null) {
+			heap.close();
+			heap = null;
+		}
+	}
+
+
+	/**
+	 * Genera un identificador unico para una nueva tarea con el {@link IdAllocator} del
+	 * repositorio, descartando los que ya use una tarea añadida con identificador propio.
+	 *
+	 * @return Un identificador unico para una tarea.
+	 */
+	private int generateUniqueID() throws RepositoryException {
+		int newID;
+		do {
+			newID = idAllocator.next();
+		} while (index.containsKey(newID));
+
+		return newID;
+	}
+
+	@Override
+	public synchronized void setIdAllocator(IdAllocator allocator) {
+		// Sin cargar, el indice esta vacio y la carga los comunicara despues
+		int[] maxID = { 0 };
+		index.forEachKey(identifier -> maxID[0] = Math.max(maxID[0], identifier));
+		allocator.observe(maxID[0]);
+		idAllocator = allocator;
+	}
+
+	private void validate(Task t) throws RepositoryException {
+		// Comprobar si la tarea esta vacia
+		if (t == null) {
+			throw new RepositoryException("Error: La tarea es nula");
+		}
+
+		// Comprobar titulo y contenido no nulos o vacios
+		if (t.getTitle() == null || t.getTitle().isEmpty()) {
+			throw new RepositoryException("Error: El titulo de la tarea es obligatorio");
+		}
+
+		if (t.getContent() == null || t.getContent().isEmpty()) {
+			throw new RepositoryException("Error: El contenido de la tarea es obligatorio");
+		}
+	}
+
+	private void ensureLoaded() throws RepositoryException {
+		if (slots == null) {
+			loadTasks();
+		}
+	}
+
+	private int allocateSlot() throws IOException {
+		if (freeCount > 0) {
+			return freeSlots[--freeCount];
+		}
+		int slot = slots.getInt(H_SLOT_COUNT);
+		int capacity = slots.getInt(H_CAPACITY);
+		if (slot == capacity) {
+			if (capacity == MAX_CAPACITY) {
+				throw new IOException("Se ha alcanzado el numero maximo de tareas del fichero proyectado");
+			}
+			growRegion((int) Math.min((long) capacity << 1, MAX_CAPACITY));
+		}
+		slots.putInt(H_SLOT_COUNT, slot + 1);
+		return slot;
+	}
+
+	// Vuelve a proyectar el fichero con mas huecos; el fichero crece al proyectarlo
+	private void growRegion(int capacity) throws IOException {
+		slots.force();
+		slots = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize(capacity));
+		slots.putInt(H_CAPACITY, capacity);
+	}
+
+	private void pushFree(int slot) {
+		if (freeCount == freeSlots.length) {
+			freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+		}
+		freeSlots[freeCount++] = slot;
+	}
+
+	private void writeNumbers(int base, Task t) {
+		slots.putInt(base + S_PRIORITY, t.getPriority());
+		slots.putInt(base + S_DATE, t.getDate() == null ? 0 : (int) t.getDate().toEpochDay());
+		slots.putInt(base + S_DURATION, t.getEstimatedDuration());
+	}
+
+	private static int flagsOf(Task t) {
+		int flags = 0;
+		if (t.isCompleted()) {
+			flags |= FLAG_COMPLETED;
+		}
+		if (t.getDate() != null) {
+			flags |= FLAG_HAS_DATE;
+		}
+		return flags;
+	}
+
+	private Task readTask(int base) throws IOException {
+		int flags = slots.getInt(base + S_FLAGS);
+		LocalDate date = (flags & FLAG_HAS_DATE) != 0 ? LocalDate.ofEpochDay(slots.getInt(base + S_DATE)) : null;
+		return new Task(
+			slots.getInt(base + S_ID),
+			readString(base + S_TITLE_OFFSET, base + S_TITLE_LENGTH),
+			date,
+			readString(base + S_CONTENT_OFFSET, base + S_CONTENT_LENGTH),
+			slots.getInt(base + S_PRIORITY),
+			slots.getInt(base + S_DURATION),
+			(flags & FLAG_COMPLETED) != 0
+		);
+	}
+
+	// Añade la cadena al final del monton y guarda su posicion y longitud en el hueco
+	private void writeString(int offsetField, int lengthField, String value) throws IOException {
+		if (value == null) {
+			slots.putInt(lengthField, -1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		long position = slots.getLong(H_HEAP_END);
+		writeFully(heap, ByteBuffer.wrap(bytes), position);
+		slots.putLong(H_HEAP_END, position + bytes.length);
+		slots.putLong(offsetField, position);
+		slots.putInt(lengthField, bytes.length);
+	}
+
+	private String readString(int offsetField, int lengthField) throws IOException {
+		int length = slots.getInt(lengthField);
+		if (length < 0) {
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		long position = slots.getLong(offsetField);
+		while (buffer.hasRemaining()) {
+			if (heap.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Monton de cadenas truncado");
+			}
+		}
+		return new String(buffer.array(), StandardCharsets.UTF_8);
+	}
+
+	private void addGarbage(int bytes) {
+		if (bytes > 0) {
+			slots.putLong(H_HEAP_GARBAGE, slots.getLong(H_HEAP_GARBAGE) + bytes);
+		}
+	}
+
+	/**
+	 * Reescribe el monton sin las cadenas huerfanas.
+	 * <p>
+	 * Se escribe un nuevo monton con la siguiente generacion y una copia de los huecos
+	 * que apunta a el. El cambio se confirma moviendo atomicamente la copia sobre
+	 * {@code task.map}; si el proceso se interrumpe antes, se conserva la version anterior.
+	 * </p>
+	 */
+	private void compactHeap() throws IOException {
+		int generation = slots.getInt(H_HEAP_GENERATION);
+		int slotCount = slots.getInt(H_SLOT_COUNT);
+		long regionSize = regionSize(slots.getInt(H_CAPACITY));
+		Path tempPath = Paths.get(filePath + ".tmp");
+
+		try (FileChannel newHeap = openHeap(generation + 1, true);
+				FileChannel tempChannel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer newSlots = tempChannel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize);
+			newSlots.put(slots.duplicate().position(0).limit((int) regionSize));
+
+			long heapEnd = 0;
+			for (int slot = 0; slot < slotCount; slot++) {
+				int base = slotBase(slot);
+				if ((slots.getInt(base + S_FLAGS) & FLAG_LIVE) == 0) {
+					continue;
+				}
+				heapEnd = copyString(newHeap, newSlots, base + S_TITLE_OFFSET, base + S_TITLE_LENGTH, heapEnd);
+				heapEnd = copyString(newHeap, newSlots, base + S_CONTENT_OFFSET, base + S_CONTENT_LENGTH, heapEnd);
+			}
+			newSlots.putInt(H_HEAP_GENERATION, generation + 1);
+			newSlots.putLong(H_HEAP_END, heapEnd);
+			newSlots.putLong(H_HEAP_GARBAGE, 0);
+
+			newHeap.force(false);
+			newSlots.force();
+		}
+
+		releaseMappings();
+		Files.move(tempPath, Paths.get(filePath), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		Files.deleteIfExists(Paths.get(heapPrefix + generation));
+
+		slotChannel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		slots = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize);
+		heap = openHeap(generation + 1, false);
+	}
+
+	private long copyString(FileChannel target, MappedByteBuffer newSlots, int offsetField, int lengthField, long position) throws IOException {
+		int length = slots.getInt(lengthField);
+		if (length <= 0) {
+			return position;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		long source = slots.getLong(offsetField);
+		while (buffer.hasRemaining()) {
+			if (heap.read(buffer, source + buffer.position()) < 0) {
+				throw new IOException("Monton de cadenas truncado");
+			}
+		}
+		buffer.flip();
+		writeFully(target, buffer, position);
+		newSlots.putLong(offsetField, position);
+		return position + length;
+	}
+
+	private FileChannel openHeap(int generation, boolean truncate) throws IOException {
+		Path path = Paths.get(heapPrefix + generation);
+		if (truncate) {
+			return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+		return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private static int readCapacity(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		channel.read(header, 0);
+		return header.getInt(H_CAPACITY);
+	}
+
+	private static long regionSize(int capacity) {
+		return HEADER_SIZE + (long) capacity * SLOT_SIZE;
+	}
+
+	private static int slotBase(int slot) {
+		return HEADER_SIZE + slot * SLOT_SIZE;
+	}
+}
@@ -0,0 +1,105 @@
+package model.repository;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import notion.api.v1.NotionClient;
+import notion.api.v1.model.databases.QueryResults;
+import notion.api.v1.model.pages.Page;
+import notion.api.v1.request.databases.QueryDatabaseRequest;
+
+/**
+ * Recorre todas las paginas de una consulta a una base de datos de Notion.
+ * <p>
+ * La API de Notion devuelve como maximo {@value #PAGE_SIZE} resultados por peticion y
+ * un cursor ({@code next_cursor}) para pedir los siguientes. Este iterador sigue el
+ * cursor hasta el final y, mientras se consumen los resultados de una pagina, ya
+ * esta descargando la siguiente en segundo plano.
+ * </p>
+ * <p>
+ * Los errores de la consulta se lanzan como {@link IllegalStateException} al avanzar.
+ * </p>
+ */
+final class NotionPageIterator implements Iterator<Page> {
+	static final int PAGE_SIZE = 100;
+
+	// Las consultas pasan la mayor parte del tiempo esperando la red
+	private static final Executor PREFETCH = task -> Thread.ofVirtual().name("notion-query").start(task);
+
+	private final NotionClient client;
+	private final QueryDatabaseRequest query;
+	private final int pageSize;
+
+	private List<Page> current = Collections.emptyList();
+	private int index;
+	// Siguiente pagina en curso, o null si no quedan mas
+	private CompletableFuture<QueryResults> next;
+
+	/**
+	 * Crea el iterador y lanza la peticion de la primera pagina.
+	 *
+	 * @param client el cliente de Notion.
+	 * @param query  la consulta de la que se copian la base de datos, el filtro y la ordenacion.
+	 */
+	NotionPageIterator(NotionClient client, QueryDatabaseRequest query) {
+		this(client, query, PAGE_SIZE);
+	}
+
+	/**
+	 * Crea el iterador pidiendo paginas de un tamaño concreto, por ejemplo para no
+	 * descargar mas resultados de los necesarios en una consulta con limite.
+	 *
+	 * @param pageSize el numero de resultados por peticion, entre 1 y {@value #PAGE_SIZE}.
+	 */
+	NotionPageIterator(NotionClient client, QueryDatabaseRequest query, int pageSize) {
+		this.client = client;
+		this.query = query;
+		this.pageSize = Math.max(1, Math.min(pageSize, PAGE_SIZE));
+		this.next = fetch(null);
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (index == current.size()) {
+			if (next == null) {
+				return false;
+			}
+			QueryResults results = await(next);
+			current = results.getResults() == null ? Collections.emptyList() : results.getResults();
+			index = 0;
+
+			// Pedir ya la siguiente pagina mientras se procesa esta
+			String cursor = results.getNextCursor();
+			next = Boolean.TRUE.equals(results.getHasMore()) && cursor != null ? fetch(cursor) : null;
+		}
+		return true;
+	}
+
+	@Override
+	public Page next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return current.get(index++);
+	}
+
+	private CompletableFuture<QueryResults> fetch(String cursor) {
+		QueryDatabaseRequest request = new QueryDatabaseRequest(query.getDatabaseId(), query.getFilter(),
+				query.getSorts(), cursor, pageSize);
+		return CompletableFuture.supplyAsync(() -> client.queryDatabase(request), PREFETCH);
+	}
+
+	private static QueryResults await(CompletableFuture<QueryResults> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause() != null ? e.getCause() : e;
+			throw new IllegalStateException("Error al consultar la base de datos de Notion: " + cause.getMessage(), cause);
+		}
+	}
+}
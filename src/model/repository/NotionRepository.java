@@ -3,17 +3,33 @@ package model.repository;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import model.Task;
 import notion.api.v1.NotionClient;
 import notion.api.v1.http.OkHttp5Client;
 import notion.api.v1.logging.Slf4jLogger;
-import notion.api.v1.model.databases.QueryResults;
+import notion.api.v1.model.databases.query.filter.CompoundFilter;
+import notion.api.v1.model.databases.query.filter.CompoundFilterElement;
+import notion.api.v1.model.databases.query.filter.PropertyFilter;
+import notion.api.v1.model.databases.query.filter.QueryTopLevelFilter;
+import notion.api.v1.model.databases.query.filter.condition.CheckboxFilter;
+import notion.api.v1.model.databases.query.filter.condition.DateFilter;
+import notion.api.v1.model.databases.query.filter.condition.NumberFilter;
+import notion.api.v1.model.databases.query.filter.condition.TextFilter;
+import notion.api.v1.model.databases.query.sort.QuerySort;
+import notion.api.v1.model.databases.query.sort.QuerySortDirection;
 import notion.api.v1.model.pages.Page;
 import notion.api.v1.model.pages.PageParent;
 import notion.api.v1.model.pages.PageProperty;
@@ -25,16 +41,54 @@ import notion.api.v1.request.pages.UpdatePageRequest;
 
 public class NotionRepository implements IRepository {
 
-	private Set<Integer> usedIDs = new HashSet<>();
-	private List<Task> tasks = new ArrayList<>();
+	// Identificadores conocidos en Notion o reservados para tareas nuevas.
+	// Concurrentes porque las escrituras en Notion se hacen en paralelo
+	private Set<Integer> usedIDs = ConcurrentHashMap.newKeySet();
+	// Identificadores de las tareas nuevas; no se guarda marca porque la fuente es Notion
+	private volatile IdAllocator idAllocator = new SequentialIdAllocator();
+	// Copia local de las tareas: los escritores se serializan con el monitor del
+	// repositorio y los lectores usan instantaneas inmutables sin bloquear
+	private final TaskStore tasks = new TaskStore();
+	private volatile boolean loaded = false;
+
+	// Cambios locales pendientes de enviar a Notion en el siguiente guardado
+	private final ChangeTracker changes = new ChangeTracker();
+	// Si es falso, cada escritura se envia a Notion antes de aplicarse en local
+	private volatile boolean writeBehind = false;
+
+	// Cache identificador -> ID de pagina de Notion, evita consultar la base de datos por cada tarea
+	private final Map<Integer, String> pageIds = new ConcurrentHashMap<>();
+	private volatile boolean pageIdsLoaded = false;
+	// Serializa las recargas de la cache con las escrituras en Notion que la consultan:
+	// una escritura que viera la cache a medio recargar crearia una pagina duplicada.
+	// Se toma despues del monitor del repositorio, nunca al reves
+	private final Object writeLock = new Object();
+
+	private final NotionWritePipeline writePipeline = new NotionWritePipeline();
+	private List<WriteResult> lastSaveResults = Collections.emptyList();
 
 	private final NotionClient client;
 	private final String databaseID;
 	private final String titleColumnName = "Identifier";
 	
 	public NotionRepository(String apiToken, String databaseID) {
+		this(apiToken, databaseID, null);
+	}
+
+	/**
+	 * Crea el repositorio contra una URL base distinta de la API publica de Notion,
+	 * por ejemplo un servidor local que la simule.
+	 *
+	 * @param apiToken   el token de la integracion.
+	 * @param databaseID el ID de la base de datos de tareas.
+	 * @param baseUrl    la URL base de la API o {@code null} para usar la de Notion.
+	 */
+	public NotionRepository(String apiToken, String databaseID, String baseUrl) {
 		// Crear cliente de notion
 		this.client = new NotionClient(apiToken);
+		if (baseUrl != null) {
+			client.setBaseUrl(baseUrl);
+		}
 
 		// Configurar cliente HTTP adecuadao y tiempos de espera
 		client.setHttpClient(new OkHttp5Client(60000, 60000, 60000));
@@ -52,45 +106,210 @@ public class NotionRepository implements IRepository {
 	@Override
 	public void loadTasks() throws RepositoryException {
 		try {
-			// Cargar las tareas desde Notion
-			List<Task> loadedTasks = getAllTasks();
-			
-			// Limpiar la lista de tareas locales antes de cargar nuevas
-			tasks.clear();
+			// Cargar las tareas desde Notion, sin bloquear a los escritores durante la descarga
+			List<Task> loadedTasks = fetchAllTasks();
 
-			// Agregar las tareas cargadas desde Notion al repositorio local
+			// Sustituir las tareas locales por las cargadas desde Notion
+			TaskIndex index = new TaskIndex(loadedTasks.size());
 			for (Task task : loadedTasks) {
-				tasks.add(task);
+				index.add(task);
 			}
 
+			synchronized (this) {
+				tasks.reset(index);
+				// Lo cargado ya esta en Notion
+				changes.clear();
+				loaded = true;
+			}
 		} catch (Exception e) {
 			throw new RepositoryException("Error al cargar las tareas desde Notion: " + e.getMessage(), e);
 		}
 	}
 	
+	/**
+	 * Envia a Notion solo las tareas creadas, modificadas o eliminadas desde el ultimo
+	 * guardado.
+	 * <p>
+	 * Las escrituras se hacen en paralelo respetando el limite de la API. Las que fallan
+	 * siguen pendientes y se reintentan en el siguiente guardado.
+	 * </p>
+	 * <p>
+	 * Solo hay cambios pendientes con la escritura diferida ({@link #setWriteBehind(boolean)});
+	 * por defecto cada escritura ya se envio a Notion al hacerla.
+	 * </p>
+	 */
 	@Override
 	public void saveTasks() throws RepositoryException {
+		ChangeTracker.Delta delta = changes.drain();
+		if (delta.isEmpty()) {
+			changes.saved(0);
+			lastSaveResults = Collections.emptyList();
+			return;
+		}
+
+		// Tarea a enviar y cambio que le corresponde, de una instantanea de las tareas locales
+		TaskStore.Snapshot current = tasks.snapshot();
+		Map<Integer, ChangeTracker.Change> pending = new HashMap<>();
+		List<Task> toWrite = new ArrayList<>(delta.size());
+		for (int i = 0; i < delta.size(); i++) {
+			int identifier = delta.identifier(i);
+			Task task = delta.change(i) == ChangeTracker.Change.DELETED ? new Task(identifier) : current.get(identifier);
+			if (task != null) {
+				pending.put(identifier, delta.change(i));
+				toWrite.add(task);
+			}
+		}
+
 		try {
-			// Recorrer todas las tareas locales y guardarlas en Notion
-			for (Task task : tasks) {
-				// Comprobar si la tarea ya existe en Notion, si no existe la creas
-				String pageId = findPageIdByIdentifier(String.valueOf(task.getIdentifier()), titleColumnName);
-					
-					if (pageId == null) {
-						// Si no existe, crea la tarea en Notion
-						createTask(task);
-					} else {
-						// Si ya existe, actualiza la tarea  || y si la borro?
-						modifyTask(task);
-					}
+			synchronized (writeLock) {
+				// Una unica consulta para conocer las paginas existentes, que se repite si
+				// la cache no conoce alguna de las tareas ya guardadas
+				if (!pageIdsLoaded || hasUnknownPages(pending)) {
+					refreshPageIds();
+				}
+
+				// Guardar los cambios en Notion, en paralelo y respetando el limite de la API
+				lastSaveResults = writePipeline.execute(toWrite,
+						(task, uncertain) -> writeChange(task, pending.get(task.getIdentifier()), uncertain));
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			restoreChanges(pending);
+			throw new RepositoryException("Error: Guardado en Notion interrumpido", e);
 		} catch (Exception e) {
+			restoreChanges(pending);
 			throw new RepositoryException("Error al guardar las tareas en Notion: " + e.getMessage(), e);
 		}
+
+		int written = 0;
+		List<WriteResult> failed = new ArrayList<>();
+		for (WriteResult result : lastSaveResults) {
+			if (result.isSuccess()) {
+				written++;
+			} else {
+				failed.add(result);
+				changes.restore(result.getIdentifier(), pending.get(result.getIdentifier()));
+			}
+		}
+		changes.saved(written);
+
+		if (!failed.isEmpty()) {
+			throw new RepositoryException("Error: " + failed.size() + " de " + lastSaveResults.size()
+					+ " tareas no se guardaron en Notion. " + failed.get(0), failed.get(0).getError());
+		}
+	}
+
+	private void restoreChanges(Map<Integer, ChangeTracker.Change> pending) {
+		pending.forEach(changes::restore);
+	}
+
+	/**
+	 * Aplica en Notion el cambio de una tarea.
+	 * <p>
+	 * Crear una pagina no es idempotente: si un intento anterior fallo sin saber si se
+	 * aplico ({@code uncertain}), se busca antes la pagina por su identificador y, si
+	 * existe, se actualiza en lugar de crear otra.
+	 * </p>
+	 */
+	private void writeChange(Task task, ChangeTracker.Change change, boolean uncertain) {
+		// Comprobar en la cache si la tarea ya existe en Notion
+		String pageId = pageIds.get(task.getIdentifier());
+		if (pageId == null && uncertain && change != ChangeTracker.Change.DELETED) {
+			pageId = findPageId(task.getIdentifier());
+		}
+
+		if (change == ChangeTracker.Change.DELETED) {
+			// Si nunca llego a Notion no hay nada que archivar
+			if (pageId != null) {
+				archivePage(pageId, task.getIdentifier());
+			}
+		} else if (pageId == null) {
+			// Si no existe, crea la pagina conservando su identificador
+			createPage(task);
+		} else {
+			// Si ya existe, actualiza la tarea
+			updatePage(pageId, task);
+		}
+	}
+
+	/**
+	 * Envia a Notion los cambios de las tareas sin esperar al guardado, con los mismos
+	 * reintentos y limite de peticiones que {@link #saveTasks()}.
+	 *
+	 * @param toWrite las tareas a escribir.
+	 * @param pending el cambio de cada tarea.
+	 * @return el resultado de cada tarea, en el orden de entrada.
+	 * @throws RepositoryException si no se pueden consultar las paginas o se interrumpe la escritura.
+	 */
+	private List<WriteResult> writeThrough(List<Task> toWrite, Map<Integer, ChangeTracker.Change> pending) throws RepositoryException {
+		if (toWrite.isEmpty()) {
+			return List.of();
+		}
+		synchronized (writeLock) {
+			if (!pageIdsLoaded || hasUnknownPages(pending)) {
+				refreshPageIds();
+			}
+			try {
+				return writePipeline.execute(toWrite,
+						(task, uncertain) -> writeChange(task, pending.get(task.getIdentifier()), uncertain));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RepositoryException("Error: Escritura en Notion interrumpida", e);
+			}
+		}
+	}
+
+	// Escritura inmediata de una sola tarea; si falla, la copia local no se modifica
+	private void writeThrough(Task t, ChangeTracker.Change change) throws RepositoryException {
+		WriteResult result = writeThrough(List.of(t), Map.of(t.getIdentifier(), change)).get(0);
+		if (!result.isSuccess()) {
+			throw new RepositoryException("Error al escribir la tarea en Notion: " + result, result.getError());
+		}
+	}
+
+	/**
+	 * Elige cuando llegan a Notion las escrituras del repositorio.
+	 * <p>
+	 * Por defecto ({@code false}) {@code addTask}, {@code modifyTask}, {@code removeTask}
+	 * y las operaciones en bloque escriben en Notion antes de modificar la copia local, y
+	 * fallan sin modificarla si Notion no acepta el cambio: lo que devuelve el repositorio
+	 * ya esta guardado. Con {@code true} solo modifican la copia local y los cambios se
+	 * envian juntos en el siguiente {@link #saveTasks()}, mucho mas rapido para muchas
+	 * escrituras, pero los cambios se pierden si la aplicacion termina antes de guardar.
+	 * </p>
+	 * <p>
+	 * Al volver a la escritura inmediata, los cambios que quedaran pendientes se envian en
+	 * el siguiente guardado.
+	 * </p>
+	 *
+	 * @param enabled {@code true} para diferir las escrituras hasta el guardado.
+	 */
+	public synchronized void setWriteBehind(boolean enabled) {
+		this.writeBehind = enabled;
+	}
+
+	public boolean isWriteBehind() {
+		return writeBehind;
+	}
+
+	/**
+	 * Devuelve el registro de cambios pendientes y los contadores de escritura.
+	 */
+	public ChangeTracker getChangeTracker() {
+		return changes;
+	}
+
+	/**
+	 * Devuelve el resultado por tarea del ultimo guardado.
+	 *
+	 * @return una lista inmutable con un resultado por cada tarea, vacia si no se ha guardado.
+	 */
+	public List<WriteResult> getLastSaveResults() {
+		return Collections.unmodifiableList(lastSaveResults);
 	}
 
 	@Override
-	public void createTask(Task t) throws RepositoryException {
+	public synchronized void createTask(Task t) throws RepositoryException {
 		// Comprobar si la tarea esta vacia
 		if (t == null) {
 			throw new RepositoryException("Error: La tarea es nula");
@@ -113,19 +332,15 @@ public class NotionRepository implements IRepository {
 	}
 
 	@Override
-	public void addTask(Task t) throws RepositoryException {
+	public synchronized void addTask(Task t) throws RepositoryException {
 		// Comprobar si la tarea vacia vacia
 		if (t == null) {
 			throw new RepositoryException("Error: La tarea es nula");
 		}
 
 		// Comprobar que no haya una tarea con el mismo identificador
-		if (tasks != null && !tasks.isEmpty()) {
-			for (Task task : tasks) {
-				if (task.getIdentifier() == t.getIdentifier()) {
-					throw new RepositoryException("Error: Tarea con identificador: " + t.getIdentifier() + " ya existe");
-				}
-			}
+		if (tasks.contains(t.getIdentifier())) {
+			throw new RepositoryException("Error: Tarea con identificador: " + t.getIdentifier() + " ya existe");
 		}
 
 		// Comprobar titulo y contenido no nulos o vacíos
@@ -137,50 +352,38 @@ public class NotionRepository implements IRepository {
 			throw new RepositoryException("Error: El contenido de la tarea es obligatorio");
 		}
 
-		// Crear las propiedades de la pagina
-		try {
-			Map<String, PageProperty> properties = Map.of(
-				"Identifier", createTitleProperty(String.valueOf(t.getIdentifier())),
-				"Title", createRichTextProperty(t.getTitle()),
-				"Date", createDateProperty(t.getDate().toString()),
-				"Content", createRichTextProperty(t.getContent()),
-				"Priority", createNumberProperty(t.getPriority()),
-				"Estimated Duration", createNumberProperty(t.getEstimatedDuration()),
-				"Completed", createCheckboxProperty(t.isCompleted())
-			);
-
-			PageParent parent = PageParent.database(databaseID);
-			CreatePageRequest request = new CreatePageRequest(parent, properties);
-			Page response = client.createPage(request);
-			// Actualizar set de IDs
-			usedIDs.add(Integer.getInteger(response.getId()));
-		} catch (Exception e) {
-			throw new RepositoryException("Error al crear la tarea en Notion: " + e.getMessage(), e);
+		if (writeBehind) {
+			// La pagina se crea en Notion al guardar
+			changes.created(t.getIdentifier());
+		} else {
+			writeThrough(t, ChangeTracker.Change.CREATED);
 		}
+		tasks.add(t);
+		usedIDs.add(t.getIdentifier());
+		idAllocator.observe(t.getIdentifier());
 	}
 
 	@Override
-	public void removeTask(Task t) throws RepositoryException {
+	public synchronized void removeTask(Task t) throws RepositoryException {
 		if (t == null) {
 			throw new RepositoryException("La tarea a eliminar no puede ser nula.");
 		}
 
-		try {
-			String pageId = findPageIdByIdentifier(String.valueOf(t.getIdentifier()), titleColumnName);
-			if (pageId == null) {
-			throw new RepositoryException("No se encontro la pagina con identificador: " + t.getIdentifier());
-			}
-
-			// Archivar la pagina
-			UpdatePageRequest updateRequest = new UpdatePageRequest(pageId, Collections.emptyMap(), true);
-			client.updatePage(updateRequest);
-		} catch (Exception e) {
-			throw new RepositoryException("Error al intentar archivar la tarea con identificador: " + t.getIdentifier() + ". Detalles: " + e.getMessage(), e);
+		if (!tasks.contains(t.getIdentifier())) {
+			throw new RepositoryException("No se encontro la tarea con identificador: " + t.getIdentifier());
+		}
+		if (writeBehind) {
+			// La pagina se archiva en Notion al guardar
+			changes.deleted(t.getIdentifier());
+		} else {
+			writeThrough(new Task(t.getIdentifier()), ChangeTracker.Change.DELETED);
 		}
+		tasks.remove(t.getIdentifier());
+		usedIDs.remove(t.getIdentifier());
 	}
 
 	@Override
-	public void modifyTask(Task t) throws RepositoryException {
+	public synchronized void modifyTask(Task t) throws RepositoryException {
 		if (t == null) {
 			throw new RepositoryException("Error: La tarea es nula.");
 		}
@@ -189,127 +392,462 @@ public class NotionRepository implements IRepository {
 			throw new RepositoryException("Error: La tarea no tiene un identificador válido.");
 		}
 
-		try {
-			// Buscar el ID interno de Notion usando el titulo
-			String pageId = findPageIdByIdentifier(String.valueOf(t.getIdentifier()), titleColumnName);
-			if (pageId == null) {
-				throw new RepositoryException("Error: No se encontró una tarea con el identificador: " + t.getIdentifier());
+		if (!tasks.contains(t.getIdentifier())) {
+			throw new RepositoryException("Error: No se encontró una tarea con el identificador: " + t.getIdentifier());
+		}
+		if (writeBehind) {
+			// La pagina se actualiza en Notion al guardar
+			changes.modified(t.getIdentifier());
+		} else {
+			writeThrough(t, ChangeTracker.Change.MODIFIED);
+		}
+		tasks.replace(t);
+	}
+
+	// Operaciones en bloque: se envian a Notion en paralelo con el NotionWritePipeline en
+	// lugar de una peticion tras otra, y solo las filas que Notion acepta se aplican a la
+	// copia local, como una unica version. Con escritura diferida quedan pendientes en el
+	// registro de cambios y las envia el siguiente guardado
+
+	@Override
+	public synchronized BulkResult addAll(List<Task> batch) throws RepositoryException {
+		return upsert(batch, false);
+	}
+
+	@Override
+	public synchronized BulkResult upsertAll(List<Task> batch) throws RepositoryException {
+		return upsert(batch, true);
+	}
+
+	private BulkResult upsert(List<Task> batch, boolean replaceExisting) throws RepositoryException {
+		if (batch == null) {
+			throw new RepositoryException("Error: La lista de tareas es nula");
+		}
+		String[] errors = TaskBatch.validate(batch, true);
+		TaskBatch.rejectDuplicates(batch, errors);
+
+		BulkResult.Builder result = new BulkResult.Builder(batch.size());
+		List<Integer> rows = new ArrayList<>();
+		List<Task> accepted = new ArrayList<>();
+		Map<Integer, ChangeTracker.Change> pending = new HashMap<>();
+		for (int row = 0; row < batch.size(); row++) {
+			Task t = batch.get(row);
+			boolean exists = errors[row] == null && tasks.contains(t.getIdentifier());
+			if (exists && !replaceExisting) {
+				errors[row] = "Error: Tarea con identificador: " + t.getIdentifier() + " ya existe";
 			}
+			if (errors[row] != null) {
+				result.fail(row, errors[row]);
+				continue;
+			}
+			rows.add(row);
+			accepted.add(t);
+			pending.put(t.getIdentifier(), exists ? ChangeTracker.Change.MODIFIED : ChangeTracker.Change.CREATED);
+		}
 
-			// Crear las propiedades actualizadas
-			Map<String, PageProperty> updatedProperties = Map.of(
-				"Title", createRichTextProperty(t.getTitle()),
-				"Date", createDateProperty(String.valueOf(t.getDate())),
-				"Content", createRichTextProperty(t.getContent()),
-				"Priority", createNumberProperty(t.getPriority()),
-				"Estimated Duration", createNumberProperty(t.getEstimatedDuration()),
-				"Completed", createCheckboxProperty(t.isCompleted())
-			);
-
-			UpdatePageRequest updateRequest = new UpdatePageRequest(pageId, updatedProperties);
-			client.updatePage(updateRequest);
-		} catch (Exception e) {
-			throw new RepositoryException("Error al actualizar la tarea: " + e.getMessage(), e);
+		List<WriteResult> written = writeBehind ? List.of() : writeThrough(accepted, pending);
+		List<Task> additions = new ArrayList<>();
+		List<Task> replacements = new ArrayList<>();
+		for (int i = 0; i < accepted.size(); i++) {
+			Task t = accepted.get(i);
+			int row = rows.get(i);
+			if (!writeBehind && !written.get(i).isSuccess()) {
+				result.fail(row, "Error al escribir la tarea en Notion: " + written.get(i));
+			} else if (pending.get(t.getIdentifier()) == ChangeTracker.Change.CREATED) {
+				additions.add(t);
+				result.set(row, BulkResult.Outcome.ADDED);
+			} else {
+				replacements.add(t);
+				result.set(row, BulkResult.Outcome.REPLACED);
+			}
+		}
+
+		tasks.apply(additions, replacements, List.of());
+		for (Task t : additions) {
+			usedIDs.add(t.getIdentifier());
+			idAllocator.observe(t.getIdentifier());
+			if (writeBehind) {
+				changes.created(t.getIdentifier());
+			}
+		}
+		if (writeBehind) {
+			for (Task t : replacements) {
+				changes.modified(t.getIdentifier());
+			}
 		}
+		return result.build();
 	}
 
-	private String findPageIdByIdentifier(String identifier, String columnName) throws RepositoryException {
-		if (identifier == null || identifier.isEmpty()) {
-			throw new IllegalArgumentException("El identificador no puede ser nulo o estar vacio.");
+	@Override
+	public synchronized BulkResult removeAll(List<Task> batch) throws RepositoryException {
+		if (batch == null) {
+			throw new RepositoryException("Error: La lista de tareas es nula");
+		}
+		String[] errors = TaskBatch.validate(batch, false);
+		TaskBatch.rejectDuplicates(batch, errors);
+
+		BulkResult.Builder result = new BulkResult.Builder(batch.size());
+		List<Integer> rows = new ArrayList<>();
+		List<Task> accepted = new ArrayList<>();
+		Map<Integer, ChangeTracker.Change> pending = new HashMap<>();
+		for (int row = 0; row < batch.size(); row++) {
+			Task t = batch.get(row);
+			if (errors[row] == null && !tasks.contains(t.getIdentifier())) {
+				errors[row] = "No se encontro la tarea con identificador: " + t.getIdentifier();
+			}
+			if (errors[row] != null) {
+				result.fail(row, errors[row]);
+			} else {
+				rows.add(row);
+				accepted.add(new Task(t.getIdentifier()));
+				pending.put(t.getIdentifier(), ChangeTracker.Change.DELETED);
+			}
 		}
 
-		try {
-			// Crear la solicitud para consultar la base de datos
-			QueryDatabaseRequest queryRequest = new QueryDatabaseRequest(databaseID);
-			QueryResults queryResults = client.queryDatabase(queryRequest);
-
-			// Iterar por las paginas de resultados
-			for (Page page : queryResults.getResults()) {
-				Map<String, PageProperty> properties = page.getProperties();
-
-				// Comprobar si la propiedad existe y contiene el identificador buscado
-				if (properties.containsKey(titleColumnName)) {
-					PageProperty property = properties.get(titleColumnName);
-					if (property.getTitle() != null && !property.getTitle().isEmpty()) {
-						String titleContent = property.getTitle().get(0).getText().getContent();
-						// Retornar ID de la pagina
-						if (titleContent.equals(identifier)) {
-							return page.getId();
-						}
-					}
-				}
+		List<WriteResult> written = writeBehind ? List.of() : writeThrough(accepted, pending);
+		List<Integer> removals = new ArrayList<>();
+		for (int i = 0; i < accepted.size(); i++) {
+			if (!writeBehind && !written.get(i).isSuccess()) {
+				result.fail(rows.get(i), "Error al archivar la tarea en Notion: " + written.get(i));
+			} else {
+				removals.add(accepted.get(i).getIdentifier());
+				result.set(rows.get(i), BulkResult.Outcome.REMOVED);
+			}
+		}
+
+		tasks.apply(List.of(), List.of(), removals);
+		for (int identifier : removals) {
+			usedIDs.remove(identifier);
+			if (writeBehind) {
+				changes.deleted(identifier);
+			}
+		}
+		return result.build();
+	}
+
+	/**
+	 * Crea la pagina de una tarea y guarda su ID en la cache.
+	 */
+	private String createPage(Task t) {
+		Map<String, PageProperty> properties = Map.of(
+			"Identifier", createTitleProperty(String.valueOf(t.getIdentifier())),
+			"Title", createRichTextProperty(t.getTitle()),
+			"Date", createDateProperty(t.getDate().toString()),
+			"Content", createRichTextProperty(t.getContent()),
+			"Priority", createNumberProperty(t.getPriority()),
+			"Estimated Duration", createNumberProperty(t.getEstimatedDuration()),
+			"Completed", createCheckboxProperty(t.isCompleted())
+		);
+
+		PageParent parent = PageParent.database(databaseID);
+		CreatePageRequest request = new CreatePageRequest(parent, properties);
+		Page response = client.createPage(request);
+
+		// Actualizar set de IDs y la cache de paginas
+		usedIDs.add(t.getIdentifier());
+		idAllocator.observe(t.getIdentifier());
+		pageIds.put(t.getIdentifier(), response.getId());
+		return response.getId();
+	}
+
+	/**
+	 * Busca en la base de datos la pagina de una tarea y la guarda en la cache.
+	 *
+	 * @return el ID de la pagina, o {@code null} si no existe.
+	 */
+	private String findPageId(int identifier) {
+		TextFilter title = new TextFilter();
+		title.setEquals(String.valueOf(identifier));
+		QueryDatabaseRequest request = new QueryDatabaseRequest(databaseID,
+				propertyFilter(titleColumnName, filter -> filter.setTitle(title)));
+		List<Page> results = client.queryDatabase(request).getResults();
+		if (results.isEmpty()) {
+			return null;
+		}
+		String pageId = results.get(0).getId();
+		usedIDs.add(identifier);
+		idAllocator.observe(identifier);
+		pageIds.put(identifier, pageId);
+		return pageId;
+	}
+
+	/**
+	 * Actualiza las propiedades de la pagina de una tarea.
+	 */
+	private void updatePage(String pageId, Task t) {
+		// Crear las propiedades actualizadas
+		Map<String, PageProperty> updatedProperties = Map.of(
+			"Title", createRichTextProperty(t.getTitle()),
+			"Date", createDateProperty(String.valueOf(t.getDate())),
+			"Content", createRichTextProperty(t.getContent()),
+			"Priority", createNumberProperty(t.getPriority()),
+			"Estimated Duration", createNumberProperty(t.getEstimatedDuration()),
+			"Completed", createCheckboxProperty(t.isCompleted())
+		);
+
+		UpdatePageRequest updateRequest = new UpdatePageRequest(pageId, updatedProperties);
+		client.updatePage(updateRequest);
+	}
+
+	/**
+	 * Archiva la pagina de una tarea y la elimina de la cache.
+	 */
+	private void archivePage(String pageId, int identifier) {
+		UpdatePageRequest updateRequest = new UpdatePageRequest(pageId, Collections.emptyMap(), true);
+		client.updatePage(updateRequest);
+
+		pageIds.remove(identifier);
+		usedIDs.remove(identifier);
+	}
+
+	/**
+	 * Comprueba si falta en la cache la pagina de alguna tarea que ya deberia estar en Notion.
+	 * <p>
+	 * Las tareas modificadas o eliminadas se cargaron desde Notion; si su pagina no esta
+	 * en la cache, la cache esta desactualizada (por ejemplo, porque la pagina se creo
+	 * desde otro cliente) y hay que recargarla.
+	 * </p>
+	 */
+	private boolean hasUnknownPages(Map<Integer, ChangeTracker.Change> pending) {
+		for (Map.Entry<Integer, ChangeTracker.Change> entry : pending.entrySet()) {
+			if (entry.getValue() != ChangeTracker.Change.CREATED && !pageIds.containsKey(entry.getKey())) {
+				return true;
 			}
+		}
+		return false;
+	}
+
+	/**
+	 * Vuelve a construir la cache de IDs de pagina con una consulta a la base de datos.
+	 * <p>
+	 * Se llama siempre con {@code writeLock}, de modo que ninguna escritura consulta la
+	 * cache mientras esta vacia.
+	 * </p>
+	 */
+	private void refreshPageIds() throws RepositoryException {
+		pageIds.clear();
+		// El recorrido de las paginas rellena la cache
+		try (Stream<Task> stream = streamAllTasks()) {
+			stream.forEach(task -> { });
 		} catch (Exception e) {
-			e.printStackTrace();
+			throw new RepositoryException("Error al obtener las paginas desde Notion: " + e.getMessage(), e);
 		}
+		pageIdsLoaded = true;
+	}
 
-		return null;
+	private static Integer readIdentifier(Map<String, PageProperty> properties, String columnName) {
+		PageProperty property = properties.get(columnName);
+		if (property == null || property.getTitle() == null || property.getTitle().isEmpty()) {
+			return null;
+		}
+		try {
+			return Integer.parseInt(property.getTitle().get(0).getText().getContent());
+		} catch (NumberFormatException e) {
+			return null;
+		}
 	}
 
+	/**
+	 * Devuelve las tareas locales, incluidos los cambios aun no guardados, en una lista de
+	 * solo lectura que no cambia con las escrituras posteriores.
+	 * <p>
+	 * Si las tareas no se han cargado todavia, se descargan de Notion.
+	 * </p>
+	 */
 	@Override
 	public List<Task> getAllTasks() throws RepositoryException {
-		List<Task> loadedTasks = new ArrayList<>();
-		try {
-			QueryDatabaseRequest queryRequest = new QueryDatabaseRequest(databaseID);
-			QueryResults queryResults = client.queryDatabase(queryRequest);
-
-			for (Page page : queryResults.getResults()) {
-				Map<String, PageProperty> properties = page.getProperties();
-				Task task = mapPageToTask(page.getId(), properties);
-				if (task != null) {
-					loadedTasks.add(task);
-					this.usedIDs.add(task.getIdentifier());
-				}
-			}
+		return localSnapshot().tasks();
+	}
+
+	// Instantanea de las tareas locales, cargandolas antes si hace falta
+	private TaskStore.Snapshot localSnapshot() throws RepositoryException {
+		if (!loaded) {
+			loadTasks();
+		}
+		return tasks.snapshot();
+	}
+
+	// Descarga todas las tareas de la base de datos
+	private List<Task> fetchAllTasks() throws RepositoryException {
+		try (Stream<Task> stream = streamAllTasks()) {
+			List<Task> loadedTasks = stream.collect(Collectors.toCollection(ArrayList::new));
+			pageIdsLoaded = true;
 			return loadedTasks;
 		} catch (Exception e) {
 			throw new RepositoryException("Error al obtener las tareas desde Notion: " + e.getMessage(), e);
 		}
 	}
 
+	/**
+	 * Devuelve las tareas de la base de datos a medida que se descargan.
+	 * <p>
+	 * Sigue el cursor de paginacion de Notion hasta el final y convierte cada pagina
+	 * en tarea segun llega, de modo que las primeras tareas pueden mostrarse o procesarse
+	 * mientras se descargan las siguientes. Las paginas que no se pueden convertir
+	 * se omiten. Los errores de red se lanzan como {@link IllegalStateException}
+	 * al consumir el flujo.
+	 * </p>
+	 *
+	 * @return un flujo secuencial con las tareas en el orden devuelto por Notion.
+	 */
+	public Stream<Task> streamAllTasks() {
+		return streamTasks(new QueryDatabaseRequest(databaseID), NotionPageIterator.PAGE_SIZE);
+	}
+
+	private Stream<Task> streamTasks(QueryDatabaseRequest request, int pageSize) {
+		NotionPageIterator pages = new NotionPageIterator(client, request, pageSize);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.map(this::toTask)
+				.filter(Objects::nonNull);
+	}
+
+	// Convierte una pagina en tarea y actualiza la cache de paginas y el set de IDs
+	private Task toTask(Page page) {
+		Map<String, PageProperty> properties = page.getProperties();
+
+		// Mantener la cache de paginas aunque la tarea no se pueda mapear entera
+		Integer identifier = readIdentifier(properties, titleColumnName);
+		if (identifier != null) {
+			pageIds.put(identifier, page.getId());
+		}
+
+		Task task = mapPageToTask(page.getId(), properties);
+		if (task != null) {
+			this.usedIDs.add(task.getIdentifier());
+			idAllocator.observe(task.getIdentifier());
+		}
+		return task;
+	}
+
+	// Los metodos ordenados devuelven vistas de solo lectura de los indices de la instantanea:
+	// no copian ni ordenan la lista en cada llamada
+
 	@Override
 	public List<Task> getTasksSortedByPriority() throws RepositoryException {
-		try {
-			List<Task> sortedTasks = getAllTasks();
-			// Ordenamos las tareas por su atributo "priority" (de mayor a menor)
-			sortedTasks.sort((task1, task2) -> Integer.compare(task2.getPriority(), task1.getPriority()));
-			return sortedTasks;
-		} catch (Exception e) {
-			throw new RepositoryException("Error al obtener la lista de tareas ordenada por prioridad", e);
-		}
+		// Tareas por su atributo "priority" (de mayor a menor)
+		return localSnapshot().byPriority();
 	}
 
 	@Override
 	public List<Task> getTasksSortedByCompletion() throws RepositoryException {
-		try {
-			// Trabajar sobre una copia
-			List<Task> sortedTasks = new ArrayList<>(getAllTasks());
-			sortedTasks.sort((task1, task2) -> Boolean.compare(!task2.isCompleted(), !task1.isCompleted()));
-			return sortedTasks;
-		} catch (Exception e) {
-			throw new RepositoryException("Error al obtener la lista de tareas ordenada por estado de completado.", e);
-		}
+		// Tareas pendientes primero y despues las completadas
+		return localSnapshot().byCompletion();
 	}
 
 	@Override
 	public List<Task> getTasksSortedByDate() throws RepositoryException {
-		try {
-			List<Task> sortedTasks = new ArrayList<>(getAllTasks());
-			sortedTasks.sort((task1, task2) -> task1.getDate().compareTo(task2.getDate()));
-			sortedTasks.reversed();
-			return sortedTasks;
+		// Tareas por el atributo "date" (de mas antigua a mas nueva)
+		return localSnapshot().byDate();
+	}
+
+	/**
+	 * Ejecuta la consulta en Notion, traduciendo sus filtros y su orden a los de la API
+	 * para que el servidor solo devuelva las tareas pedidas.
+	 * <p>
+	 * Si hay cambios locales sin guardar, Notion no refleja el estado actual y la
+	 * consulta se resuelve sobre la lista local.
+	 * </p>
+	 */
+	@Override
+	public List<Task> queryTasks(TaskQuery query) throws RepositoryException {
+		if (query == null) {
+			throw new RepositoryException("Error: La consulta es nula");
+		}
+		if (changes.isDirty()) {
+			return tasks.snapshot().query(query);
+		}
+
+		QueryDatabaseRequest request = new QueryDatabaseRequest(databaseID, toNotionFilter(query), toNotionSorts(query));
+		long needed = (long) query.getOffset() + query.getLimit();
+		int pageSize = (int) Math.min(needed, NotionPageIterator.PAGE_SIZE);
+		try (Stream<Task> stream = streamTasks(request, pageSize)) {
+			// Se vuelve a comprobar en local por si alguna pagina no se pudo mapear igual que en Notion
+			return stream.filter(query::matches)
+					.skip(query.getOffset())
+					.limit(query.getLimit())
+					.collect(Collectors.toCollection(ArrayList::new));
 		} catch (Exception e) {
-			throw new RepositoryException("Error al obtener la lista de tareas ordenada por fecha", e);
+			throw new RepositoryException("Error al consultar las tareas en Notion: " + e.getMessage(), e);
+		}
+	}
+
+	// Filtro de la API equivalente a la consulta, o null si no tiene filtros
+	private QueryTopLevelFilter toNotionFilter(TaskQuery query) {
+		List<CompoundFilterElement> conditions = new ArrayList<>();
+
+		// Cada filtro de Notion admite una sola condicion: los rangos van por separado
+		if (query.getDateFrom() != null) {
+			DateFilter date = new DateFilter();
+			date.setOnOrAfter(query.getDateFrom().toString());
+			conditions.add(propertyFilter("Date", filter -> filter.setDate(date)));
+		}
+		if (query.getDateTo() != null) {
+			DateFilter date = new DateFilter();
+			date.setOnOrBefore(query.getDateTo().toString());
+			conditions.add(propertyFilter("Date", filter -> filter.setDate(date)));
+		}
+		if (query.hasPriorityRange()) {
+			NumberFilter min = new NumberFilter();
+			min.setGreaterThanOrEqualTo(query.getMinPriority());
+			conditions.add(propertyFilter("Priority", filter -> filter.setNumber(min)));
+			NumberFilter max = new NumberFilter();
+			max.setLessThanOrEqualTo(query.getMaxPriority());
+			conditions.add(propertyFilter("Priority", filter -> filter.setNumber(max)));
+		}
+		if (query.getCompleted() != null) {
+			CheckboxFilter checkbox = new CheckboxFilter();
+			checkbox.setEquals(query.getCompleted());
+			conditions.add(propertyFilter("Completed", filter -> filter.setCheckbox(checkbox)));
+		}
+		if (query.getText() != null) {
+			TextFilter title = new TextFilter();
+			title.setContains(query.getText());
+			TextFilter content = new TextFilter();
+			content.setContains(query.getText());
+			CompoundFilter text = new CompoundFilter();
+			text.setOr(List.of(
+				propertyFilter("Title", filter -> filter.setRichText(title)),
+				propertyFilter("Content", filter -> filter.setRichText(content))
+			));
+			conditions.add(text);
+		}
+
+		if (conditions.isEmpty()) {
+			return null;
 		}
+		if (conditions.size() == 1) {
+			return (QueryTopLevelFilter) conditions.get(0);
+		}
+		CompoundFilter all = new CompoundFilter();
+		all.setAnd(conditions);
+		return all;
 	}
 
+	private static PropertyFilter propertyFilter(String property, Consumer<PropertyFilter> condition) {
+		PropertyFilter filter = new PropertyFilter(property);
+		condition.accept(filter);
+		return filter;
+	}
+
+	// Orden de la API equivalente al de los metodos getTasksSortedBy...
+	private static List<QuerySort> toNotionSorts(TaskQuery query) {
+		switch (query.getSortKey()) {
+			case PRIORITY:
+				return List.of(new QuerySort("Priority", null, QuerySortDirection.Descending));
+			case DATE:
+				return List.of(new QuerySort("Date", null, QuerySortDirection.Ascending));
+			case COMPLETION:
+				return List.of(new QuerySort("Completed", null, QuerySortDirection.Ascending));
+			case NONE:
+			default:
+				return null;
+		}
+	}
+
+	// Vista de solo lectura de las tareas locales de la instantanea actual
 	@Override
 	public Set<Integer> getUsedIDs() throws RepositoryException {
-		if (usedIDs == null) {
-			return Collections.emptySet();
-		}
-		// Copia inmutable
-		return Collections.unmodifiableSet(new HashSet<>(usedIDs));
+		return tasks.snapshot().ids();
 	}
 
 	private PageProperty createTitleProperty(String identifier) {
@@ -349,25 +887,32 @@ public class NotionRepository implements IRepository {
 	 * Genera un identificador unico para una nueva tarea.
 	 * 
 	 * <p>
-	 * El metodo utiliza un generador de numeros aleatorios para crear un
-	 * identificador diferente a los ya existentes. El identificador
-	 * generado se añade al conjunto de identificadores utilizados
-	 * para garantizar posibles identificadores unicos futuros.
+	 * El identificador lo da el {@link IdAllocator} del repositorio; se descarta si ya
+	 * esta en el conjunto de identificadores utilizados, al que se añade para
+	 * garantizar posibles identificadores unicos futuros.
 	 * </p>
 	 * 
 	 * @return Un identificador unico para una tarea.
 	 */
-	private int generateUniqueID() {
-		Random random = new Random();
+	private int generateUniqueID() throws RepositoryException {
 		int newID;
 		do {
-			newID = random.nextInt(Integer.MAX_VALUE);
-		} while (usedIDs.contains(newID));
+			newID = idAllocator.next();
+		} while (!usedIDs.add(newID));
 
-		usedIDs.add(newID);
 		return newID;
 	}
 
+	@Override
+	public synchronized void setIdAllocator(IdAllocator allocator) {
+		int maxID = 0;
+		for (int identifier : usedIDs) {
+			maxID = Math.max(maxID, identifier);
+		}
+		allocator.observe(maxID);
+		idAllocator = allocator;
+	}
+
 	private PageProperty createNumberProperty(Integer number) {
 		PageProperty property = new PageProperty();
 		property.setNumber(number);
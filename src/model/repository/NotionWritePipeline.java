@@ -0,0 +1,184 @@
+package model.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import model.Task;
+import notion.api.v1.exception.NotionAPIError;
+
+/**
+ * Ejecuta en paralelo las escrituras de tareas en Notion respetando su limite de peticiones.
+ * <p>
+ * Cada escritura se lanza en un hilo virtual. Un semaforo limita cuantas peticiones
+ * hay en vuelo a la vez y un {@link RateLimiter} compartido reparte el ritmo permitido
+ * por la API (unas 3 peticiones por segundo). Las respuestas 429 y 5xx, y los errores
+ * de red, se reintentan con espera exponencial; si el servidor indica
+ * {@code Retry-After} se respeta para todas las escrituras.
+ * </p>
+ * <p>
+ * Tras un error de red o un 5xx no se sabe si el servidor llego a aplicar la
+ * escritura, asi que los reintentos se hacen avisando a la operacion para que las
+ * escrituras que no son idempotentes, como crear una pagina, lo comprueben antes.
+ * Un 429 no tiene ese problema: la peticion se rechaza antes de procesarla.
+ * </p>
+ * <p>
+ * El resultado de cada tarea se devuelve en un {@link WriteResult}, en el mismo orden
+ * que la lista de entrada, de modo que un fallo no impide guardar el resto.
+ * </p>
+ */
+final class NotionWritePipeline {
+	static final double DEFAULT_RATE = 3.0;
+	static final int DEFAULT_CONCURRENCY = 8;
+	static final int DEFAULT_ATTEMPTS = 5;
+
+	private static final long BASE_BACKOFF_MILLIS = 500;
+	private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+	/**
+	 * Escritura de una tarea. Puede lanzar cualquier excepcion del cliente de Notion.
+	 */
+	@FunctionalInterface
+	interface TaskWrite {
+		/**
+		 * @param t         la tarea a escribir.
+		 * @param uncertain {@code true} si un intento anterior fallo sin saber si el
+		 *                  servidor lo aplico.
+		 */
+		void write(Task t, boolean uncertain) throws Exception;
+	}
+
+	private final RateLimiter limiter;
+	private final int maxConcurrency;
+	private final int maxAttempts;
+
+	NotionWritePipeline() {
+		this(new RateLimiter(DEFAULT_RATE, (int) DEFAULT_RATE), DEFAULT_CONCURRENCY, DEFAULT_ATTEMPTS);
+	}
+
+	NotionWritePipeline(RateLimiter limiter, int maxConcurrency, int maxAttempts) {
+		this.limiter = limiter;
+		this.maxConcurrency = maxConcurrency;
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Escribe todas las tareas y espera a que terminen.
+	 *
+	 * @param tasks las tareas a escribir.
+	 * @param write la operacion a aplicar sobre cada tarea.
+	 * @return el resultado de cada tarea, en el orden de entrada.
+	 * @throws InterruptedException si el hilo se interrumpe mientras espera.
+	 */
+	List<WriteResult> execute(List<Task> tasks, TaskWrite write) throws InterruptedException {
+		Semaphore inFlight = new Semaphore(maxConcurrency);
+		List<Future<WriteResult>> futures = new ArrayList<>(tasks.size());
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (Task task : tasks) {
+				futures.add(executor.submit(() -> {
+					inFlight.acquire();
+					try {
+						return writeWithRetry(task, write);
+					} finally {
+						inFlight.release();
+					}
+				}));
+			}
+
+			List<WriteResult> results = new ArrayList<>(tasks.size());
+			try {
+				for (int i = 0; i < futures.size(); i++) {
+					try {
+						results.add(futures.get(i).get());
+					} catch (ExecutionException e) {
+						Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+						results.add(new WriteResult(tasks.get(i).getIdentifier(), 0, cause));
+					}
+				}
+			} catch (InterruptedException e) {
+				// Cancelar antes de salir del try: close() espera a que terminen todas las escrituras
+				executor.shutdownNow();
+				futures.forEach(f -> f.cancel(true));
+				throw e;
+			}
+			return results;
+		}
+	}
+
+	private WriteResult writeWithRetry(Task task, TaskWrite write) throws InterruptedException {
+		Exception lastError = null;
+		boolean uncertain = false;
+		for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+			limiter.acquire();
+			try {
+				write.write(task, uncertain);
+				return new WriteResult(task.getIdentifier(), attempt, null);
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				lastError = e;
+				if (!isRetryable(e) || attempt == maxAttempts) {
+					return new WriteResult(task.getIdentifier(), attempt, e);
+				}
+				uncertain |= !isThrottled(e);
+				backoff(e, attempt);
+			}
+		}
+		return new WriteResult(task.getIdentifier(), maxAttempts, lastError);
+	}
+
+	private void backoff(Exception e, int attempt) throws InterruptedException {
+		long retryAfter = retryAfterMillis(e);
+		if (retryAfter > 0) {
+			// El servidor pide esperar: frenar tambien al resto de escrituras
+			limiter.pause(TimeUnit.MILLISECONDS.toNanos(retryAfter));
+			Thread.sleep(retryAfter);
+			return;
+		}
+		long delay = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+		// Espera aleatoria para que los reintentos no coincidan
+		Thread.sleep(ThreadLocalRandom.current().nextLong(delay / 2, delay + 1));
+	}
+
+	private static boolean isRetryable(Exception e) {
+		if (e instanceof NotionAPIError) {
+			int status = ((NotionAPIError) e).getHttpResponse().getStatus();
+			return status == 429 || status >= 500;
+		}
+		// El cliente HTTP lanza IOException aunque no la declare (timeouts, conexion cerrada...)
+		return e instanceof IOException || e instanceof UncheckedIOException;
+	}
+
+	// Un 429 se rechaza sin aplicar la escritura; el resto de errores reintentables pudo aplicarse
+	private static boolean isThrottled(Exception e) {
+		return e instanceof NotionAPIError && ((NotionAPIError) e).getHttpResponse().getStatus() == 429;
+	}
+
+	private static long retryAfterMillis(Exception e) {
+		if (!(e instanceof NotionAPIError)) {
+			return 0;
+		}
+		List<String> values = ((NotionAPIError) e).getHttpResponse().getHeaders().entrySet().stream()
+				.filter(header -> "retry-after".equalsIgnoreCase(header.getKey()))
+				.map(header -> header.getValue())
+				.findFirst()
+				.orElse(List.of());
+		if (values.isEmpty()) {
+			return 0;
+		}
+		try {
+			return Math.min(MAX_BACKOFF_MILLIS, (long) (Double.parseDouble(values.get(0).trim()) * 1000));
+		} catch (NumberFormatException ex) {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package model.repository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limitador de peticiones por cubo de fichas (token bucket).
+ * <p>
+ * El cubo se rellena a un ritmo constante de {@code permitsPerSecond} fichas por segundo
+ * hasta un maximo de {@code burst}. Cada peticion consume una ficha; si no hay ninguna,
+ * el hilo espera hasta que se genere la que le corresponde. Las esperas se reservan en
+ * orden de llegada, asi varios hilos no se despiertan a la vez para la misma ficha.
+ * </p>
+ */
+final class RateLimiter {
+	private final long intervalNanos;
+	private final long maxStoredNanos;
+
+	// Instante a partir del cual se puede conceder la siguiente ficha
+	private long nextFreeNanos;
+
+	/**
+	 * @param permitsPerSecond el ritmo sostenido de peticiones.
+	 * @param burst            el numero de peticiones que se pueden hacer seguidas tras un periodo de inactividad.
+	 */
+	RateLimiter(double permitsPerSecond, int burst) {
+		if (permitsPerSecond <= 0 || burst < 1) {
+			throw new IllegalArgumentException("El ritmo y la rafaga deben ser positivos");
+		}
+		this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+		this.maxStoredNanos = intervalNanos * (burst - 1);
+		this.nextFreeNanos = System.nanoTime() - maxStoredNanos;
+	}
+
+	/**
+	 * Espera hasta obtener una ficha.
+	 *
+	 * @throws InterruptedException si el hilo se interrumpe mientras espera.
+	 */
+	void acquire() throws InterruptedException {
+		long waitNanos = reserve();
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+
+	/**
+	 * Retrasa las siguientes fichas, por ejemplo cuando el servidor pide esperar.
+	 */
+	synchronized void pause(long delayNanos) {
+		nextFreeNanos = Math.max(nextFreeNanos, System.nanoTime() + delayNanos);
+	}
+
+	// Reserva la siguiente ficha y devuelve cuanto hay que esperar para usarla
+	private synchronized long reserve() {
+		long now = System.nanoTime();
+		// Las fichas acumuladas durante la inactividad no superan la rafaga
+		long slot = Math.max(nextFreeNanos, now - maxStoredNanos);
+		nextFreeNanos = slot + intervalNanos;
+		return slot - now;
+	}
+}
@@ -0,0 +1,105 @@
+package model.repository;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Generador de identificadores crecientes a partir de una marca de agua guardada en disco.
+ * <p>
+ * Cada hilo reserva un bloque de {@link #BLOCK_SIZE} identificadores consecutivos y los
+ * entrega sin sincronizacion; solo al agotarlo vuelve a bloquear para reservar el
+ * siguiente. La marca guardada es el final del ultimo bloque reservado, asi que tras
+ * reiniciar nunca se repite un identificador aunque se hayan eliminado las tareas mas
+ * recientes. Los identificadores de bloques sin agotar se pierden al cerrar.
+ * </p>
+ * <p>
+ * Las tareas creadas seguidas reciben identificadores cercanos, lo que mantiene juntos
+ * sus datos en los indices y ficheros ordenados por identificador.
+ * </p>
+ */
+public final class SequentialIdAllocator implements IdAllocator {
+	static final int BLOCK_SIZE = 64;
+
+	// Fichero con la marca de agua, o null si no se guarda
+	private final Path file;
+	// Bloque actual de cada hilo: siguiente identificador y final (excluido)
+	private final ThreadLocal<long[]> blocks = ThreadLocal.withInitial(() -> new long[2]);
+	// Primer identificador libre por encima de todos los observados
+	private long floor = 1;
+	// Final del ultimo bloque reservado
+	private long reserved = -1;
+
+	/**
+	 * Generador sin marca en disco, que solo evita los identificadores observados.
+	 */
+	public SequentialIdAllocator() {
+		this(null);
+	}
+
+	/**
+	 * @param file fichero donde se guarda la marca de agua; se crea con el primer bloque.
+	 */
+	public SequentialIdAllocator(Path file) {
+		this.file = file;
+	}
+
+	@Override
+	public int next() throws RepositoryException {
+		long[] block = blocks.get();
+		if (block[0] >= block[1]) {
+			reserve(block);
+		}
+		return (int) block[0]++;
+	}
+
+	@Override
+	public synchronized void observe(int identifier) {
+		floor = Math.max(floor, (long) identifier + 1);
+	}
+
+	private synchronized void reserve(long[] block) throws RepositoryException {
+		if (reserved < 0) {
+			reserved = readMark();
+		}
+		long start = Math.max(reserved, floor);
+		if (start > Integer.MAX_VALUE) {
+			// Rango agotado, por ejemplo por identificadores aleatorios de versiones
+			// anteriores: se vuelve a empezar desde 1 y el repositorio descarta los ocupados
+			start = 1;
+			floor = 1;
+		}
+		long end = Math.min(start + BLOCK_SIZE, (long) Integer.MAX_VALUE + 1);
+		writeMark(end);
+		reserved = end;
+		block[0] = start;
+		block[1] = end;
+	}
+
+	private long readMark() throws RepositoryException {
+		if (file == null || !Files.exists(file)) {
+			return 1;
+		}
+		try {
+			return Math.max(1, Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim()));
+		} catch (IOException | NumberFormatException e) {
+			throw new RepositoryException("Error: Lectura de la marca de identificadores " + file, e);
+		}
+	}
+
+	// Se escribe en un temporal y se mueve encima, para no dejar nunca una marca a medias
+	private void writeMark(long mark) throws RepositoryException {
+		if (file == null) {
+			return;
+		}
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			Files.writeString(temp, Long.toString(mark), StandardCharsets.UTF_8);
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new RepositoryException("Error: Escritura de la marca de identificadores " + file, e);
+		}
+	}
+}
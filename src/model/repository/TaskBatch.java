@@ -0,0 +1,73 @@
+package model.repository;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import model.Task;
+
+/**
+ * Comprobaciones comunes de las operaciones en bloque de los repositorios.
+ * <p>
+ * Cada comprobacion escribe en un array, por fila, el motivo por el que la tarea no se
+ * puede aplicar, o deja {@code null} si es valida. Las filas ya marcadas no se vuelven
+ * a comprobar.
+ * </p>
+ */
+final class TaskBatch {
+	// Por debajo de este tamaño validar en paralelo cuesta mas de lo que ahorra
+	static final int PARALLEL_THRESHOLD = 4096;
+
+	private TaskBatch() {
+	}
+
+	/**
+	 * Valida cada tarea por separado, en paralelo si el lote es grande.
+	 *
+	 * @param requireFields si se exigen titulo y contenido, ademas de que no sea nula.
+	 * @return el error de cada fila o {@code null}.
+	 */
+	static String[] validate(List<Task> tasks, boolean requireFields) {
+		String[] errors = new String[tasks.size()];
+		IntStream rows = IntStream.range(0, tasks.size());
+		if (tasks.size() >= PARALLEL_THRESHOLD) {
+			rows = rows.parallel();
+		}
+		rows.forEach(row -> errors[row] = validate(tasks.get(row), requireFields));
+		return errors;
+	}
+
+	private static String validate(Task t, boolean requireFields) {
+		if (t == null) {
+			return "Error: La tarea es nula";
+		}
+		if (!requireFields) {
+			return null;
+		}
+		if (t.getTitle() == null || t.getTitle().isEmpty()) {
+			return "Error: El titulo de la tarea es obligatorio";
+		}
+		if (t.getContent() == null || t.getContent().isEmpty()) {
+			return "Error: El contenido de la tarea es obligatorio";
+		}
+		return null;
+	}
+
+	/**
+	 * Marca las filas cuyo identificador ya aparecio antes en el lote, en una sola pasada.
+	 * La primera aparicion de cada identificador se conserva.
+	 */
+	static void rejectDuplicates(List<Task> tasks, String[] errors) {
+		IdIndex seen = new IdIndex(tasks.size());
+		for (int row = 0; row < tasks.size(); row++) {
+			if (errors[row] != null) {
+				continue;
+			}
+			int identifier = tasks.get(row).getIdentifier();
+			if (seen.containsKey(identifier)) {
+				errors[row] = "Error: Tarea con identificador: " + identifier + " repetida en el lote (fila " + seen.get(identifier) + ")";
+			} else {
+				seen.put(identifier, row);
+			}
+		}
+	}
+}
@@ -0,0 +1,880 @@
+package model.repository;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import model.Task;
+
+/**
+ * Almacen en memoria de tareas indexadas por su identificador.
+ * <p>
+ * Las tareas se guardan en un array en orden de insercion y un {@link IdIndex}
+ * asocia cada identificador con su posicion, por lo que buscar, añadir, reemplazar
+ * y eliminar son operaciones de tiempo constante. Al eliminar se deja un hueco
+ * que se recupera compactando el array cuando los huecos superan a las tareas vivas.
+ * </p>
+ * <p>
+ * El conjunto de identificadores se obtiene de la misma estructura con {@link #ids()},
+ * asi no puede desincronizarse de las tareas almacenadas.
+ * </p>
+ * <p>
+ * {@link #freeze()} devuelve una copia inmutable sin copiar los datos: las tareas se
+ * guardan en bloques de {@value #CHUNK_SIZE} posiciones, la tabla de identificadores
+ * en {@value #SEGMENTS} segmentos y cada grupo de los indices secundarios por separado,
+ * y la copia comparte todas esas piezas. Cada pieza recuerda que indice puede
+ * modificarla; tras congelarse, el indice original copia una pieza solo la primera vez
+ * que la modifica, de modo que una escritura despues de una lectura cuesta copiar un
+ * bloque, un segmento y los grupos afectados, no el indice entero.
+ * </p>
+ * <p>
+ * Ademas mantiene indices secundarios por prioridad, fecha y estado, actualizados en
+ * cada operacion. Cada grupo de un indice guarda las posiciones de sus tareas en un
+ * array ordenado, de modo que cada indice ocupa un entero por tarea sea cual sea el
+ * numero de grupos, y las listas ordenadas se recorren sin ordenar ni copiar: obtener
+ * los primeros k resultados cuesta O(k). Dentro de una misma prioridad, fecha o estado
+ * se conserva el orden de insercion, igual que con una ordenacion estable.
+ * </p>
+ * <p>
+ * Las tareas son mutables y el repositorio entrega las mismas instancias que guarda, asi
+ * que las claves con las que se indexo cada posicion (prioridad, dia y estado) se
+ * guardan aparte, en bloques paralelos a los de las tareas. Al reemplazar o eliminar
+ * una tarea se quita de los indices con esas claves, no con los campos actuales de la
+ * instancia, que alguien pudo cambiar sin pasar por el repositorio.
+ * </p>
+ */
+final class TaskIndex implements Iterable<Task> {
+	private static final int MIN_COMPACT_SIZE = 64;
+	private static final int CHUNK_SHIFT = 10;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int SEGMENT_BITS = 6;
+	private static final int SEGMENTS = 1 << SEGMENT_BITS;
+	// Bits del estado indexado de cada posicion; el dia de la fecha va a partir del bit 2
+	private static final long COMPLETED = 1;
+	private static final long HAS_DATE = 2;
+
+	// Marca de las piezas que este indice puede modificar sin copiarlas; cambia al congelarlo
+	private Object owner = new Object();
+	// Posicion de cada identificador, repartida en segmentos por su hash
+	private IdIndex[] segments;
+	private Object[] segmentOwners;
+	// Tareas en orden de insercion, en bloques que se reservan al llegar a ellos
+	private Task[][] chunks;
+	// Claves indexadas de cada posicion, en bloques que comparten propietario con los de las tareas
+	private int[][] priorityChunks;
+	private long[][] stateChunks;
+	private Object[] chunkOwners;
+	// Primera posicion libre al final del array
+	private int end;
+	// Numero de tareas almacenadas (sin contar huecos)
+	private int live;
+	private int modCount;
+
+	private final Set<Integer> idView = new IdSetView();
+
+	// Indices secundarios: posiciones ordenadas de las tareas agrupadas por cada criterio
+	private TreeMap<Integer, PositionList> byPriority;
+	private TreeMap<LocalDate, PositionList> byDate;
+	private PositionList undated;
+	private PositionList pending;
+	private PositionList completed;
+
+	private final List<Task> priorityView = new SortedView(() -> byPriority.descendingMap().values());
+	private final List<Task> dateView = new SortedView(() -> concat(byDate.values(), undated));
+	private final List<Task> completionView = new SortedView(() -> List.of(pending, completed));
+
+	TaskIndex() {
+		this(16);
+	}
+
+	/**
+	 * Crea un indice dimensionado para el numero de tareas esperado.
+	 */
+	TaskIndex(int expectedSize) {
+		allocate(expectedSize);
+	}
+
+	/**
+	 * Crea una copia de {@code source} que comparte todas sus piezas sin poder modificar
+	 * ninguna.
+	 */
+	private TaskIndex(TaskIndex source) {
+		segments = source.segments.clone();
+		segmentOwners = new Object[SEGMENTS];
+		chunks = source.chunks.clone();
+		priorityChunks = source.priorityChunks.clone();
+		stateChunks = source.stateChunks.clone();
+		chunkOwners = new Object[chunks.length];
+		end = source.end;
+		live = source.live;
+		byPriority = new TreeMap<>(source.byPriority);
+		byDate = new TreeMap<>(source.byDate);
+		undated = source.undated;
+		pending = source.pending;
+		completed = source.completed;
+	}
+
+	/**
+	 * Devuelve una copia que no se ve afectada por los cambios posteriores de este indice.
+	 * <p>
+	 * No copia las tareas ni los indices: la copia comparte sus piezas con este indice,
+	 * que a partir de ahora copia cada pieza antes de modificarla por primera vez. El
+	 * coste es proporcional al numero de bloques, segmentos y grupos, no al de tareas.
+	 * Varios hilos pueden leer la copia a la vez mientras nadie la modifique; modificar
+	 * este indice mientras tanto requiere el mismo cerrojo que {@code freeze()}.
+	 * </p>
+	 */
+	TaskIndex freeze() {
+		TaskIndex frozen = new TaskIndex(this);
+		owner = new Object();
+		return frozen;
+	}
+
+	int size() {
+		return live;
+	}
+
+	boolean isEmpty() {
+		return live == 0;
+	}
+
+	boolean contains(int identifier) {
+		return segments[segment(identifier)].containsKey(identifier);
+	}
+
+	Task get(int identifier) {
+		int position = segments[segment(identifier)].get(identifier);
+		return position == IdIndex.MISSING ? null : entry(position);
+	}
+
+	/**
+	 * Añade la tarea al final del orden de insercion.
+	 *
+	 * @return {@code false} si ya existe una tarea con el mismo identificador.
+	 */
+	boolean add(Task t) {
+		if (contains(t.getIdentifier())) {
+			return false;
+		}
+		append(t);
+		live++;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Añade varias tareas al final del orden de insercion; las de identificador repetido
+	 * se ignoran, como en {@link #add(Task)}.
+	 * <p>
+	 * Si el indice esta vacio, como al cargar un fichero, primero se guardan todas las
+	 * tareas y despues se construyen los indices secundarios en una sola pasada, sin
+	 * buscar en los arboles el grupo de cada tarea.
+	 * </p>
+	 *
+	 * @return el numero de tareas añadidas.
+	 */
+	int addAll(List<Task> tasks) {
+		if (end > 0) {
+			int added = 0;
+			for (Task t : tasks) {
+				if (add(t)) {
+					added++;
+				}
+			}
+			return added;
+		}
+
+		for (Task t : tasks) {
+			if (!contains(t.getIdentifier())) {
+				setEntry(end, t);
+				writableSegment(t.getIdentifier()).put(t.getIdentifier(), end);
+				end++;
+			}
+		}
+		live = end;
+		modCount++;
+		indexAll();
+		return live;
+	}
+
+	/**
+	 * Reemplaza, manteniendo su posicion, la tarea con el mismo identificador.
+	 *
+	 * @return la tarea reemplazada o {@code null} si no existia.
+	 */
+	Task replace(Task t) {
+		int position = segments[segment(t.getIdentifier())].get(t.getIdentifier());
+		if (position == IdIndex.MISSING) {
+			return null;
+		}
+		Task previous = entry(position);
+		unindex(position);
+		setEntry(position, t);
+		index(position, t);
+		modCount++;
+		return previous;
+	}
+
+	/**
+	 * Elimina la tarea con el identificador indicado.
+	 *
+	 * @return la tarea eliminada o {@code null} si no existia.
+	 */
+	Task remove(int identifier) {
+		if (!contains(identifier)) {
+			return null;
+		}
+		int position = writableSegment(identifier).remove(identifier);
+		Task previous = entry(position);
+		unindex(position);
+		setEntry(position, null);
+		live--;
+		modCount++;
+
+		if (end > MIN_COMPACT_SIZE && end - live > live) {
+			compact();
+		}
+		return previous;
+	}
+
+	void clear() {
+		allocate(16);
+		live = 0;
+		modCount++;
+	}
+
+	/**
+	 * Devuelve una copia de las tareas en orden de insercion.
+	 */
+	List<Task> toList() {
+		List<Task> copy = new ArrayList<>(live);
+		for (int i = 0; i < end; i++) {
+			Task task = entry(i);
+			if (task != null) {
+				copy.add(task);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Vista de solo lectura de las tareas ordenadas por prioridad, de mayor a menor.
+	 * Admite acceso por posicion en tiempo logaritmico en el numero de grupos.
+	 */
+	List<Task> byPriority() {
+		return priorityView;
+	}
+
+	/**
+	 * Vista de solo lectura de las tareas ordenadas por fecha, de la mas antigua a la
+	 * mas reciente. Las tareas sin fecha van al final.
+	 */
+	List<Task> byDate() {
+		return dateView;
+	}
+
+	/**
+	 * Vista de solo lectura de las tareas pendientes seguidas de las completadas.
+	 */
+	List<Task> byCompletion() {
+		return completionView;
+	}
+
+	/**
+	 * Ejecuta una consulta sobre los indices secundarios.
+	 * <p>
+	 * El orden se obtiene recorriendo el indice del criterio de ordenacion, limitado al
+	 * rango pedido si lo hay; el resto de filtros se comprueban sobre cada tarea
+	 * recorrida, y el recorrido se detiene al alcanzar el limite. Sin orden, se recorren
+	 * solo las posiciones del grupo o rango mas restrictivo que se pueda resolver con un
+	 * indice.
+	 * </p>
+	 *
+	 * @return una lista nueva con los resultados.
+	 */
+	List<Task> query(TaskQuery query) {
+		List<Task> result = new ArrayList<>();
+		if (query.getLimit() == 0) {
+			return result;
+		}
+
+		Iterable<PositionList> order;
+		switch (query.getSortKey()) {
+			case PRIORITY:
+				order = priorityRange(query).descendingMap().values();
+				break;
+			case DATE:
+				order = query.hasDateRange() ? dateRange(query).values() : concat(byDate.values(), undated);
+				break;
+			case COMPLETION:
+				order = query.getCompleted() == null ? List.of(pending, completed)
+						: List.of(query.getCompleted() ? completed : pending);
+				break;
+			case NONE:
+			default:
+				// Orden de insercion: posiciones crecientes de un unico grupo
+				if (query.hasDateRange()) {
+					order = List.of(PositionList.union(dateRange(query).values()));
+				} else if (query.hasPriorityRange()) {
+					order = List.of(PositionList.union(priorityRange(query).values()));
+				} else if (query.getCompleted() != null) {
+					order = List.of(query.getCompleted() ? completed : pending);
+				} else {
+					order = null;
+				}
+				break;
+		}
+
+		int[] skipped = { 0 };
+		if (order == null) {
+			for (int position = 0; position < end; position++) {
+				Task task = entry(position);
+				if (task != null && collect(query, task, result, skipped)) {
+					return result;
+				}
+			}
+			return result;
+		}
+		for (PositionList group : order) {
+			for (int i = 0; i < group.size(); i++) {
+				if (collect(query, entry(group.get(i)), result, skipped)) {
+					return result;
+				}
+			}
+		}
+		return result;
+	}
+
+	// Añade la tarea si cumple la consulta; devuelve true al llegar al limite
+	private static boolean collect(TaskQuery query, Task task, List<Task> result, int[] skipped) {
+		if (!query.matches(task)) {
+			return false;
+		}
+		if (skipped[0] < query.getOffset()) {
+			skipped[0]++;
+			return false;
+		}
+		result.add(task);
+		return result.size() == query.getLimit();
+	}
+
+	private NavigableMap<Integer, PositionList> priorityRange(TaskQuery query) {
+		if (!query.hasPriorityRange()) {
+			return byPriority;
+		}
+		return byPriority.subMap(query.getMinPriority(), true, query.getMaxPriority(), true);
+	}
+
+	private NavigableMap<LocalDate, PositionList> dateRange(TaskQuery query) {
+		LocalDate from = query.getDateFrom();
+		LocalDate to = query.getDateTo();
+		if (from != null && to != null) {
+			return byDate.subMap(from, true, to, true);
+		}
+		if (from != null) {
+			return byDate.tailMap(from, true);
+		}
+		return to != null ? byDate.headMap(to, true) : byDate;
+	}
+
+	/**
+	 * Vista de solo lectura de los identificadores almacenados.
+	 */
+	Set<Integer> ids() {
+		return idView;
+	}
+
+	@Override
+	public Iterator<Task> iterator() {
+		return new Iterator<>() {
+			private int cursor = advance(0);
+			private final int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return cursor < end;
+			}
+
+			@Override
+			public Task next() {
+				if (expectedModCount != modCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (cursor >= end) {
+					throw new NoSuchElementException();
+				}
+				Task task = entry(cursor);
+				cursor = advance(cursor + 1);
+				return task;
+			}
+		};
+	}
+
+	// Salta los huecos dejados por las tareas eliminadas
+	private int advance(int from) {
+		while (from < end && entry(from) == null) {
+			from++;
+		}
+		return from;
+	}
+
+	private Task entry(int position) {
+		return chunks[position >>> CHUNK_SHIFT][position & CHUNK_MASK];
+	}
+
+	private void setEntry(int position, Task t) {
+		int chunk = writableChunk(position);
+		chunks[chunk][position & CHUNK_MASK] = t;
+	}
+
+	// Prepara el bloque de la posicion para escribir, copiandolo antes si lo comparte una copia congelada
+	private int writableChunk(int position) {
+		int index = position >>> CHUNK_SHIFT;
+		if (index == chunks.length) {
+			int length = chunks.length << 1;
+			chunks = Arrays.copyOf(chunks, length);
+			priorityChunks = Arrays.copyOf(priorityChunks, length);
+			stateChunks = Arrays.copyOf(stateChunks, length);
+			chunkOwners = Arrays.copyOf(chunkOwners, length);
+		}
+		if (chunks[index] == null) {
+			chunks[index] = new Task[CHUNK_SIZE];
+			priorityChunks[index] = new int[CHUNK_SIZE];
+			stateChunks[index] = new long[CHUNK_SIZE];
+		} else if (chunkOwners[index] != owner) {
+			chunks[index] = chunks[index].clone();
+			priorityChunks[index] = priorityChunks[index].clone();
+			stateChunks[index] = stateChunks[index].clone();
+		}
+		chunkOwners[index] = owner;
+		return index;
+	}
+
+	private static int segment(int identifier) {
+		return (identifier * 0x9E3779B9) >>> (Integer.SIZE - SEGMENT_BITS);
+	}
+
+	private IdIndex writableSegment(int identifier) {
+		int index = segment(identifier);
+		if (segmentOwners[index] != owner) {
+			segments[index] = segments[index].copy();
+			segmentOwners[index] = owner;
+		}
+		return segments[index];
+	}
+
+	private void append(Task t) {
+		setEntry(end, t);
+		writableSegment(t.getIdentifier()).put(t.getIdentifier(), end);
+		index(end, t);
+		end++;
+	}
+
+	// Crea piezas nuevas y vacias, sin tocar las que pueda compartir una copia congelada
+	private void allocate(int expectedSize) {
+		int chunkCount = Math.max(1, (expectedSize + CHUNK_MASK) >>> CHUNK_SHIFT);
+		chunks = new Task[chunkCount][];
+		priorityChunks = new int[chunkCount][];
+		stateChunks = new long[chunkCount][];
+		chunkOwners = new Object[chunkCount];
+		segments = new IdIndex[SEGMENTS];
+		segmentOwners = new Object[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new IdIndex(expectedSize / SEGMENTS);
+			segmentOwners[i] = owner;
+		}
+		end = 0;
+		byPriority = new TreeMap<>();
+		byDate = new TreeMap<>();
+		undated = new PositionList(owner);
+		pending = new PositionList(owner);
+		completed = new PositionList(owner);
+	}
+
+	// Elimina los huecos manteniendo el orden y recalcula las posiciones y los indices
+	private void compact() {
+		Task[][] previous = chunks;
+		int previousEnd = end;
+		allocate(live);
+		for (int i = 0; i < previousEnd; i++) {
+			Task task = previous[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+			if (task != null) {
+				append(task);
+			}
+		}
+	}
+
+	// Guarda en la posicion las claves con las que se indexa y devuelve su estado
+	private long storeKeys(int position, int priority, LocalDate date, boolean isCompleted) {
+		long state = isCompleted ? COMPLETED : 0;
+		if (date != null) {
+			state |= date.toEpochDay() << 2 | HAS_DATE;
+		}
+		int chunk = writableChunk(position);
+		priorityChunks[chunk][position & CHUNK_MASK] = priority;
+		stateChunks[chunk][position & CHUNK_MASK] = state;
+		return state;
+	}
+
+	// Guarda las claves de la tarea en su posicion y la añade a los indices con ellas
+	private void index(int position, Task t) {
+		int priority = t.getPriority();
+		LocalDate date = t.getDate();
+		long state = storeKeys(position, priority, date, t.isCompleted());
+
+		writableBucket(byPriority, priority).insert(position);
+		if (date != null) {
+			writableBucket(byDate, date).insert(position);
+		} else {
+			undated = writable(undated);
+			undated.insert(position);
+		}
+		if ((state & COMPLETED) != 0) {
+			completed = writable(completed);
+			completed.insert(position);
+		} else {
+			pending = writable(pending);
+			pending.insert(position);
+		}
+	}
+
+	/**
+	 * Guarda las claves de todas las posiciones de un indice recien llenado y construye
+	 * con ellas los indices secundarios.
+	 * <p>
+	 * Las posiciones se recorren en orden, asi que cada grupo las recibe ya ordenadas y
+	 * solo hay que añadirlas al final. Los grupos se buscan en tablas hash y pasan a los
+	 * arboles al terminar, una vez por grupo en lugar de una por tarea.
+	 * </p>
+	 */
+	private void indexAll() {
+		Map<Integer, PositionList> priorities = new HashMap<>();
+		Map<LocalDate, PositionList> days = new HashMap<>();
+		undated = writable(undated);
+		pending = writable(pending);
+		completed = writable(completed);
+		for (int position = 0; position < end; position++) {
+			Task t = entry(position);
+			int priority = t.getPriority();
+			LocalDate date = t.getDate();
+			long state = storeKeys(position, priority, date, t.isCompleted());
+
+			priorities.computeIfAbsent(priority, key -> new PositionList(owner)).insert(position);
+			if (date != null) {
+				days.computeIfAbsent(date, key -> new PositionList(owner)).insert(position);
+			} else {
+				undated.insert(position);
+			}
+			if ((state & COMPLETED) != 0) {
+				completed.insert(position);
+			} else {
+				pending.insert(position);
+			}
+		}
+		byPriority.putAll(priorities);
+		byDate.putAll(days);
+	}
+
+	// Quita la posicion de los indices con las claves guardadas al indexarla
+	private void unindex(int position) {
+		int priority = priorityChunks[position >>> CHUNK_SHIFT][position & CHUNK_MASK];
+		long state = stateChunks[position >>> CHUNK_SHIFT][position & CHUNK_MASK];
+		removeFromBucket(byPriority, priority, position);
+		if ((state & HAS_DATE) != 0) {
+			removeFromBucket(byDate, LocalDate.ofEpochDay(state >> 2), position);
+		} else {
+			undated = writable(undated);
+			undated.remove(position);
+		}
+		if ((state & COMPLETED) != 0) {
+			completed = writable(completed);
+			completed.remove(position);
+		} else {
+			pending = writable(pending);
+			pending.remove(position);
+		}
+	}
+
+	private PositionList writable(PositionList list) {
+		return list.owner == owner ? list : list.copy(owner);
+	}
+
+	private <K> PositionList writableBucket(TreeMap<K, PositionList> buckets, K key) {
+		PositionList bucket = buckets.get(key);
+		PositionList result = bucket == null ? new PositionList(owner) : writable(bucket);
+		if (result != bucket) {
+			buckets.put(key, result);
+		}
+		return result;
+	}
+
+	// Los grupos vacios se eliminan para no recorrerlos en las vistas
+	private <K> void removeFromBucket(TreeMap<K, PositionList> buckets, K key, int position) {
+		if (buckets.containsKey(key)) {
+			PositionList bucket = writableBucket(buckets, key);
+			bucket.remove(position);
+			if (bucket.size() == 0) {
+				buckets.remove(key);
+			}
+		}
+	}
+
+	private static Iterable<PositionList> concat(Iterable<PositionList> first, PositionList last) {
+		return () -> new Iterator<>() {
+			private final Iterator<PositionList> head = first.iterator();
+			private boolean lastReturned;
+
+			@Override
+			public boolean hasNext() {
+				return head.hasNext() || !lastReturned;
+			}
+
+			@Override
+			public PositionList next() {
+				if (head.hasNext()) {
+					return head.next();
+				}
+				if (lastReturned) {
+					throw new NoSuchElementException();
+				}
+				lastReturned = true;
+				return last;
+			}
+		};
+	}
+
+	/**
+	 * Posiciones de un grupo de un indice secundario, en un array ordenado.
+	 * <p>
+	 * Las tareas nuevas ocupan la ultima posicion, asi que añadirlas cuesta O(1); solo
+	 * al reemplazar o eliminar se busca la posicion y se desplaza el resto del grupo.
+	 * </p>
+	 */
+	private static final class PositionList {
+		// Indice que puede modificar el grupo; los demas deben copiarlo antes
+		final Object owner;
+		private int[] items;
+		private int size;
+
+		PositionList(Object owner) {
+			this(owner, new int[4], 0);
+		}
+
+		private PositionList(Object owner, int[] items, int size) {
+			this.owner = owner;
+			this.items = items;
+			this.size = size;
+		}
+
+		/**
+		 * Une varios grupos en uno nuevo con sus posiciones ordenadas.
+		 */
+		static PositionList union(Iterable<PositionList> groups) {
+			int total = 0;
+			for (PositionList group : groups) {
+				total += group.size;
+			}
+			int[] merged = new int[total];
+			int count = 0;
+			for (PositionList group : groups) {
+				System.arraycopy(group.items, 0, merged, count, group.size);
+				count += group.size;
+			}
+			Arrays.sort(merged);
+			return new PositionList(null, merged, total);
+		}
+
+		PositionList copy(Object newOwner) {
+			return new PositionList(newOwner, Arrays.copyOf(items, Math.max(size, 4)), size);
+		}
+
+		int size() {
+			return size;
+		}
+
+		int get(int i) {
+			return items[i];
+		}
+
+		void insert(int position) {
+			if (size == items.length) {
+				items = Arrays.copyOf(items, size + (size >> 1) + 1);
+			}
+			if (size == 0 || items[size - 1] < position) {
+				items[size++] = position;
+				return;
+			}
+			int at = Arrays.binarySearch(items, 0, size, position);
+			if (at >= 0) {
+				return;
+			}
+			at = -at - 1;
+			System.arraycopy(items, at, items, at + 1, size - at);
+			items[at] = position;
+			size++;
+		}
+
+		void remove(int position) {
+			int at = Arrays.binarySearch(items, 0, size, position);
+			if (at >= 0) {
+				System.arraycopy(items, at + 1, items, at, size - at - 1);
+				size--;
+			}
+		}
+	}
+
+	/**
+	 * Lista de solo lectura que recorre en orden los grupos de un indice secundario.
+	 * <p>
+	 * No copia ni ordena las tareas. Para el acceso por posicion guarda, por cada cambio
+	 * del indice, la lista de grupos no vacios y donde empieza cada uno; {@code get(i)}
+	 * busca el grupo por biseccion y lee su posicion directamente.
+	 * </p>
+	 */
+	private final class SortedView extends AbstractList<Task> implements RandomAccess {
+		private final Supplier<Iterable<PositionList>> buckets;
+		// Grupos de la ultima modificacion vista; se sustituye entero para publicarlo
+		private volatile Layout layout;
+
+		SortedView(Supplier<Iterable<PositionList>> buckets) {
+			this.buckets = buckets;
+		}
+
+		@Override
+		public int size() {
+			return live;
+		}
+
+		@Override
+		public Task get(int index) {
+			if (index < 0 || index >= live) {
+				throw new IndexOutOfBoundsException("Indice: " + index + ", tamaño: " + live);
+			}
+			Layout current = layout();
+			int group = Arrays.binarySearch(current.starts, index);
+			if (group < 0) {
+				group = -group - 2;
+			}
+			return entry(current.groups[group].get(index - current.starts[group]));
+		}
+
+		@Override
+		public Iterator<Task> iterator() {
+			return new Iterator<>() {
+				private final Iterator<PositionList> groups = buckets.get().iterator();
+				private final int expectedModCount = TaskIndex.this.modCount;
+				private PositionList group;
+				private int next;
+
+				{
+					advance();
+				}
+
+				@Override
+				public boolean hasNext() {
+					return group != null;
+				}
+
+				@Override
+				public Task next() {
+					if (expectedModCount != TaskIndex.this.modCount) {
+						throw new ConcurrentModificationException();
+					}
+					if (group == null) {
+						throw new NoSuchElementException();
+					}
+					Task task = entry(group.get(next++));
+					advance();
+					return task;
+				}
+
+				// Pasa al siguiente grupo no vacio si se agota el actual
+				private void advance() {
+					while (group == null || next >= group.size()) {
+						if (!groups.hasNext()) {
+							group = null;
+							return;
+						}
+						group = groups.next();
+						next = 0;
+					}
+				}
+			};
+		}
+
+		private Layout layout() {
+			Layout current = layout;
+			if (current == null || current.modCount != TaskIndex.this.modCount) {
+				current = new Layout(buckets.get(), TaskIndex.this.modCount);
+				layout = current;
+			}
+			return current;
+		}
+	}
+
+	// Grupos no vacios de una vista y posicion en la lista de la primera tarea de cada uno
+	private static final class Layout {
+		final PositionList[] groups;
+		final int[] starts;
+		final int modCount;
+
+		Layout(Iterable<PositionList> buckets, int modCount) {
+			List<PositionList> nonEmpty = new ArrayList<>();
+			for (PositionList bucket : buckets) {
+				if (bucket.size() > 0) {
+					nonEmpty.add(bucket);
+				}
+			}
+			this.groups = nonEmpty.toArray(new PositionList[0]);
+			this.starts = new int[groups.length];
+			int start = 0;
+			for (int i = 0; i < groups.length; i++) {
+				starts[i] = start;
+				start += groups[i].size();
+			}
+			this.modCount = modCount;
+		}
+	}
+
+	private final class IdSetView extends AbstractSet<Integer> {
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof Integer && TaskIndex.this.contains((Integer) o);
+		}
+
+		@Override
+		public int size() {
+			return live;
+		}
+
+		@Override
+		public Iterator<Integer> iterator() {
+			Iterator<Task> tasks = TaskIndex.this.iterator();
+			return new Iterator<>() {
+				@Override
+				public boolean hasNext() {
+					return tasks.hasNext();
+				}
+
+				@Override
+				public Integer next() {
+					return tasks.next().getIdentifier();
+				}
+			};
+		}
+	}
+}
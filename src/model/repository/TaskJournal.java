@@ -0,0 +1,274 @@
+package model.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import model.Task;
+
+/**
+ * Diario de operaciones (write-ahead log) de solo escritura al final.
+ * <p>
+ * Cada operacion sobre el repositorio se guarda como un registro binario compacto:
+ * </p>
+ * <pre>
+ * [longitud int][operacion byte][tarea en formato {@link TaskCodec}][crc32 int]
+ * </pre>
+ * <p>
+ * Las eliminaciones solo guardan el identificador: el resto de campos van vacios.
+ * </p>
+ * <p>
+ * Al reproducir el diario se aplican los registros en orden y se descarta la cola a
+ * partir del primer registro incompleto o corrupto (por ejemplo, tras un cierre abrupto).
+ * La reproduccion es idempotente: aplicar de nuevo registros ya incluidos en una
+ * instantanea deja el mismo resultado, porque la ultima operacion de cada
+ * identificador es la que prevalece.
+ * </p>
+ * <p>
+ * Segun la {@link JournalSync} elegida, cada escritura se fuerza a disco con
+ * {@link FileChannel#force(boolean)} antes de volver, o se deja en la cache del sistema.
+ * </p>
+ * <p>
+ * Para compactar sin bloquear a los escritores el diario se rota: el fichero actual
+ * pasa a {@code .old}, se escribe la instantanea y despues se descarta el rotado.
+ * </p>
+ */
+final class TaskJournal implements Closeable {
+	static final byte ADD = 1;
+	static final byte MODIFY = 2;
+	static final byte REMOVE = 3;
+
+	private final Path path;
+	private final Path rotatedPath;
+	private final JournalSync sync;
+	private FileChannel channel;
+
+	// Buffer reutilizado para componer cada registro
+	private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(256);
+	private final TaskCodec.Writer recordOut = new TaskCodec.Writer(recordBuffer);
+	private final CRC32 crc = new CRC32();
+
+	TaskJournal(String filePath, JournalSync sync) {
+		this.path = Paths.get(filePath);
+		this.rotatedPath = Paths.get(filePath + ".old");
+		this.sync = sync;
+	}
+
+	/**
+	 * Añade un registro al final del diario.
+	 *
+	 * @param operation la operacion ({@link #ADD}, {@link #MODIFY} o {@link #REMOVE}).
+	 * @param t         la tarea afectada.
+	 * @throws IOException si no se puede escribir el registro.
+	 */
+	void append(byte operation, Task t) throws IOException {
+		write(ByteBuffer.wrap(encode(operation, t)));
+	}
+
+	/**
+	 * Añade un registro por tarea con una sola escritura en el fichero.
+	 *
+	 * @param operations la operacion de cada tarea.
+	 * @param tasks      las tareas afectadas, en orden.
+	 * @throws IOException si no se pueden escribir los registros.
+	 */
+	void appendAll(byte[] operations, List<Task> tasks) throws IOException {
+		if (tasks.isEmpty()) {
+			return;
+		}
+		ByteArrayOutputStream batch = new ByteArrayOutputStream(tasks.size() * 64);
+		for (int i = 0; i < tasks.size(); i++) {
+			batch.write(encode(operations[i], tasks.get(i)));
+		}
+		write(ByteBuffer.wrap(batch.toByteArray()));
+	}
+
+	// Compone un registro completo: longitud, operacion, tarea y crc
+	private byte[] encode(byte operation, Task t) throws IOException {
+		recordBuffer.reset();
+		recordBuffer.write(operation);
+		recordOut.writeTask(operation == REMOVE ? new Task(t.getIdentifier()) : t);
+		recordOut.flush();
+
+		byte[] payload = recordBuffer.toByteArray();
+		crc.reset();
+		crc.update(payload);
+
+		ByteBuffer buffer = ByteBuffer.allocate(payload.length + 2 * Integer.BYTES);
+		buffer.putInt(payload.length);
+		buffer.put(payload);
+		buffer.putInt((int) crc.getValue());
+		return buffer.array();
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		FileChannel out = channel();
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		if (sync == JournalSync.ALWAYS) {
+			// Solo los datos: el tamaño del fichero se incluye, el resto de metadatos no hace falta
+			out.force(false);
+		}
+	}
+
+	/**
+	 * Aplica sobre el indice los registros del diario rotado (si existe) y del actual.
+	 *
+	 * @param tasks el indice cargado desde la instantanea.
+	 * @return el numero de registros aplicados.
+	 * @throws IOException si no se pueden leer los ficheros del diario.
+	 */
+	int replay(TaskIndex tasks) throws IOException {
+		close();
+		return replayFile(rotatedPath, tasks) + replayFile(path, tasks);
+	}
+
+	/**
+	 * Tamaño en bytes pendiente de compactar.
+	 */
+	long size() throws IOException {
+		long size = Files.exists(path) ? Files.size(path) : 0;
+		return Files.exists(rotatedPath) ? size + Files.size(rotatedPath) : size;
+	}
+
+	/**
+	 * Aparta el diario actual para compactarlo y empieza uno vacio.
+	 * <p>
+	 * Si quedaba un diario rotado de una compactacion fallida, el actual se añade a el,
+	 * y el rotado se fuerza a disco antes de borrar el actual para no perder registros
+	 * que ya se habian confirmado.
+	 * </p>
+	 */
+	void rotate() throws IOException {
+		close();
+		if (!Files.exists(path)) {
+			return;
+		}
+		if (Files.exists(rotatedPath)) {
+			try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+					FileChannel target = FileChannel.open(rotatedPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+				long position = 0;
+				long total = source.size();
+				while (position < total) {
+					position += source.transferTo(position, total - position, target);
+				}
+				target.force(true);
+			}
+			Files.delete(path);
+		} else {
+			Files.move(path, rotatedPath, StandardCopyOption.ATOMIC_MOVE);
+		}
+		forceDirectory(path);
+	}
+
+	/**
+	 * Fuerza a disco el directorio que contiene {@code file}, para que sobrevivan a un
+	 * corte de luz las altas, renombrados y borrados hechos en el. En sistemas que no
+	 * permiten abrir un directorio (Windows) no hace nada.
+	 */
+	static void forceDirectory(Path file) throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		if (directory == null) {
+			return;
+		}
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(directory, StandardOpenOption.READ);
+		} catch (IOException | UnsupportedOperationException e) {
+			return;
+		}
+		try (channel) {
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Elimina el diario rotado una vez que sus registros estan en la instantanea.
+	 */
+	void discardRotated() throws IOException {
+		Files.deleteIfExists(rotatedPath);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	private FileChannel channel() throws IOException {
+		if (channel == null) {
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		}
+		return channel;
+	}
+
+	private int replayFile(Path file, TaskIndex tasks) throws IOException {
+		if (!Files.exists(file)) {
+			return 0;
+		}
+
+		byte[] data = Files.readAllBytes(file);
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		int applied = 0;
+		int validEnd = 0;
+
+		while (buffer.remaining() >= Integer.BYTES) {
+			int payloadLength = buffer.getInt();
+			if (payloadLength <= 0 || buffer.remaining() < payloadLength + Integer.BYTES) {
+				break;
+			}
+			int payloadStart = buffer.position();
+			crc.reset();
+			crc.update(data, payloadStart, payloadLength);
+			buffer.position(payloadStart + payloadLength);
+			if (buffer.getInt() != (int) crc.getValue()) {
+				break;
+			}
+
+			apply(data[payloadStart], new TaskCodec.Reader(data, payloadStart + 1, payloadLength - 1), tasks);
+			applied++;
+			validEnd = buffer.position();
+		}
+
+		// Descartar la cola incompleta para que los nuevos registros queden legibles
+		if (validEnd < data.length) {
+			try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				truncate.truncate(validEnd);
+			}
+		}
+		return applied;
+	}
+
+	private void apply(byte operation, TaskCodec.Reader payload, TaskIndex tasks) throws IOException {
+		Task t = payload.readTask();
+		if (t == null) {
+			throw new EOFException("Registro del diario sin tarea");
+		}
+		switch (operation) {
+			case ADD:
+			case MODIFY:
+				if (tasks.replace(t) == null) {
+					tasks.add(t);
+				}
+				break;
+			case REMOVE:
+				tasks.remove(t.getIdentifier());
+				break;
+			default:
+				throw new EOFException("Operacion desconocida en el diario: " + operation);
+		}
+	}
+}
@@ -0,0 +1,260 @@
+package model.repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import model.Task;
+
+/**
+ * Consulta de tareas con filtros, ordenacion y paginacion.
+ * <p>
+ * Todos los filtros son opcionales y se combinan entre si (todos deben cumplirse):
+ * rango de fechas, rango de prioridades, estado de completado y texto contenido en el
+ * titulo o el contenido (sin distinguir mayusculas). Los rangos son inclusivos.
+ * </p>
+ * <pre>
+ * TaskQuery query = new TaskQuery()
+ *     .dateBetween(LocalDate.now(), LocalDate.now().plusDays(7))
+ *     .completed(false)
+ *     .sortBy(TaskQuery.SortKey.PRIORITY)
+ *     .limit(10);
+ * </pre>
+ * <p>
+ * Cada repositorio la ejecuta de la forma mas directa que permita su almacenamiento:
+ * sobre los indices en memoria o traducida a filtros del servidor.
+ * </p>
+ */
+public final class TaskQuery {
+
+	/**
+	 * Criterio de ordenacion, el mismo que el de los metodos {@code getTasksSortedBy...}.
+	 */
+	public enum SortKey {
+		/** Orden de insercion del repositorio. */
+		NONE,
+		/** Prioridad de mayor a menor. */
+		PRIORITY,
+		/** Fecha de la mas antigua a la mas reciente. */
+		DATE,
+		/** Pendientes primero y despues completadas. */
+		COMPLETION
+	}
+
+	private LocalDate dateFrom;
+	private LocalDate dateTo;
+	private Integer minPriority;
+	private Integer maxPriority;
+	private Boolean completed;
+	private String text;
+	private int offset = 0;
+	private int limit = Integer.MAX_VALUE;
+	private SortKey sortKey = SortKey.NONE;
+
+	/**
+	 * Crea una consulta sin filtros que devuelve todas las tareas.
+	 */
+	public TaskQuery() {
+	}
+
+	/**
+	 * Tareas con fecha entre {@code from} y {@code to}, ambas incluidas.
+	 * Cualquiera de los extremos puede ser {@code null} para dejarlo abierto.
+	 */
+	public TaskQuery dateBetween(LocalDate from, LocalDate to) {
+		if (from != null && to != null && from.isAfter(to)) {
+			throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la final");
+		}
+		this.dateFrom = from;
+		this.dateTo = to;
+		return this;
+	}
+
+	/**
+	 * Tareas con prioridad entre {@code min} y {@code max}, ambas incluidas.
+	 */
+	public TaskQuery priorityBetween(int min, int max) {
+		if (min > max) {
+			throw new IllegalArgumentException("La prioridad minima no puede ser mayor que la maxima");
+		}
+		this.minPriority = min;
+		this.maxPriority = max;
+		return this;
+	}
+
+	/**
+	 * Tareas completadas ({@code true}) o pendientes ({@code false}).
+	 */
+	public TaskQuery completed(boolean completed) {
+		this.completed = completed;
+		return this;
+	}
+
+	/**
+	 * Tareas cuyo titulo o contenido contiene el texto, sin distinguir mayusculas.
+	 */
+	public TaskQuery containing(String text) {
+		this.text = text == null || text.isEmpty() ? null : text;
+		return this;
+	}
+
+	/**
+	 * Numero de resultados que se saltan antes de empezar a devolver tareas.
+	 */
+	public TaskQuery offset(int offset) {
+		if (offset < 0) {
+			throw new IllegalArgumentException("El desplazamiento no puede ser negativo");
+		}
+		this.offset = offset;
+		return this;
+	}
+
+	/**
+	 * Numero maximo de tareas a devolver.
+	 */
+	public TaskQuery limit(int limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("El limite no puede ser negativo");
+		}
+		this.limit = limit;
+		return this;
+	}
+
+	public TaskQuery sortBy(SortKey sortKey) {
+		this.sortKey = sortKey == null ? SortKey.NONE : sortKey;
+		return this;
+	}
+
+	public LocalDate getDateFrom() {
+		return dateFrom;
+	}
+
+	public LocalDate getDateTo() {
+		return dateTo;
+	}
+
+	public Integer getMinPriority() {
+		return minPriority;
+	}
+
+	public Integer getMaxPriority() {
+		return maxPriority;
+	}
+
+	public Boolean getCompleted() {
+		return completed;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public SortKey getSortKey() {
+		return sortKey;
+	}
+
+	public boolean hasDateRange() {
+		return dateFrom != null || dateTo != null;
+	}
+
+	public boolean hasPriorityRange() {
+		return minPriority != null;
+	}
+
+	/**
+	 * Comprueba si una tarea cumple todos los filtros de la consulta.
+	 */
+	public boolean matches(Task t) {
+		if (hasDateRange()) {
+			LocalDate date = t.getDate();
+			if (date == null || (dateFrom != null && date.isBefore(dateFrom)) || (dateTo != null && date.isAfter(dateTo))) {
+				return false;
+			}
+		}
+		if (hasPriorityRange() && (t.getPriority() < minPriority || t.getPriority() > maxPriority)) {
+			return false;
+		}
+		if (completed != null && t.isCompleted() != completed) {
+			return false;
+		}
+		return matchesText(t);
+	}
+
+	/**
+	 * Comprueba solo el filtro de texto, para cuando el resto ya se ha aplicado con indices.
+	 */
+	public boolean matchesText(Task t) {
+		return text == null || containsIgnoreCase(t.getTitle(), text) || containsIgnoreCase(t.getContent(), text);
+	}
+
+	/**
+	 * Ejecuta la consulta recorriendo las tareas en memoria.
+	 *
+	 * @param tasks las tareas en orden de insercion.
+	 * @return una lista nueva con los resultados.
+	 */
+	public List<Task> apply(Iterable<Task> tasks) {
+		List<Task> matching = new ArrayList<>();
+		for (Task task : tasks) {
+			if (matches(task)) {
+				matching.add(task);
+			}
+		}
+
+		Comparator<Task> comparator = comparator(sortKey);
+		if (comparator != null) {
+			// Ordenacion estable: los empates conservan el orden de insercion
+			matching.sort(comparator);
+		}
+
+		int from = Math.min(offset, matching.size());
+		int to = (int) Math.min((long) from + limit, matching.size());
+		return new ArrayList<>(matching.subList(from, to));
+	}
+
+	/**
+	 * Comparador equivalente a cada criterio de ordenacion, o {@code null} para {@link SortKey#NONE}.
+	 */
+	public static Comparator<Task> comparator(SortKey sortKey) {
+		switch (sortKey) {
+			case PRIORITY:
+				return (task1, task2) -> Integer.compare(task2.getPriority(), task1.getPriority());
+			case DATE:
+				return Comparator.comparing(Task::getDate, Comparator.nullsLast(Comparator.naturalOrder()));
+			case COMPLETION:
+				return (task1, task2) -> Boolean.compare(task1.isCompleted(), task2.isCompleted());
+			case NONE:
+			default:
+				return null;
+		}
+	}
+
+	private static boolean containsIgnoreCase(String value, String search) {
+		if (value == null) {
+			return false;
+		}
+		int last = value.length() - search.length();
+		for (int i = 0; i <= last; i++) {
+			if (value.regionMatches(true, i, search, 0, search.length())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "TaskQuery[fecha=" + dateFrom + ".." + dateTo + ", prioridad=" + minPriority + ".." + maxPriority
+				+ ", completada=" + completed + ", texto=" + text + ", orden=" + sortKey
+				+ ", desde=" + offset + ", limite=" + limit + "]";
+	}
+}
@@ -0,0 +1,203 @@
+package model.repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import model.Task;
+
+/**
+ * Tareas en memoria de un repositorio, compartibles entre varios hilos.
+ * <p>
+ * Las escrituras se serializan y modifican un {@link TaskIndex} privado, incrementando
+ * la version del almacen. Las lecturas no bloquean: trabajan sobre una
+ * {@link Snapshot} inmutable publicada en una unica referencia {@code volatile}. La
+ * instantanea se construye de forma perezosa, congelando el indice con
+ * {@link TaskIndex#freeze()} la primera vez que se lee despues de una escritura: la
+ * instantanea comparte las tareas y los indices con el escritor, que solo copia las
+ * piezas que modifica despues. Asi ni la lectura ni la escritura siguiente copian o
+ * reindexan el almacen entero.
+ * </p>
+ * <p>
+ * Cada escritura tiene efecto al incrementar la version, y cada lectura devuelve la
+ * instantanea de la version que observa. Asi, una lectura que empieza despues de que
+ * termine una escritura siempre la ve, y una instantanea nunca mezcla dos versiones.
+ * </p>
+ * <p>
+ * Los repositorios que comprueban y modifican en dos pasos (por ejemplo, ver si existe
+ * el identificador y despues añadir) deben hacerlo bajo su propio cerrojo de escritura;
+ * el almacen solo garantiza que cada operacion individual es atomica.
+ * </p>
+ */
+final class TaskStore {
+	// Solo lo usan los escritores, siempre con el monitor del almacen
+	private TaskIndex tasks = new TaskIndex();
+	private volatile long version;
+	private volatile Snapshot snapshot = new Snapshot(0, new TaskIndex());
+
+	/**
+	 * Sustituye todas las tareas por las del indice, que pasa a ser propiedad del almacen.
+	 */
+	synchronized void reset(TaskIndex loaded) {
+		tasks = loaded;
+		version++;
+	}
+
+	/**
+	 * @return {@code false} si ya existe una tarea con el mismo identificador.
+	 */
+	synchronized boolean add(Task t) {
+		if (!tasks.add(t)) {
+			return false;
+		}
+		version++;
+		return true;
+	}
+
+	/**
+	 * @return la tarea reemplazada o {@code null} si no existia.
+	 */
+	synchronized Task replace(Task t) {
+		Task previous = tasks.replace(t);
+		if (previous != null) {
+			version++;
+		}
+		return previous;
+	}
+
+	/**
+	 * @return la tarea eliminada o {@code null} si no existia.
+	 */
+	synchronized Task remove(int identifier) {
+		Task previous = tasks.remove(identifier);
+		if (previous != null) {
+			version++;
+		}
+		return previous;
+	}
+
+	/**
+	 * Aplica un lote de escrituras como una sola version: las lecturas ven el lote entero
+	 * o nada de el. Las tareas deben estar ya comprobadas: las añadidas no pueden existir
+	 * y las reemplazadas y eliminadas si.
+	 */
+	synchronized void apply(List<Task> additions, List<Task> replacements, List<Integer> removals) {
+		for (Task t : additions) {
+			tasks.add(t);
+		}
+		for (Task t : replacements) {
+			tasks.replace(t);
+		}
+		for (int identifier : removals) {
+			tasks.remove(identifier);
+		}
+		if (!additions.isEmpty() || !replacements.isEmpty() || !removals.isEmpty()) {
+			version++;
+		}
+	}
+
+	/**
+	 * Comprueba el identificador en el estado mas reciente, para las validaciones de los
+	 * escritores. Las lecturas deben usar {@link #snapshot()}.
+	 */
+	synchronized boolean contains(int identifier) {
+		return tasks.contains(identifier);
+	}
+
+	synchronized boolean isEmpty() {
+		return tasks.isEmpty();
+	}
+
+	/**
+	 * @return el numero de escrituras aplicadas desde que se creo el almacen.
+	 */
+	long version() {
+		return version;
+	}
+
+	/**
+	 * Devuelve la instantanea de la version actual, construyendola si alguna escritura
+	 * la ha dejado obsoleta.
+	 */
+	Snapshot snapshot() {
+		Snapshot current = snapshot;
+		if (current.version == version) {
+			return current;
+		}
+		synchronized (this) {
+			current = snapshot;
+			if (current.version != version) {
+				current = new Snapshot(version, tasks.freeze());
+				snapshot = current;
+			}
+			return current;
+		}
+	}
+
+	/**
+	 * Estado inmutable de las tareas en una version del almacen.
+	 * <p>
+	 * Puede leerse desde cualquier hilo sin sincronizacion. Las listas y conjuntos que
+	 * devuelve son de solo lectura y no cambian aunque el almacen se modifique despues.
+	 * </p>
+	 */
+	static final class Snapshot {
+		private final long version;
+		// Nunca se modifica despues de publicarse
+		private final TaskIndex index;
+		private volatile List<Task> list;
+
+		private Snapshot(long version, TaskIndex index) {
+			this.version = version;
+			this.index = index;
+		}
+
+		long version() {
+			return version;
+		}
+
+		int size() {
+			return index.size();
+		}
+
+		boolean contains(int identifier) {
+			return index.contains(identifier);
+		}
+
+		Task get(int identifier) {
+			return index.get(identifier);
+		}
+
+		/**
+		 * @return las tareas en orden de insercion; la lista se crea una vez por instantanea.
+		 */
+		List<Task> tasks() {
+			List<Task> current = list;
+			if (current == null) {
+				current = Collections.unmodifiableList(index.toList());
+				list = current;
+			}
+			return current;
+		}
+
+		List<Task> byPriority() {
+			return index.byPriority();
+		}
+
+		List<Task> byDate() {
+			return index.byDate();
+		}
+
+		List<Task> byCompletion() {
+			return index.byCompletion();
+		}
+
+		List<Task> query(TaskQuery query) {
+			return index.query(query);
+		}
+
+		Set<Integer> ids() {
+			return index.ids();
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package model.repository;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generador de identificadores ordenados por fecha de creacion.
+ * <p>
+ * Los identificadores de tarea son enteros positivos de 31 bits: los 14 bits altos son
+ * los dias desde el 1 de enero de 2024 (hasta 2068) y los 17 bajos un contador dentro
+ * del dia (131072 tareas). Si un dia se agota el contador, se continua con los del dia
+ * siguiente, de modo que los identificadores nunca dejan de crecer. No necesita fichero:
+ * tras reiniciar basta con observar los identificadores existentes.
+ * </p>
+ * <p>
+ * El ultimo identificador entregado se guarda en un unico entero atomico, asi que los
+ * hilos no se bloquean entre si.
+ * </p>
+ */
+public final class TimeOrderedIdAllocator implements IdAllocator {
+	static final int SEQUENCE_BITS = 17;
+	private static final long EPOCH_DAY = LocalDate.of(2024, 1, 1).toEpochDay();
+	private static final long MILLIS_PER_DAY = 86_400_000L;
+
+	private final Clock clock;
+	private final AtomicInteger last = new AtomicInteger();
+
+	public TimeOrderedIdAllocator() {
+		this(Clock.systemUTC());
+	}
+
+	TimeOrderedIdAllocator(Clock clock) {
+		this.clock = clock;
+	}
+
+	@Override
+	public int next() throws RepositoryException {
+		long day = Math.max(0, Math.floorDiv(clock.millis(), MILLIS_PER_DAY) - EPOCH_DAY);
+		long first = Math.min(day << SEQUENCE_BITS, Integer.MAX_VALUE);
+		while (true) {
+			int previous = last.get();
+			if (previous == Integer.MAX_VALUE) {
+				throw new RepositoryException("Error: No quedan identificadores de tarea disponibles");
+			}
+			int next = (int) Math.max(previous + 1L, first);
+			if (last.compareAndSet(previous, next)) {
+				return next;
+			}
+		}
+	}
+
+	@Override
+	public void observe(int identifier) {
+		last.accumulateAndGet(identifier, Math::max);
+	}
+}
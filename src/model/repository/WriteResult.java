@@ -0,0 +1,51 @@
+package model.repository;
+
+/**
+ * Resultado de escribir una tarea en un repositorio remoto.
+ */
+public final class WriteResult {
+	private final int identifier;
+	private final int attempts;
+	private final Exception error;
+
+	WriteResult(int identifier, int attempts, Exception error) {
+		this.identifier = identifier;
+		this.attempts = attempts;
+		this.error = error;
+	}
+
+	/**
+	 * @return el identificador de la tarea escrita.
+	 */
+	public int getIdentifier() {
+		return identifier;
+	}
+
+	/**
+	 * @return el numero de peticiones realizadas, incluidos los reintentos.
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	/**
+	 * @return {@code true} si la tarea se escribio correctamente.
+	 */
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+	/**
+	 * @return el ultimo error recibido o {@code null} si la escritura fue correcta.
+	 */
+	public Exception getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return isSuccess()
+				? "Tarea " + identifier + ": guardada (" + attempts + " intentos)"
+				: "Tarea " + identifier + ": error tras " + attempts + " intentos: " + error.getMessage();
+	}
+}
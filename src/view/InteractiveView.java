@@ -1,7 +1,6 @@
 package view;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -9,6 +8,7 @@ import java.util.Scanner;
 
 import controller.Controller;
 import model.Task;
+import model.exporter.TaskCodecs;
 
 
 public class InteractiveView extends BaseView {
@@ -378,7 +378,9 @@ public class InteractiveView extends BaseView {
 		String[] options = {
 			"1. Importar desde CSV",
 			"2. Importar desde JSON",
-			"3. Volver",
+			"3. Importar desde NDJSON",
+			"4. Importar desde formato columnar",
+			"5. Volver",
 		};
 		boolean salir = false;
 		do {
@@ -393,6 +395,12 @@ public class InteractiveView extends BaseView {
 					importTasks("json", refScanner);
 					break;
 				case 3:
+					importTasks("ndjson", refScanner);
+					break;
+				case 4:
+					importTasks("columnar", refScanner);
+					break;
+				case 5:
 					salir = true;
 					break;
 			}
@@ -417,6 +425,11 @@ public class InteractiveView extends BaseView {
 		displayTasks(importedTasks);
 		System.out.println("-".repeat(ViewUtils.getTerminalWidth()));;
 
+		String skipped = controller.getSkippedImportMessage();
+		if (skipped != null) {
+			showMessage(skipped);
+		}
+
 		if (ViewUtils.confirmAction("Desea juntar las tareas con las ya existentes?", refScanner)) {
 			controller.mergeImportedTasks(importedTasks, true);
 
@@ -430,7 +443,9 @@ public class InteractiveView extends BaseView {
 		String[] options = {
 			"1. Exportar a CSV",
 			"2. Exportar a JSON",
-			"3. Volver",
+			"3. Exportar a NDJSON",
+			"4. Exportar a formato columnar",
+			"5. Volver",
 		};
 		boolean salir = false;
 		do {
@@ -445,6 +460,12 @@ public class InteractiveView extends BaseView {
 					exportTasks("json", refScanner);
 					break;
 				case 3:
+					exportTasks("ndjson", refScanner);
+					break;
+				case 4:
+					exportTasks("columnar", refScanner);
+					break;
+				case 5:
 					salir = true;
 					break;
 			}
@@ -481,7 +502,7 @@ public class InteractiveView extends BaseView {
 			String[] row = {
 				String.valueOf(task.getIdentifier()),
 				task.getTitle(),
-				task.getDate().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
+				task.getDate().format(TaskCodecs.DATE_FORMATTER),
 				task.getContent(),
 				String.valueOf(task.getPriority()),
 				String.valueOf(task.getEstimatedDuration()),
@@ -3,12 +3,13 @@ package view;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
+import model.exporter.TaskCodecs;
+
 /**
  * Clase de utilidades para manejo y formateo de vistas en terminal.
  */
@@ -28,13 +29,11 @@ public class ViewUtils {
 	 * @return La fecha ingresada como un objeto {@link LocalDate}.
 	 */
 	public static LocalDate readDate(Scanner scanner) {
-		DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
 		while (true) {
 			System.out.printf("Ingrese una fecha (YYYY-MM-DD): ");
 			String input = scanner.nextLine().trim();
 			try {
-				return LocalDate.parse(input, dateFormatter);
+				return LocalDate.parse(input, TaskCodecs.DATE_FORMATTER);
 			} catch (DateTimeParseException e) {
 				System.out.println("Formato de fecha inválido. Intente nuevamente.");
 			}